@@ -0,0 +1,57 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-row cost of field cleaning and CSV row encoding, isolated from disk I/O
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CsvEncodingBenchmark {
+    private List<Book> books;
+    private CsvRowEncoder encoder;
+    private int next;
+
+    @Setup
+    public void setup() {
+        books = Fixtures.books(1000);
+        encoder = new CsvRowEncoder(Writer.nullWriter(), "2024-01-01 12:00:00");
+    }
+
+    private Book nextBook() {
+        Book book = books.get(next);
+        next = (next + 1) % books.size();
+        return book;
+    }
+
+    @Benchmark
+    public void cleanText(Blackhole blackhole) {
+        Book book = nextBook();
+        blackhole.consume(BookCSVWriter.cleanText(book.getTitle()));
+        blackhole.consume(BookCSVWriter.cleanText(book.getPrice()));
+        blackhole.consume(BookCSVWriter.cleanText(book.getAvailability()));
+    }
+
+    @Benchmark
+    public void encodeRow() throws IOException {
+        encoder.writeBook(nextBook());
+    }
+}
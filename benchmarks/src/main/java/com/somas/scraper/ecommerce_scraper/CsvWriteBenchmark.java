@@ -0,0 +1,55 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end throughput of BookCSVWriter.writeBooksToCSV to a temp file
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CsvWriteBenchmark {
+    @Param({"1000", "100000"})
+    private int bookCount;
+
+    private List<Book> books;
+    private BookCSVWriter writer;
+    private Path output;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        books = Fixtures.books(bookCount);
+        writer = new BookCSVWriter();
+        output = Files.createTempFile("bench-books", ".csv");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(output);
+    }
+
+    @Benchmark
+    public String writeBooksToCSV() {
+        return writer.writeBooksToCSV(books, output.toString());
+    }
+}
@@ -0,0 +1,58 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the offline catalogue fixtures bundled with the benchmarks
+ */
+final class Fixtures {
+    static final String PAGE_1 = "catalogue-page-1.html";
+    static final String PAGE_2 = "catalogue-page-2.html";
+    static final String PAGE_1_URL = "https://books.toscrape.com/";
+    static final String PAGE_2_URL = "https://books.toscrape.com/catalogue/page-2.html";
+
+    private Fixtures() {
+    }
+
+    /**
+     * Reads a fixture page from the classpath
+     * @param name fixture file name
+     * @return page HTML
+     */
+    static String html(String name) {
+        try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing fixture " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Builds a list of books by parsing the fixtures repeatedly
+     * @param count number of books wanted
+     * @return books with realistic titles, prices and availability text
+     */
+    static List<Book> books(int count) {
+        BookPageParser parser = new BookPageParser();
+        List<Book> template = new ArrayList<>(parser.parse(html(PAGE_1), PAGE_1_URL).getBooks());
+        template.addAll(parser.parse(html(PAGE_2), PAGE_2_URL).getBooks());
+
+        List<Book> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Book source = template.get(i % template.size());
+            // Mix in the whitespace and quotes seen in real listings so cleaning has work to do
+            String availability = i % 7 == 0 ? "\n    Out of stock\n  " : "\n    In stock\n  ";
+            String title = i % 5 == 0 ? "  \"" + source.getTitle() + "\"\t(reissue)  " : source.getTitle();
+            books.add(new Book(title, source.getPrice(), availability, source.getProductUrl()));
+        }
+        return books;
+    }
+}
@@ -0,0 +1,45 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning one catalogue page into books (Jsoup parse + product_pod extraction)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PageParseBenchmark {
+    private BookPageParser parser;
+    private String page1;
+    private String page2;
+
+    @Setup
+    public void setup() {
+        parser = new BookPageParser();
+        page1 = Fixtures.html(Fixtures.PAGE_1);
+        page2 = Fixtures.html(Fixtures.PAGE_2);
+    }
+
+    @Benchmark
+    public PageResult parseIndexPage() {
+        return parser.parse(page1, Fixtures.PAGE_1_URL);
+    }
+
+    @Benchmark
+    public PageResult parseCataloguePage() {
+        return parser.parse(page2, Fixtures.PAGE_2_URL);
+    }
+}
@@ -0,0 +1,128 @@
+package com.somas.scraper.ecommerce_scraper;
+
+/**
+ * Adaptive cap on concurrent page fetches using additive increase /
+ * multiplicative decrease, as in TCP congestion control. Every fully used
+ * window of healthy responses raises the limit by one; a throttling
+ * response (429), server error (5xx), timeout or response slower than the
+ * latency threshold halves it. Only one decrease happens per window, so a
+ * burst of failures from requests that were already in flight counts once.
+ */
+public class AimdConcurrencyLimiter {
+    private static final double DECREASE_FACTOR = 0.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private int limit;
+    private int inFlight;
+    private int successesInWindow;
+    private long generation;
+
+    /**
+     * @param initialLimit starting concurrency
+     * @param minLimit lowest concurrency the limiter backs off to
+     * @param maxLimit highest concurrency the limiter grows to
+     * @param latencyThresholdMillis responses slower than this count as congestion
+     */
+    public AimdConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long latencyThresholdMillis) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Require 1 <= minLimit <= maxLimit");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.latencyThresholdNanos = latencyThresholdMillis * 1_000_000L;
+    }
+
+    /**
+     * Blocks until the number of fetches in flight is below the current limit
+     * @return permit to pass to onSuccess or onCongestion
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized Permit acquire() throws InterruptedException {
+        while (inFlight >= limit) {
+            wait();
+        }
+        inFlight++;
+        return new Permit(generation, System.nanoTime());
+    }
+
+    /**
+     * Releases a permit after a response that was not a congestion signal.
+     * Responses slower than the latency threshold are treated as congestion.
+     * @param permit permit returned by acquire
+     */
+    public synchronized void onSuccess(Permit permit) {
+        if (System.nanoTime() - permit.startNanos > latencyThresholdNanos) {
+            decrease(permit, "slow response");
+        } else if (++successesInWindow >= limit && limit < maxLimit) {
+            limit++;
+            successesInWindow = 0;
+            generation++;
+        }
+        release();
+    }
+
+    /**
+     * Releases a permit after throttling, a server error or a timeout
+     * @param permit permit returned by acquire
+     * @param reason short description for the log
+     */
+    public synchronized void onCongestion(Permit permit, String reason) {
+        decrease(permit, reason);
+        release();
+    }
+
+    /**
+     * Releases a permit after a failure that says nothing about site load, e.g. a 404
+     * @param permit permit returned by acquire
+     */
+    public synchronized void onIgnore(Permit permit) {
+        release();
+    }
+
+    private void decrease(Permit permit, String reason) {
+        // Requests started before the last change saw the old limit; react to the first one only
+        if (permit.generation != generation) {
+            return;
+        }
+        int lowered = Math.max(minLimit, (int) (limit * DECREASE_FACTOR));
+        if (lowered < limit) {
+            System.out.println("Concurrency limit lowered from " + limit + " to " + lowered + " after " + reason);
+        }
+        limit = lowered;
+        successesInWindow = 0;
+        generation++;
+    }
+
+    private void release() {
+        inFlight--;
+        notifyAll();
+    }
+
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Ticket for one in-flight fetch
+     */
+    public static class Permit {
+        private final long generation;
+        private volatile long startNanos;
+
+        Permit(long generation, long startNanos) {
+            this.generation = generation;
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * Starts the latency clock again, e.g. once the request has waited
+         * for its rate limiter, so only the site's response time is measured
+         */
+        public void restartClock() {
+            startNanos = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.somas.scraper.ecommerce_scraper;
+
+/**
+ * Mergeable primitive accumulator for archive analytics. Prices are counted
+ * per minor unit up to EXACT_LIMIT_MINOR, so percentiles and histograms are
+ * exact for ordinary book prices without keeping individual values; prices
+ * above the limit are only counted and reflected in min and max.
+ */
+public class ArchiveStatistics {
+    /** Prices below this many minor units (1000.00) are tracked exactly */
+    static final int EXACT_LIMIT_MINOR = 100_000;
+
+    private long rows;
+    private long inStock;
+    private long outOfStock;
+    private long unknownAvailability;
+    private long pricedRows;
+    private long priceSumMinor;
+    private long minPriceMinor = Long.MAX_VALUE;
+    private long maxPriceMinor = Long.MIN_VALUE;
+    private long overflowPrices;
+    private long[] priceCounts;
+    private long files;
+    private long bytes;
+
+    /**
+     * Counts one record
+     * @param priceMinor price in minor units, or Book.UNKNOWN_PRICE
+     * @param availability parsed stock status
+     */
+    void add(long priceMinor, Availability availability) {
+        rows++;
+        switch (availability) {
+            case IN_STOCK:
+                inStock++;
+                break;
+            case OUT_OF_STOCK:
+                outOfStock++;
+                break;
+            default:
+                unknownAvailability++;
+        }
+        if (priceMinor == Book.UNKNOWN_PRICE) {
+            return;
+        }
+        pricedRows++;
+        priceSumMinor += priceMinor;
+        minPriceMinor = Math.min(minPriceMinor, priceMinor);
+        maxPriceMinor = Math.max(maxPriceMinor, priceMinor);
+        if (priceMinor < EXACT_LIMIT_MINOR) {
+            if (priceCounts == null) {
+                priceCounts = new long[EXACT_LIMIT_MINOR];
+            }
+            priceCounts[(int) priceMinor]++;
+        } else {
+            overflowPrices++;
+        }
+    }
+
+    /**
+     * Records that a whole input file of the given size was read
+     */
+    void addFile(long size) {
+        files++;
+        bytes += size;
+    }
+
+    /**
+     * Adds another accumulator's counts to this one
+     * @param other partial result to fold in
+     * @return this accumulator
+     */
+    ArchiveStatistics merge(ArchiveStatistics other) {
+        rows += other.rows;
+        inStock += other.inStock;
+        outOfStock += other.outOfStock;
+        unknownAvailability += other.unknownAvailability;
+        pricedRows += other.pricedRows;
+        priceSumMinor += other.priceSumMinor;
+        minPriceMinor = Math.min(minPriceMinor, other.minPriceMinor);
+        maxPriceMinor = Math.max(maxPriceMinor, other.maxPriceMinor);
+        overflowPrices += other.overflowPrices;
+        files += other.files;
+        bytes += other.bytes;
+        if (other.priceCounts != null) {
+            if (priceCounts == null) {
+                priceCounts = other.priceCounts;
+            } else {
+                for (int i = 0; i < EXACT_LIMIT_MINOR; i++) {
+                    priceCounts[i] += other.priceCounts[i];
+                }
+            }
+        }
+        return this;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getInStockCount() {
+        return inStock;
+    }
+
+    public long getOutOfStockCount() {
+        return outOfStock;
+    }
+
+    public long getUnknownAvailabilityCount() {
+        return unknownAvailability;
+    }
+
+    /**
+     * @return share of rows with a known stock status that are in stock, 0 if none
+     */
+    public double getInStockRatio() {
+        long known = inStock + outOfStock;
+        return known == 0 ? 0.0 : (double) inStock / known;
+    }
+
+    public long getPricedRows() {
+        return pricedRows;
+    }
+
+    /**
+     * @return mean price in major units, 0 if no row had a price
+     */
+    public double getMeanPrice() {
+        return pricedRows == 0 ? 0.0 : priceSumMinor / 100.0 / pricedRows;
+    }
+
+    /**
+     * @return lowest price in minor units, or Book.UNKNOWN_PRICE if no row had a price
+     */
+    public long getMinPriceMinor() {
+        return pricedRows == 0 ? Book.UNKNOWN_PRICE : minPriceMinor;
+    }
+
+    /**
+     * @return highest price in minor units, or Book.UNKNOWN_PRICE if no row had a price
+     */
+    public long getMaxPriceMinor() {
+        return pricedRows == 0 ? Book.UNKNOWN_PRICE : maxPriceMinor;
+    }
+
+    /**
+     * @param quantile quantile between 0.0 and 1.0, e.g. 0.99
+     * @return price at the quantile in minor units (the maximum if it falls
+     *         above EXACT_LIMIT_MINOR), or Book.UNKNOWN_PRICE if no row had a price
+     */
+    public long getPercentileMinor(double quantile) {
+        if (pricedRows == 0) {
+            return Book.UNKNOWN_PRICE;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * pricedRows));
+        long seen = 0;
+        if (priceCounts != null) {
+            for (int price = 0; price < EXACT_LIMIT_MINOR; price++) {
+                seen += priceCounts[price];
+                if (seen >= rank) {
+                    return price;
+                }
+            }
+        }
+        return maxPriceMinor;
+    }
+
+    /**
+     * Counts prices in equal-width bands starting at zero
+     * @param bandMinor band width in minor units
+     * @param bands number of bands; the last one also holds every higher price
+     * @return row count per band
+     */
+    public long[] getHistogram(long bandMinor, int bands) {
+        long[] histogram = new long[bands];
+        if (priceCounts != null) {
+            for (int price = 0; price < EXACT_LIMIT_MINOR; price++) {
+                if (priceCounts[price] != 0) {
+                    histogram[(int) Math.min(bands - 1, price / bandMinor)] += priceCounts[price];
+                }
+            }
+        }
+        histogram[bands - 1] += overflowPrices;
+        return histogram;
+    }
+
+    public long getFiles() {
+        return files;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+}
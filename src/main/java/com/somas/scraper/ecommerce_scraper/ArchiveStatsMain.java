@@ -0,0 +1,126 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Offline summary of past scrapes: counts, stock ratio and price
+ * distribution over every CSV export found in the given files or directories
+ * (searched recursively for *.csv and *.csv.gz, skipping unfinished archive
+ * segments). Files derived from an export, such as the stock and price-band
+ * partitions, details, changes and the snapshot, are skipped so no book is
+ * counted twice.
+ * <pre>
+ * ArchiveStatsMain &lt;fileOrDir&gt;... [--band pounds]
+ * </pre>
+ */
+public class ArchiveStatsMain {
+    private static final int DEFAULT_BAND_POUNDS = 10;
+    private static final int HISTOGRAM_BANDS = 10;
+    private static final int BAR_WIDTH = 40;
+    // Fan-out and side files written next to books_data_*.csv; their rows repeat the main export's
+    private static final String[] DERIVED_PREFIXES = {
+        "books_in_stock_", "books_out_of_stock_", "books_price_", "books_category_", "books_details_", "books_changes_", "books_snapshot"
+    };
+
+    public static void main(String[] args) {
+        List<String> inputs = new ArrayList<>();
+        int bandPounds = DEFAULT_BAND_POUNDS;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--band") && i + 1 < args.length) {
+                bandPounds = Integer.parseInt(args[++i]);
+            } else {
+                inputs.add(args[i]);
+            }
+        }
+        if (inputs.isEmpty() || bandPounds < 1) {
+            System.out.println("Usage: ArchiveStatsMain <fileOrDir>... [--band pounds]");
+            System.exit(2);
+        }
+
+        try {
+            List<Path> files = findFiles(inputs);
+            if (files.isEmpty()) {
+                System.out.println("No CSV files found");
+                return;
+            }
+            long start = System.nanoTime();
+            ArchiveStatistics stats = new CsvArchiveAnalyzer(ForkJoinPool.commonPool()).analyze(files);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            printReport(stats, seconds, bandPounds * 100L);
+        } catch (IOException e) {
+            System.err.println("Archive analysis failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static List<Path> findFiles(List<String> inputs) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String input : inputs) {
+            try (Stream<Path> paths = Files.walk(Paths.get(input))) {
+                files.addAll(paths.filter(Files::isRegularFile)
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return !name.startsWith(".") && (name.endsWith(".csv") || name.endsWith(".csv.gz"))
+                            && !isDerived(name);
+                    })
+                    .sorted()
+                    .collect(Collectors.toList()));
+            }
+        }
+        return files;
+    }
+
+    private static boolean isDerived(String name) {
+        for (String prefix : DERIVED_PREFIXES) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void printReport(ArchiveStatistics stats, double seconds, long bandMinor) {
+        System.out.println("=== Archive Statistics ===");
+        System.out.println("Files: " + stats.getFiles() + " (" + String.format("%.1f", stats.getBytes() / 1048576.0) + " MB)");
+        System.out.println("Rows: " + stats.getRows());
+        System.out.println("In stock: " + stats.getInStockCount() + ", out of stock: " + stats.getOutOfStockCount()
+            + ", unknown: " + stats.getUnknownAvailabilityCount());
+        System.out.println("In-stock ratio: " + String.format("%.1f%%", stats.getInStockRatio() * 100));
+        if (stats.getPricedRows() > 0) {
+            System.out.println("Price mean: £" + String.format("%.2f", stats.getMeanPrice())
+                + "  min: " + formatPrice(stats.getMinPriceMinor())
+                + "  max: " + formatPrice(stats.getMaxPriceMinor()));
+            System.out.println("Price p50: " + formatPrice(stats.getPercentileMinor(0.50))
+                + "  p90: " + formatPrice(stats.getPercentileMinor(0.90))
+                + "  p99: " + formatPrice(stats.getPercentileMinor(0.99)));
+
+            System.out.println("\nPrice histogram:");
+            long[] histogram = stats.getHistogram(bandMinor, HISTOGRAM_BANDS);
+            long largest = 1;
+            for (long count : histogram) {
+                largest = Math.max(largest, count);
+            }
+            for (int band = 0; band < histogram.length; band++) {
+                String label = band == histogram.length - 1
+                    ? String.format("£%d+", band * bandMinor / 100)
+                    : String.format("£%d-%d", band * bandMinor / 100, (band + 1) * bandMinor / 100);
+                int bar = (int) (histogram[band] * BAR_WIDTH / largest);
+                System.out.println(String.format("%-10s %10d  %s", label, histogram[band], "#".repeat(bar)));
+            }
+        }
+        System.out.println(String.format("\nAnalysed in %.2f s (%.0f MB/s)", seconds,
+            stats.getBytes() / 1048576.0 / Math.max(seconds, 1e-9)));
+    }
+
+    private static String formatPrice(long priceMinor) {
+        return String.format("£%d.%02d", priceMinor / 100, priceMinor % 100);
+    }
+}
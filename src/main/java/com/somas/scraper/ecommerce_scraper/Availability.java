@@ -0,0 +1,53 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.util.Locale;
+
+/**
+ * Stock status of a book, parsed once from the scraped availability text
+ */
+public enum Availability {
+    IN_STOCK,
+    OUT_OF_STOCK,
+    UNKNOWN;
+
+    /**
+     * Parses availability text such as "In stock" or "In stock (22 available)".
+     * Anything that does not mention "in stock" counts as out of stock, matching
+     * how the exporter has always partitioned books.
+     * @param text raw availability text
+     * @return parsed status
+     */
+    public static Availability parse(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return UNKNOWN;
+        }
+        return text.toLowerCase(Locale.ROOT).contains("in stock") ? IN_STOCK : OUT_OF_STOCK;
+    }
+
+    /**
+     * Reads the stock count from text such as "In stock (22 available)"
+     * @param text raw availability text
+     * @return number of copies available, or -1 if the text has no count
+     */
+    public static int parseStockCount(String text) {
+        if (text == null) {
+            return -1;
+        }
+        int open = text.indexOf('(');
+        if (open < 0) {
+            return -1;
+        }
+        int count = 0;
+        boolean found = false;
+        for (int i = open + 1; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                count = count * 10 + (c - '0');
+                found = true;
+            } else if (found) {
+                break;
+            }
+        }
+        return found ? count : -1;
+    }
+}
@@ -0,0 +1,203 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory-maps a binary snapshot written by BinarySnapshotWriter and walks
+ * its records with a cursor. Numeric columns and dictionary strings are
+ * read in place; titles and URLs are only decoded when asked for, so
+ * scanning prices or availability never materialises Book objects.
+ */
+public class BinarySnapshotReader implements AutoCloseable {
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final long recordCount;
+    private final long scrapedAtEpochMillis;
+    private final int recordsEnd;
+    private final String[] dictionary;
+    private final boolean[] inStockById;
+
+    /**
+     * Maps the file and reads its header and dictionary
+     * @param filename snapshot file
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public BinarySnapshotReader(String filename) throws IOException {
+        this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        if (channel.size() > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException("Snapshot too large to map in one piece: " + filename);
+        }
+        this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+        if (buffer.remaining() < BinarySnapshotWriter.HEADER_SIZE
+                || buffer.getInt(0) != BinarySnapshotWriter.MAGIC) {
+            channel.close();
+            throw new IOException("Not a binary book snapshot: " + filename);
+        }
+        int version = buffer.getInt(4);
+        if (version != BinarySnapshotWriter.VERSION) {
+            channel.close();
+            throw new IOException("Unsupported snapshot version " + version + " in " + filename);
+        }
+        this.recordCount = buffer.getLong(8);
+        this.recordsEnd = (int) buffer.getLong(16);
+        this.scrapedAtEpochMillis = buffer.getLong(24);
+
+        ByteBuffer dictionaryView = buffer.duplicate();
+        dictionaryView.position(recordsEnd);
+        this.dictionary = new String[dictionaryView.getInt()];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = readString(dictionaryView);
+        }
+
+        // Availability is parsed once per distinct value rather than once per record
+        this.inStockById = new boolean[dictionary.length];
+        for (int i = 0; i < dictionary.length; i++) {
+            inStockById[i] = Availability.parse(dictionary[i]) == Availability.IN_STOCK;
+        }
+    }
+
+    private static String readString(ByteBuffer view) {
+        int length = view.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public long getScrapedAtEpochMillis() {
+        return scrapedAtEpochMillis;
+    }
+
+    /**
+     * @return a new cursor positioned before the first record
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Forward-only view over the records. Accessors refer to the record
+     * most recently reached by next().
+     */
+    public class Cursor {
+        private final ByteBuffer view = buffer.duplicate();
+        private int recordStart = -1;
+        private int titleOffset;
+        private int urlOffset;
+
+        private Cursor() {
+            view.position(BinarySnapshotWriter.HEADER_SIZE);
+        }
+
+        /**
+         * Advances to the next record
+         * @return false when there are no more records
+         */
+        public boolean next() {
+            if (view.position() >= recordsEnd) {
+                return false;
+            }
+            recordStart = view.position();
+            titleOffset = recordStart + 20;
+            urlOffset = skipString(titleOffset);
+            view.position(skipString(urlOffset));
+            return true;
+        }
+
+        private int skipString(int offset) {
+            int length = view.getInt(offset);
+            return offset + 4 + Math.max(length, 0);
+        }
+
+        public long getPriceMinor() {
+            return view.getLong(recordStart);
+        }
+
+        public int getStockCount() {
+            return view.getInt(recordStart + 8);
+        }
+
+        /**
+         * @return shared dictionary string; no allocation per record
+         */
+        public String getAvailability() {
+            return lookup(view.getInt(recordStart + 12));
+        }
+
+        public boolean isInStock() {
+            int id = view.getInt(recordStart + 12);
+            return id != BinarySnapshotWriter.NULL_ID && inStockById[id];
+        }
+
+        /**
+         * @return shared dictionary string; no allocation per record
+         */
+        public String getCurrency() {
+            return lookup(view.getInt(recordStart + 16));
+        }
+
+        public String getTitle() {
+            return decode(titleOffset);
+        }
+
+        public String getProductUrl() {
+            return decode(urlOffset);
+        }
+
+        /**
+         * Builds a Book for the current record, for callers that need one
+         * @return the book
+         */
+        public Book toBook() {
+            Book book = new Book(getTitle(), formatPrice(), getAvailability(), getProductUrl());
+            book.setStockCount(getStockCount());
+            return book;
+        }
+
+        /**
+         * Rebuilds the display price, e.g. "£51.77", from the stored columns
+         * @return formatted price, or null if the price was unknown
+         */
+        public String formatPrice() {
+            long minor = getPriceMinor();
+            if (minor == Book.UNKNOWN_PRICE) {
+                return null;
+            }
+            String currency = getCurrency();
+            String symbol = "GBP".equals(currency) ? "£"
+                : "USD".equals(currency) ? "$"
+                : "EUR".equals(currency) ? "€"
+                : "";
+            return String.format("%s%d.%02d", symbol, minor / 100, minor % 100);
+        }
+
+        private String lookup(int id) {
+            return id == BinarySnapshotWriter.NULL_ID ? null : dictionary[id];
+        }
+
+        private String decode(int offset) {
+            ByteBuffer field = view.duplicate();
+            field.position(offset);
+            return readString(field);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes books in the compact binary snapshot format read by BinarySnapshotReader.
+ *
+ * Layout (big-endian):
+ * <pre>
+ * header      magic "BKSN" | int version | long recordCount | long dictionaryOffset | long scrapedAtEpochMillis
+ * records     long priceMinor | int stockCount | int availabilityId | int currencyId
+ *             | int titleLength | title UTF-8 | int urlLength | url UTF-8
+ * dictionary  int entryCount | (int length | UTF-8 bytes) per entry
+ * </pre>
+ * Availability texts and currency codes repeat heavily, so they are stored
+ * once in the dictionary and referenced by id. String lengths of -1 mean null.
+ */
+public class BinarySnapshotWriter implements BookSink {
+    static final int MAGIC = 0x424B534E; // "BKSN"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int NULL_ID = -1;
+
+    private final String filename;
+    private final FileChannel channel;
+    private final DataOutputStream out;
+    private final long scrapedAtEpochMillis;
+    private final Map<String, Integer> dictionaryIds = new HashMap<>();
+    private final List<String> dictionary = new ArrayList<>();
+    private long recordCount;
+    private boolean closed;
+
+    /**
+     * Creates the file and reserves space for the header
+     * @param filename snapshot file to create or overwrite
+     * @param scrapedAtEpochMillis scrape time stored in the header
+     */
+    public BinarySnapshotWriter(String filename, long scrapedAtEpochMillis) {
+        this.filename = filename;
+        this.scrapedAtEpochMillis = scrapedAtEpochMillis;
+        try {
+            this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+            out.write(new byte[HEADER_SIZE]);
+        } catch (IOException e) {
+            System.err.println("Error opening binary snapshot: " + e.getMessage());
+            throw new RuntimeException("Failed to open binary snapshot", e);
+        }
+    }
+
+    @Override
+    public void accept(Book book) {
+        try {
+            out.writeLong(book.getPriceMinor());
+            out.writeInt(book.getStockCount());
+            out.writeInt(idOf(book.getAvailability()));
+            out.writeInt(idOf(book.getCurrency()));
+            writeString(book.getTitle());
+            writeString(book.getProductUrl());
+            recordCount++;
+        } catch (IOException e) {
+            System.err.println("Error writing binary snapshot: " + e.getMessage());
+            throw new RuntimeException("Failed to write binary snapshot", e);
+        }
+    }
+
+    private int idOf(String value) {
+        if (value == null) {
+            return NULL_ID;
+        }
+        Integer id = dictionaryIds.get(value);
+        if (id == null) {
+            id = dictionary.size();
+            dictionary.add(value);
+            dictionaryIds.put(value, id);
+        }
+        return id;
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @Override
+    public void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Error flushing binary snapshot: " + e.getMessage());
+            throw new RuntimeException("Failed to flush binary snapshot", e);
+        }
+    }
+
+    /**
+     * Appends the dictionary and fills in the header
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            out.flush();
+            long dictionaryOffset = channel.position();
+            out.writeInt(dictionary.size());
+            for (String entry : dictionary) {
+                writeString(entry);
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC)
+                .putInt(VERSION)
+                .putLong(recordCount)
+                .putLong(dictionaryOffset)
+                .putLong(scrapedAtEpochMillis)
+                .flip();
+            channel.write(header, 0);
+            channel.force(false);
+            out.close();
+            System.out.println("Successfully wrote " + recordCount + " books to: " + filename);
+        } catch (IOException e) {
+            System.err.println("Error closing binary snapshot: " + e.getMessage());
+            throw new RuntimeException("Failed to close binary snapshot", e);
+        }
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+}
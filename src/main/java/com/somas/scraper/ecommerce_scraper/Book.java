@@ -1,12 +1,34 @@
 package com.somas.scraper.ecommerce_scraper;
 
 /**
- * Data model representing a book with title, price, and availability
+ * Data model representing a book with title, price, availability and product page URL.
+ *
+ * The raw price and availability strings are kept for export, and are parsed
+ * once when set into typed fields: the price in minor units (pence/cents)
+ * plus an ISO currency code, and an Availability status with optional stock count.
+ * UPC, category, description and the exact stock count are filled in by DetailCrawler.
+ * The cover image URL is read from the listing but not exported.
  */
 public class Book {
+    /** Marker for prices that could not be parsed */
+    public static final long UNKNOWN_PRICE = -1;
+
     private String title;
     private String price;
     private String availability;
+    private String productUrl;
+
+    private long priceMinor = UNKNOWN_PRICE;
+    private String currency;
+    private Availability availabilityStatus = Availability.UNKNOWN;
+    private int stockCount = -1;
+    private String productId;
+    private String imageUrl;
+
+    // Only known after the product detail page has been crawled
+    private String upc;
+    private String category;
+    private String description;
 
     // Default constructor
     public Book() {}
@@ -14,8 +36,31 @@ public class Book {
     // Constructor with all fields
     public Book(String title, String price, String availability) {
         this.title = title;
-        this.price = price;
-        this.availability = availability;
+        setPrice(price);
+        setAvailability(availability);
+    }
+
+    // Constructor including the product page URL, which identifies the book across runs
+    public Book(String title, String price, String availability, String productUrl) {
+        this(title, price, availability);
+        setProductUrl(productUrl);
+    }
+
+    // Copy constructor, so a cached book can be handed out without sharing later changes
+    public Book(Book other) {
+        this.title = other.title;
+        this.price = other.price;
+        this.availability = other.availability;
+        this.productUrl = other.productUrl;
+        this.priceMinor = other.priceMinor;
+        this.currency = other.currency;
+        this.availabilityStatus = other.availabilityStatus;
+        this.stockCount = other.stockCount;
+        this.productId = other.productId;
+        this.imageUrl = other.imageUrl;
+        this.upc = other.upc;
+        this.category = other.category;
+        this.description = other.description;
     }
 
     // Getters
@@ -31,6 +76,74 @@ public class Book {
         return availability;
     }
 
+    public String getProductUrl() {
+        return productUrl;
+    }
+
+    /**
+     * @return price in minor currency units (e.g. pence), or UNKNOWN_PRICE
+     */
+    public long getPriceMinor() {
+        return priceMinor;
+    }
+
+    /**
+     * @return ISO 4217 currency code, or null if no currency symbol was found
+     */
+    public String getCurrency() {
+        return currency;
+    }
+
+    public Availability getAvailabilityStatus() {
+        return availabilityStatus;
+    }
+
+    public boolean isInStock() {
+        return availabilityStatus == Availability.IN_STOCK;
+    }
+
+    /**
+     * @return number of copies available, or -1 if unknown
+     */
+    public int getStockCount() {
+        return stockCount;
+    }
+
+    /**
+     * @return product identifier derived from the product URL, e.g. "a-light-in-the-attic_1000"
+     */
+    public String getProductId() {
+        return productId;
+    }
+
+    /**
+     * @return absolute URL of the cover thumbnail, or null if the listing had none
+     */
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    /**
+     * @return Universal Product Code from the detail page, or null if not crawled
+     */
+    public String getUpc() {
+        return upc;
+    }
+
+    /**
+     * @return category from the detail page breadcrumb, or null if not crawled
+     */
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * @return product description from the detail page, or null if not crawled
+     */
+    public String getDescription() {
+        return description;
+    }
+
     // Setters
     public void setTitle(String title) {
         this.title = title;
@@ -38,10 +151,129 @@ public class Book {
 
     public void setPrice(String price) {
         this.price = price;
+        this.priceMinor = parseMinorUnits(price);
+        this.currency = parseCurrency(price);
     }
 
     public void setAvailability(String availability) {
         this.availability = availability;
+        this.availabilityStatus = Availability.parse(availability);
+        this.stockCount = Availability.parseStockCount(availability);
+    }
+
+    public void setProductUrl(String productUrl) {
+        this.productUrl = productUrl;
+        this.productId = parseProductId(productUrl);
+    }
+
+    public void setImageUrl(String imageUrl) {
+        this.imageUrl = imageUrl;
+    }
+
+    public void setStockCount(int stockCount) {
+        this.stockCount = stockCount;
+    }
+
+    public void setUpc(String upc) {
+        this.upc = upc;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Parses a price such as "£51.77" into minor units without going through double
+     * @param text raw price text
+     * @return price in minor units, or UNKNOWN_PRICE
+     */
+    static long parseMinorUnits(String text) {
+        if (text == null) {
+            return UNKNOWN_PRICE;
+        }
+        long whole = 0;
+        int fraction = 0;
+        int fractionDigits = -1;
+        boolean found = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                found = true;
+                if (fractionDigits < 0) {
+                    whole = whole * 10 + (c - '0');
+                } else if (fractionDigits < 2) {
+                    fraction = fraction * 10 + (c - '0');
+                    fractionDigits++;
+                }
+            } else if (c == '.' && found && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (c == ',' && found && fractionDigits < 0) {
+                // Thousands separator
+                continue;
+            } else if (found) {
+                break;
+            }
+        }
+        if (!found) {
+            return UNKNOWN_PRICE;
+        }
+        for (int i = Math.max(fractionDigits, 0); i < 2; i++) {
+            fraction *= 10;
+        }
+        return whole * 100 + fraction;
+    }
+
+    /**
+     * Maps the currency symbol in a price to its ISO code
+     * @param text raw price text
+     * @return currency code, or null if no known symbol is present
+     */
+    static String parseCurrency(String text) {
+        if (text == null) {
+            return null;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            switch (text.charAt(i)) {
+                case '£':
+                    return "GBP";
+                case '$':
+                    return "USD";
+                case '€':
+                    return "EUR";
+                default:
+                    break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Derives the product id from a URL such as ".../catalogue/a-light-in-the-attic_1000/index.html"
+     * @param url product page URL
+     * @return the last meaningful path segment, or null
+     */
+    static String parseProductId(String url) {
+        if (url == null || url.isEmpty()) {
+            return null;
+        }
+        String path = url;
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        if (path.endsWith("/index.html")) {
+            path = path.substring(0, path.length() - "/index.html".length());
+        }
+        while (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        int slash = path.lastIndexOf('/');
+        String id = slash >= 0 ? path.substring(slash + 1) : path;
+        return id.isEmpty() ? null : id;
     }
 
     @Override
@@ -52,4 +284,4 @@ public class Book {
                 ", availability='" + availability + '\'' +
                 '}';
     }
-}
\ No newline at end of file
+}
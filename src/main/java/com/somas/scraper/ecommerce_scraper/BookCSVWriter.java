@@ -1,17 +1,24 @@
 package com.somas.scraper.ecommerce_scraper;
 
-import com.opencsv.CSVWriter;
+import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 /**
- * Handles writing book data to CSV files using OpenCSV
+ * Handles writing book data to CSV files. Rows are produced by CsvRowEncoder,
+ * which keeps the quoting of the original OpenCSV output.
  */
 public class BookCSVWriter {
-    private static final String[] CSV_HEADER = {"Title", "Price", "Availability", "Scraped_At"};
+    static final String[] CSV_HEADER = {"Title", "Price", "Availability", "Scraped_At"};
+    static final String[] DETAILS_HEADER = {"Product_URL", "Title", "UPC", "Category", "Stock_Count", "Description"};
+    // Price band partitions written with every export, in minor units (10.00)
+    static final long PRICE_BAND_WIDTH_MINOR = 1000;
     
     /**
      * Writes books to a CSV file with timestamp
@@ -24,22 +31,15 @@ public class BookCSVWriter {
             filename = generateDefaultFilename();
         }
         
-        try (FileWriter fileWriter = new FileWriter(filename);
-             CSVWriter csvWriter = new CSVWriter(fileWriter)) {
+        try (CsvRowEncoder encoder = new CsvRowEncoder(
+                new BufferedWriter(new FileWriter(filename)), getCurrentTimestamp())) {
             
             // Write header
-            csvWriter.writeNext(CSV_HEADER);
+            encoder.writeHeader();
             
             // Write book data
-            String timestamp = getCurrentTimestamp();
             for (Book book : books) {
-                String[] bookData = {
-                    cleanText(book.getTitle()),
-                    cleanText(book.getPrice()),
-                    cleanText(book.getAvailability()),
-                    timestamp
-                };
-                csvWriter.writeNext(bookData);
+                encoder.writeBook(book);
             }
             
             System.out.println("Successfully wrote " + books.size() + " books to: " + filename);
@@ -60,6 +60,18 @@ public class BookCSVWriter {
         return writeBooksToCSV(books, null);
     }
     
+    /**
+     * Opens a streaming CSV sink that writes rows as books arrive
+     * @param filename Custom filename (optional)
+     * @return sink writing to the file; the caller must close it
+     */
+    public CsvBookSink openStreamingSink(String filename) {
+        if (filename == null || filename.isEmpty()) {
+            filename = generateDefaultFilename();
+        }
+        return new CsvBookSink(filename, getCurrentTimestamp());
+    }
+    
     /**
      * Generates a default filename with timestamp
      * @return Generated filename
@@ -84,12 +96,9 @@ public class BookCSVWriter {
      * @param text Text to clean
      * @return Cleaned text
      */
-    private String cleanText(String text) {
-        if (text == null) {
-            return "";
-        }
-        // Remove extra whitespace and newlines
-        return text.trim().replaceAll("\\s+", " ");
+    static String cleanText(String text) {
+        // Trim and collapse whitespace runs in one pass, without a regex
+        return CsvRowEncoder.clean(text);
     }
     
     /**
@@ -98,50 +107,110 @@ public class BookCSVWriter {
      * @return Array of filenames that were created
      */
     public String[] writeBooksToCSVByAvailability(List<Book> books) {
-        // Separate books by availability
-        List<Book> inStockBooks = books.stream()
-            .filter(book -> book.getAvailability().toLowerCase().contains("in stock"))
-            .toList();
-            
-        List<Book> outOfStockBooks = books.stream()
-            .filter(book -> !book.getAvailability().toLowerCase().contains("in stock"))
-            .toList();
-        
         String[] filenames = new String[2];
-        
-        // Write in-stock books
-        if (!inStockBooks.isEmpty()) {
-            filenames[0] = writeBooksToCSV(inStockBooks, "books_in_stock_" + 
-                getCurrentTimestamp().replaceAll("[: -]", "_") + ".csv");
+        String inStockFile = partitionFilename("books_in_stock");
+        String outOfStockFile = partitionFilename("books_out_of_stock");
+
+        // Route every book to its file in a single pass
+        FanOutCsvWriter fanOut = new FanOutCsvWriter(getCurrentTimestamp())
+            .addRoute(book -> book.isInStock() ? inStockFile : outOfStockFile);
+        try (fanOut) {
+            for (Book book : books) {
+                fanOut.accept(book);
+            }
         }
+        Map<String, Integer> written = fanOut.getRowCounts();
         
-        // Write out-of-stock books
-        if (!outOfStockBooks.isEmpty()) {
-            filenames[1] = writeBooksToCSV(outOfStockBooks, "books_out_of_stock_" + 
-                getCurrentTimestamp().replaceAll("[: -]", "_") + ".csv");
+        if (written.containsKey(inStockFile)) {
+            filenames[0] = inStockFile;
+        }
+        if (written.containsKey(outOfStockFile)) {
+            filenames[1] = outOfStockFile;
         }
         
         return filenames;
     }
     
+    /**
+     * Opens a fan-out writer producing the standard export in one pass: the
+     * main file plus the in-stock/out-of-stock, price band and category files
+     * @return writer to stream books into; the caller must close it
+     */
+    public FanOutCsvWriter openExportFanOut() {
+        String mainFile = generateDefaultFilename();
+        String inStockFile = partitionFilename("books_in_stock");
+        String outOfStockFile = partitionFilename("books_out_of_stock");
+        
+        return new FanOutCsvWriter(getCurrentTimestamp())
+            .addRoute(book -> mainFile)
+            .addRoute(book -> book.isInStock() ? inStockFile : outOfStockFile)
+            .addRoute(priceBandRoute(PRICE_BAND_WIDTH_MINOR))
+            .addRoute(categoryRoute());
+    }
+    
+    /**
+     * Opens a long-lived archive writer: gzip CSV segments under dir, rotated
+     * at 64 MB or hourly and group-committed every 1000 rows or second
+     * @param dir archive directory
+     * @return sink to stream books into; the caller must close it
+     */
+    public RotatingCsvSink openArchive(Path dir) {
+        return new RotatingCsvSink(dir, "books", getCurrentTimestamp(), RotatingCsvSink.Compression.GZIP);
+    }
+    
+    /**
+     * Route that partitions books into price bands, e.g. books_price_10-20_....csv
+     * @param bandWidthMinor width of each band in minor currency units
+     * @return routing function for FanOutCsvWriter
+     */
+    public Function<Book, String> priceBandRoute(long bandWidthMinor) {
+        String suffix = getCurrentTimestamp().replaceAll("[: -]", "_") + ".csv";
+        return book -> {
+            if (book.getPriceMinor() == Book.UNKNOWN_PRICE) {
+                return "books_price_unknown_" + suffix;
+            }
+            long band = book.getPriceMinor() / bandWidthMinor;
+            return "books_price_" + (band * bandWidthMinor / 100) + "-"
+                + ((band + 1) * bandWidthMinor / 100) + "_" + suffix;
+        };
+    }
+    
+    /**
+     * Route that partitions books by category, e.g. books_category_poetry_....csv.
+     * Only detail crawls know the category; other books are skipped.
+     * @return routing function for FanOutCsvWriter
+     */
+    public Function<Book, String> categoryRoute() {
+        return book -> {
+            String category = book.getCategory();
+            if (category == null || category.isEmpty()) {
+                return null;
+            }
+            String slug = category.toLowerCase().replaceAll("[^a-z0-9]+", "-").replaceAll("^-|-$", "");
+            return slug.isEmpty() ? null : partitionFilename("books_category_" + slug);
+        };
+    }
+    
+    /**
+     * Builds a partition filename in the exporter's naming scheme
+     * @param prefix partition prefix
+     * @return filename such as books_in_stock_2024_01_01_12_00_00.csv
+     */
+    private String partitionFilename(String prefix) {
+        return prefix + "_" + getCurrentTimestamp().replaceAll("[: -]", "_") + ".csv";
+    }
+    
     /**
      * Appends books to an existing CSV file
      * @param books List of books to append
      * @param filename Existing CSV filename
      */
     public void appendBooksToCSV(List<Book> books, String filename) {
-        try (FileWriter fileWriter = new FileWriter(filename, true);
-             CSVWriter csvWriter = new CSVWriter(fileWriter)) {
+        try (CsvRowEncoder encoder = new CsvRowEncoder(
+                new BufferedWriter(new FileWriter(filename, true)), getCurrentTimestamp())) {
             
-            String timestamp = getCurrentTimestamp();
             for (Book book : books) {
-                String[] bookData = {
-                    cleanText(book.getTitle()),
-                    cleanText(book.getPrice()),
-                    cleanText(book.getAvailability()),
-                    timestamp
-                };
-                csvWriter.writeNext(bookData);
+                encoder.writeBook(book);
             }
             
             System.out.println("Successfully appended " + books.size() + " books to: " + filename);
@@ -151,4 +220,79 @@ public class BookCSVWriter {
             throw new RuntimeException("Failed to append to CSV file", e);
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Writes the detail-page fields of each book to a separate CSV file,
+     * keyed by product URL so it can be joined with the main export
+     * @param books books enriched by DetailCrawler
+     * @param filename Custom filename (optional)
+     * @return The filename that was written to
+     */
+    public String writeBookDetailsToCSV(List<Book> books, String filename) {
+        if (filename == null || filename.isEmpty()) {
+            filename = partitionFilename("books_details");
+        }
+        try (BookSink sink = openDetailsSink(filename)) {
+            books.forEach(sink::accept);
+        }
+        return filename;
+    }
+
+    /**
+     * Opens a streaming sink for the detail-page fields, written as books
+     * leave DetailCrawler rather than after the whole crawl
+     * @param filename Custom filename (optional)
+     * @return sink writing to the file; the caller must close it
+     */
+    public BookSink openDetailsSink(String filename) {
+        String target = filename == null || filename.isEmpty() ? partitionFilename("books_details") : filename;
+        CsvRowEncoder encoder;
+        try {
+            encoder = new CsvRowEncoder(new BufferedWriter(new FileWriter(target)), getCurrentTimestamp());
+            encoder.writeDetailsHeader();
+        } catch (IOException e) {
+            System.err.println("Error writing to CSV file: " + e.getMessage());
+            throw new RuntimeException("Failed to write CSV file", e);
+        }
+        return new BookSink() {
+            private int rowCount;
+            private boolean closed;
+
+            @Override
+            public synchronized void accept(Book book) {
+                try {
+                    encoder.writeDetails(book);
+                } catch (IOException e) {
+                    System.err.println("Error writing to CSV file: " + e.getMessage());
+                    throw new RuntimeException("Failed to write CSV file", e);
+                }
+                rowCount++;
+            }
+
+            @Override
+            public synchronized void flush() {
+                try {
+                    encoder.flush();
+                } catch (IOException e) {
+                    System.err.println("Error flushing CSV file: " + e.getMessage());
+                    throw new RuntimeException("Failed to flush CSV file", e);
+                }
+            }
+
+            @Override
+            public synchronized void close() {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    encoder.close();
+                    System.out.println("Successfully wrote details of " + rowCount + " books to: " + target);
+                } catch (IOException e) {
+                    System.err.println("Error writing to CSV file: " + e.getMessage());
+                    throw new RuntimeException("Failed to write CSV file", e);
+                }
+            }
+        };
+    }
+}
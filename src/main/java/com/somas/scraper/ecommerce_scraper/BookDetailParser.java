@@ -0,0 +1,63 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+
+/**
+ * Parses a books.toscrape.com product detail page and merges the fields
+ * that only appear there (UPC, exact stock count, category, description)
+ * into an existing Book
+ */
+public class BookDetailParser {
+
+    /**
+     * Parses raw detail page HTML into the book
+     * @param html page body
+     * @param pageUrl URL the page was loaded from
+     * @param book book to update
+     */
+    public void mergeInto(String html, String pageUrl, Book book) {
+        mergeInto(Jsoup.parse(html, pageUrl), book);
+    }
+
+    /**
+     * Merges fields from an already built Jsoup document into the book.
+     * Fields missing from the page leave the book unchanged.
+     * @param document detail page document
+     * @param book book to update
+     */
+    public void mergeInto(Document document, Book book) {
+        for (Element row : document.select("table.table-striped tr")) {
+            Element header = row.selectFirst("th");
+            Element value = row.selectFirst("td");
+            if (header == null || value == null) {
+                continue;
+            }
+            String name = header.text().trim();
+            if (name.equals("UPC")) {
+                book.setUpc(value.text().trim());
+            } else if (name.equals("Availability")) {
+                int stockCount = Availability.parseStockCount(value.text());
+                if (stockCount >= 0) {
+                    book.setStockCount(stockCount);
+                }
+            }
+        }
+
+        // Home > Books > Category > Title
+        Elements crumbs = document.select("ul.breadcrumb li");
+        if (crumbs.size() >= 2) {
+            Element category = crumbs.get(crumbs.size() - 2).selectFirst("a");
+            if (category != null) {
+                book.setCategory(category.text().trim());
+            }
+        }
+
+        Element description = document.selectFirst("#product_description + p");
+        if (description != null) {
+            book.setDescription(description.text().trim());
+        }
+    }
+}
@@ -1,171 +1,455 @@
 package com.somas.scraper.ecommerce_scraper;
 
-import org.openqa.selenium.By;
-import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.WebElement;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.chrome.ChromeOptions;
-import org.openqa.selenium.support.ui.WebDriverWait;
-import org.openqa.selenium.support.ui.ExpectedConditions;
-import java.time.Duration;
+import org.openqa.selenium.WebDriverException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Extracts book data from books.toscrape.com using Selenium WebDriver
+ * Extracts book data from a catalogue using a pluggable extraction engine.
+ * The site profile decides the page URLs and how each page is parsed;
+ * by default it is books.toscrape.com.
  */
 public class BookExtractor {
-    private WebDriver driver;
-    private WebDriverWait wait;
-    private static final String BASE_URL = "https://books.toscrape.com/";
-    
+    private final ExtractionEngine engine;
+    private final SiteProfile profile;
+    private final String baseUrl;
+    private HostRateLimiter rateLimiter;
+    private RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+    public static final String DEFAULT_BASE_URL = "https://books.toscrape.com/";
+
+    // One request per second per host, matching the old fixed delay between pages
+    private static final double DEFAULT_REQUESTS_PER_SECOND = 1.0;
+    private static final int DEFAULT_BURST = 1;
+
+    // Responses slower than this make the concurrent crawl back off
+    private static final long CONGESTION_LATENCY_MILLIS = 5000;
+
+    /**
+     * Creates an extractor using the browserless Jsoup engine
+     */
     public BookExtractor() {
-        setupDriver();
+        this(EngineType.JSOUP);
     }
-    
+
     /**
-     * Sets up the Chrome WebDriver with options
+     * Creates an extractor using the given engine type
+     * @param engineType engine to create
      */
-    private void setupDriver() {
-        ChromeOptions options = new ChromeOptions();
-        options.addArguments("--headless"); // Run in headless mode
-        options.addArguments("--no-sandbox");
-        options.addArguments("--disable-dev-shm-usage");
-        options.addArguments("--disable-gpu");
-        options.addArguments("--window-size=1920,1080");
-        
-        driver = new ChromeDriver(options);
-        wait = new WebDriverWait(driver, Duration.ofSeconds(10));
+    public BookExtractor(EngineType engineType) {
+        this(engineType.create());
     }
-    
+
+    /**
+     * Creates an extractor around an existing engine
+     * @param engine engine used to load and parse pages
+     */
+    public BookExtractor(ExtractionEngine engine) {
+        this(engine, DEFAULT_BASE_URL);
+    }
+
+    /**
+     * Creates an extractor for a catalogue hosted at another base URL,
+     * e.g. a mirror or a local synthetic catalogue
+     * @param engine engine used to load and parse pages
+     * @param baseUrl catalogue root such as "http://localhost:8080/"
+     */
+    public BookExtractor(ExtractionEngine engine, String baseUrl) {
+        this(engine, SiteProfile.booksToScrape(baseUrl),
+            new HostRateLimiter(DEFAULT_REQUESTS_PER_SECOND, DEFAULT_BURST));
+    }
+
+    /**
+     * Creates an extractor for a configured site, limited to the profile's request rate
+     * @param engine engine used to load and parse pages, possibly shared with other sites
+     * @param profile site layout and crawl budget
+     */
+    public BookExtractor(ExtractionEngine engine, SiteProfile profile) {
+        this(engine, profile, new HostRateLimiter(profile.getRequestsPerSecond(), profile.getBurst()));
+    }
+
+    private BookExtractor(ExtractionEngine engine, SiteProfile profile, HostRateLimiter rateLimiter) {
+        this.engine = engine;
+        this.profile = profile;
+        this.baseUrl = profile.getBaseUrl();
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Replaces the per-host politeness limiter applied before every page request
+     * @param rateLimiter limiter to use
+     */
+    public void setRateLimiter(HostRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Replaces the retry policy applied to every page load
+     * @param retryPolicy policy to use, RetryPolicy.NONE to fail on the first error
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
     /**
      * Extracts books from all pages of the website
      * @return List of Book objects
      */
     public List<Book> extractAllBooks() {
         List<Book> allBooks = new ArrayList<>();
+        extractAllBooks(allBooks::add);
+        return allBooks;
+    }
+
+    /**
+     * Extracts books from all pages, pushing each page's books to the sink as
+     * soon as the page is parsed. The sink is flushed after every page but not closed.
+     * @param sink consumer of extracted books
+     * @return number of books extracted
+     */
+    public int extractAllBooks(BookSink sink) {
+        return extractAllBooks(sink, null);
+    }
+
+    /**
+     * Resumable variant of extractAllBooks(BookSink). Pages already committed
+     * to the journal are skipped, and every page is committed after its books
+     * were pushed to the sink and flushed.
+     * @param sink consumer of extracted books
+     * @param journal progress log of the job, or null for a one-off crawl
+     * @return number of books extracted by this run
+     */
+    public int extractAllBooks(BookSink sink, CrawlJournal journal) {
+        int totalBooks = 0;
         int currentPage = 1;
-        
-        System.out.println("Starting book extraction from: " + BASE_URL);
-        
+        int knownTotalPages = PageResult.UNKNOWN_PAGE_COUNT;
+
+        System.out.println("Starting book extraction from: " + baseUrl);
+        if (journal != null && journal.getCompletedPageCount() > 0) {
+            System.out.println("Resuming job " + journal.getJobId() + ": "
+                + journal.getCompletedPageCount() + " pages already completed");
+        }
+
         while (true) {
-            String pageUrl = currentPage == 1 ? BASE_URL : BASE_URL + "catalogue/page-" + currentPage + ".html";
-            
+            CrawlJournal.PageRecord completed = journal == null ? null : journal.getCompletedPage(currentPage);
+            if (completed != null) {
+                if (!completed.hasNextPage()) {
+                    System.out.println("Reached last page: " + currentPage);
+                    break;
+                }
+                knownTotalPages = Math.max(knownTotalPages, completed.getTotalPages());
+                currentPage++;
+                continue;
+            }
+
+            String pageUrl = getPageUrl(currentPage);
+
             try {
-                driver.get(pageUrl);
-                
-                // Wait for books to load
-                wait.until(ExpectedConditions.presenceOfElementLocated(By.cssSelector("article.product_pod")));
-                
-                List<Book> pageBooks = extractBooksFromCurrentPage();
-                
+                PageResult result = fetchPage(pageUrl, null);
+                List<Book> pageBooks = result.getBooks();
+                knownTotalPages = Math.max(knownTotalPages, result.getTotalPages());
+
                 if (pageBooks.isEmpty()) {
                     System.out.println("No more books found. Stopping at page " + (currentPage - 1));
                     break;
                 }
-                
-                allBooks.addAll(pageBooks);
+
+                totalBooks += emit(pageBooks, sink);
+                if (journal != null) {
+                    journal.commitPage(currentPage, result);
+                }
                 System.out.println("Extracted " + pageBooks.size() + " books from page " + currentPage);
-                
+
                 // Check if there's a next page
-                if (!hasNextPage()) {
+                if (!result.hasNextPage()) {
                     System.out.println("Reached last page: " + currentPage);
                     break;
                 }
-                
+
                 currentPage++;
-                
-                // Add a small delay to be respectful to the server
-                Thread.sleep(1000);
-                
+
             } catch (Exception e) {
+                if (isEndOfCatalogue(e, currentPage)) {
+                    System.out.println("Page " + currentPage + " does not exist. Stopping at page " + (currentPage - 1));
+                    break;
+                }
                 System.err.println("Error processing page " + currentPage + ": " + e.getMessage());
+                ScraperMetrics.get().recordFailedPage();
+                if (e instanceof InterruptedException || e instanceof InterruptedIOException) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                // A failed page is not the end of the catalogue; skip it if the pager says more follow
+                if (currentPage < knownTotalPages) {
+                    System.err.println("Skipping page " + currentPage + " of " + knownTotalPages);
+                    currentPage++;
+                    continue;
+                }
+                System.err.println("Stopping: page count unknown after failure on page " + currentPage);
                 break;
             }
         }
-        
-        System.out.println("Total books extracted: " + allBooks.size());
+
+        System.out.println("Total books extracted: " + totalBooks);
+        return totalBooks;
+    }
+
+    /**
+     * Extracts books from all pages, fetching up to maxInFlight pages at a time.
+     * The page count is read from the first page's pager; if the pager does not
+     * report one, this falls back to the sequential crawl. Requests are paced by
+     * the per-host rate limiter and results are returned in page order.
+     * @param maxInFlight maximum number of concurrent page fetches
+     * @return List of Book objects in page order
+     */
+    public List<Book> extractAllBooksConcurrently(int maxInFlight) {
+        List<Book> allBooks = new ArrayList<>();
+        extractAllBooksConcurrently(maxInFlight, allBooks::add);
         return allBooks;
     }
-    
+
+    /**
+     * Concurrent variant of extractAllBooks(BookSink). Pages are pushed to the
+     * sink in page order; at most maxInFlight pages are fetched or waiting to
+     * be consumed at any time, so a slow sink throttles fetching.
+     * @param maxInFlight maximum number of concurrent page fetches
+     * @param sink consumer of extracted books
+     * @return number of books extracted
+     */
+    public int extractAllBooksConcurrently(int maxInFlight, BookSink sink) {
+        return extractAllBooksConcurrently(maxInFlight, sink, null);
+    }
+
     /**
-     * Extracts books from the current page
-     * @return List of books on current page
+     * Resumable variant of extractAllBooksConcurrently(int, BookSink). Pages
+     * already committed to the journal are not fetched again; the rest are
+     * committed in page order as they are pushed to the sink.
+     * @param maxInFlight maximum number of concurrent page fetches
+     * @param sink consumer of extracted books
+     * @param journal progress log of the job, or null for a one-off crawl
+     * @return number of books extracted by this run
      */
-    private List<Book> extractBooksFromCurrentPage() {
-        List<Book> books = new ArrayList<>();
-        
+    public int extractAllBooksConcurrently(int maxInFlight, BookSink sink, CrawlJournal journal) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        if (!engine.isThreadSafe() && maxInFlight > 1) {
+            System.out.println("Engine does not support concurrent fetches, using 1 page in flight");
+            maxInFlight = 1;
+        }
+
+        System.out.println("Starting concurrent book extraction from: " + baseUrl);
+
+        int totalBooks = 0;
+        int totalPages;
+        CrawlJournal.PageRecord completedFirstPage = journal == null ? null : journal.getCompletedPage(1);
+        if (completedFirstPage != null) {
+            totalPages = completedFirstPage.getTotalPages();
+            System.out.println("Resuming job " + journal.getJobId() + ": "
+                + journal.getCompletedPageCount() + " of " + totalPages + " pages already completed");
+        } else {
+            PageResult firstPage;
+            try {
+                firstPage = fetchPage(getPageUrl(1), null);
+            } catch (Exception e) {
+                System.err.println("Error processing page 1: " + e.getMessage());
+                ScraperMetrics.get().recordFailedPage();
+                return 0;
+            }
+
+            totalPages = firstPage.getTotalPages();
+            if (totalPages == PageResult.UNKNOWN_PAGE_COUNT) {
+                System.out.println("Page count unknown, falling back to sequential extraction");
+                return extractAllBooks(sink, journal);
+            }
+
+            totalBooks += emit(firstPage.getBooks(), sink);
+            if (journal != null) {
+                journal.commitPage(1, firstPage);
+            }
+            System.out.println("Extracted " + firstPage.getBooks().size() + " books from page 1 of " + totalPages);
+        }
+
+        List<Integer> pendingPages = new ArrayList<>();
+        for (int page = 2; page <= totalPages; page++) {
+            if (journal == null || !journal.isCompleted(page)) {
+                pendingPages.add(page);
+            }
+        }
+
+        // Start at half the budget and let the limiter find the rate the site sustains
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(
+            Math.max(1, maxInFlight / 2), 1, maxInFlight, CONGESTION_LATENCY_MILLIS);
+        ExecutorService executor = Executors.newFixedThreadPool(maxInFlight);
         try {
-            List<WebElement> bookElements = driver.findElements(By.cssSelector("article.product_pod"));
-            
-            for (WebElement bookElement : bookElements) {
+            Deque<Future<PageResult>> window = new ArrayDeque<>();
+            int nextToSubmit = 0;
+            int nextToEmit = 0;
+
+            while (nextToEmit < pendingPages.size()) {
+                while (window.size() < maxInFlight && nextToSubmit < pendingPages.size()) {
+                    String pageUrl = getPageUrl(pendingPages.get(nextToSubmit++));
+                    window.addLast(executor.submit(() -> fetchPage(pageUrl, limiter)));
+                }
+
+                int page = pendingPages.get(nextToEmit++);
                 try {
-                    // Extract title
-                    WebElement titleElement = bookElement.findElement(By.cssSelector("h3 a"));
-                    String title = titleElement.getAttribute("title");
-                    
-                    // Extract price
-                    WebElement priceElement = bookElement.findElement(By.cssSelector("p.price_color"));
-                    String price = priceElement.getText();
-                    
-                    // Extract availability
-                    WebElement availabilityElement = bookElement.findElement(By.cssSelector("p.instock.availability"));
-                    String availability = availabilityElement.getText().trim();
-                    
-                    Book book = new Book(title, price, availability);
-                    books.add(book);
-                    
-                } catch (Exception e) {
-                    System.err.println("Error extracting book data: " + e.getMessage());
+                    PageResult result = window.removeFirst().get();
+                    List<Book> pageBooks = result.getBooks();
+                    totalBooks += emit(pageBooks, sink);
+                    if (journal != null) {
+                        journal.commitPage(page, result);
+                    }
+                    System.out.println("Extracted " + pageBooks.size() + " books from page " + page);
+                } catch (ExecutionException e) {
+                    System.err.println("Error processing page " + page + ": " + e.getCause().getMessage());
+                    ScraperMetrics.get().recordFailedPage();
                 }
             }
-            
-        } catch (Exception e) {
-            System.err.println("Error finding book elements: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Concurrent extraction interrupted");
+        } finally {
+            executor.shutdownNow();
         }
-        
-        return books;
+
+        System.out.println("Total books extracted: " + totalBooks + " (final concurrency limit "
+            + limiter.getLimit() + " of " + maxInFlight + ")");
+        return totalBooks;
     }
-    
+
     /**
-     * Checks if there's a next page available
-     * @return true if next page exists, false otherwise
+     * Pushes one page of books to the sink and flushes it
+     * @return number of books pushed
      */
-    private boolean hasNextPage() {
-        try {
-            List<WebElement> nextButtons = driver.findElements(By.cssSelector("li.next a"));
-            return !nextButtons.isEmpty();
-        } catch (Exception e) {
-            return false;
+    private int emit(List<Book> pageBooks, BookSink sink) {
+        for (Book book : pageBooks) {
+            sink.accept(book);
         }
+        sink.flush();
+        return pageBooks.size();
     }
-    
+
     /**
-     * Closes the WebDriver
+     * Loads a single catalogue page, including its pagination info
+     * @param pageNumber 1-based page number
+     * @return extracted page
+     * @throws Exception if the page could not be loaded
      */
-    public void close() {
-        if (driver != null) {
-            driver.quit();
-            System.out.println("WebDriver closed successfully");
+    public PageResult extractPage(int pageNumber) throws Exception {
+        return fetchPage(getPageUrl(pageNumber), null);
+    }
+
+    /**
+     * Loads a page through the engine, retrying failures according to the
+     * retry policy. Every attempt waits for the host's rate limiter and, in a
+     * concurrent crawl, for a slot from the adaptive concurrency limiter,
+     * which is told whether the attempt signalled an overloaded site.
+     * @param pageUrl page to load
+     * @param limiter concurrency limiter of the crawl, or null
+     * @return extracted page
+     * @throws Exception the last failure once retries are exhausted or the failure is final
+     */
+    private PageResult fetchPage(String pageUrl, AimdConcurrencyLimiter limiter) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            AimdConcurrencyLimiter.Permit permit = limiter == null ? null : limiter.acquire();
+            try {
+                rateLimiter.acquire(pageUrl);
+                if (permit != null) {
+                    // Our own token-bucket wait says nothing about how loaded the site is
+                    permit.restartClock();
+                }
+                PageResult result = engine.extractPage(pageUrl, profile);
+                if (permit != null) {
+                    limiter.onSuccess(permit);
+                }
+                ScraperMetrics.get().recordPageExtracted();
+                return result;
+            } catch (Exception e) {
+                if (permit != null) {
+                    if (isOverload(e)) {
+                        limiter.onCongestion(permit, e.getMessage());
+                    } else {
+                        limiter.onIgnore(permit);
+                    }
+                }
+                if (!retryPolicy.shouldRetry(e, attempt)) {
+                    throw e;
+                }
+                long delay = retryPolicy.delayMillis(e, attempt);
+                System.err.println("Attempt " + attempt + " of " + retryPolicy.getMaxAttempts() + " failed for "
+                    + pageUrl + ": " + e.getMessage() + ", retrying in " + delay + " ms");
+                ScraperMetrics.get().recordRetry();
+                TimeUnit.MILLISECONDS.sleep(delay);
+            }
         }
     }
-    
+
+    /**
+     * Throttling, server errors and timeouts, plus browser errors such as a
+     * crashed tab or a page load timeout, mean the site or the browser is
+     * overloaded; bugs such as a parser NullPointerException do not
+     */
+    private static boolean isOverload(Exception e) {
+        if (e instanceof PageFetchException) {
+            return ((PageFetchException) e).isOverload();
+        }
+        return e instanceof WebDriverException;
+    }
+
+    /**
+     * A missing page after the first one means the catalogue has ended,
+     * whereas any other failure is an error
+     */
+    private static boolean isEndOfCatalogue(Exception e, int pageNumber) {
+        return pageNumber > 1 && e instanceof PageFetchException && ((PageFetchException) e).isNotFound();
+    }
+
+    /**
+     * Builds the catalogue URL for a page number
+     * @param pageNumber 1-based page number
+     * @return absolute page URL
+     */
+    private String getPageUrl(int pageNumber) {
+        return profile.getPageUrl(pageNumber);
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public SiteProfile getSiteProfile() {
+        return profile;
+    }
+
+    /**
+     * Closes the underlying extraction engine
+     */
+    public void close() {
+        engine.close();
+    }
+
     /**
      * Extracts books from a specific page number
      * @param pageNumber the page number to scrape
      * @return List of books from the specified page
      */
     public List<Book> extractBooksFromPage(int pageNumber) {
-        String pageUrl = pageNumber == 1 ? BASE_URL : BASE_URL + "catalogue/page-" + pageNumber + ".html";
-        
+        String pageUrl = getPageUrl(pageNumber);
+
         try {
-            driver.get(pageUrl);
-            wait.until(ExpectedConditions.presenceOfElementLocated(By.cssSelector("article.product_pod")));
-            
-            return extractBooksFromCurrentPage();
-            
+            return fetchPage(pageUrl, null).getBooks();
+
         } catch (Exception e) {
             System.err.println("Error extracting books from page " + pageNumber + ": " + e.getMessage());
+            ScraperMetrics.get().recordFailedPage();
             return new ArrayList<>();
         }
     }
@@ -0,0 +1,66 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses catalogue HTML with Jsoup using a site profile's compiled
+ * selectors and field rules, including its pager pattern; by default the
+ * books.toscrape.com layout
+ */
+public class BookPageParser {
+    private final SiteProfile profile;
+
+    public BookPageParser() {
+        this(SiteProfile.BOOKS_TO_SCRAPE);
+    }
+
+    /**
+     * @param profile site whose selectors and field rules are applied
+     */
+    public BookPageParser(SiteProfile profile) {
+        this.profile = profile;
+    }
+
+    /**
+     * Parses raw catalogue HTML
+     * @param html page body
+     * @param pageUrl URL the page was loaded from, used to resolve relative links
+     * @return books and pagination info found on the page
+     */
+    public PageResult parse(String html, String pageUrl) {
+        return parse(Jsoup.parse(html, pageUrl));
+    }
+
+    /**
+     * Parses an already built Jsoup document
+     * @param document catalogue page document
+     * @return books and pagination info found on the page
+     */
+    public PageResult parse(Document document) {
+        List<Book> books = new ArrayList<>();
+
+        for (Element bookElement : document.select(profile.getProductEvaluator())) {
+            try {
+                Book book = profile.parseProduct(bookElement);
+                if (book == null) {
+                    System.err.println("Error extracting book data: missing field in " + profile.getProductSelector());
+                    ScraperMetrics.get().recordFailedElement();
+                    continue;
+                }
+                books.add(book);
+
+            } catch (Exception e) {
+                System.err.println("Error extracting book data: " + e.getMessage());
+                ScraperMetrics.get().recordFailedElement();
+            }
+        }
+
+        boolean hasNextPage = document.selectFirst(profile.getNextEvaluator()) != null;
+        int totalPages = profile.extractTotalPages(document);
+        return new PageResult(books, hasNextPage, totalPages);
+    }
+}
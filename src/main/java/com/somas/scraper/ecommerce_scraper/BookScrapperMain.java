@@ -1,24 +1,71 @@
 package com.somas.scraper.ecommerce_scraper;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 /**
  * Main application class for the Books to Scrape web scraper
  */
 public class BookScrapperMain {
+    // Upper bound; the crawl adapts its concurrency below this to what the site sustains
+    private static final int CONCURRENT_PAGES = 8;
+    private static final double REQUESTS_PER_SECOND = 2.0;
+    private static final int REQUEST_BURST = 4;
+    private static final int WRITE_QUEUE_CAPACITY = 1000;
+    private static final String PAGE_CACHE_DIR = ".page-cache";
+    private static final long PAGE_CACHE_MAX_BYTES = 256L * 1024 * 1024;
+    private static final String SNAPSHOT_FILE = "books_snapshot.csv";
+    private static final int UNCHANGED_PAGES_BEFORE_STOP = 3;
+    private static final int DETAIL_PAGES_IN_FLIGHT = 8;
+    private static final String JOURNAL_DIR = ".crawl-jobs";
+    private static final int JOURNAL_FSYNC_EVERY_PAGES = 5;
+    // Set -Dscraper.metrics.port=9464 to expose live metrics while scraping
+    private static final String METRICS_PORT_PROPERTY = "scraper.metrics.port";
+    private static final String RUN_LOCK_FILE = ".scraper.lock";
+    private static final String ARCHIVE_DIR = "archive";
+    private static final String HISTORY_DIR = "history";
+    private static final String IMAGES_DIR = "images";
+    private static final int IMAGE_DOWNLOADS_IN_FLIGHT = 4;
+    // Covers get their own budget on top of the pages', half the page rate
+    private static final double IMAGE_REQUESTS_PER_SECOND = 1.0;
+    private static final int IMAGE_REQUEST_BURST = 2;
+    private static final int SAMPLE_BOOKS = 3;
+    private static final Duration SHUTDOWN_GRACE = Duration.ofSeconds(30);
     
+    /**
+     * Starts the interactive menu, or a batch run or daemon when arguments are given
+     */
     public static void main(String[] args) {
+        if (args.length > 0) {
+            System.exit(runBatch(args));
+        }
+        
         System.out.println("=== Books to Scrape Web Scraper ===");
         System.out.println("Starting scraping process...\n");
         
         BookExtractor extractor = null;
+        PageCache pageCache = null;
+        MetricsServer metricsServer = startMetricsServer();
         Scanner scanner = new Scanner(System.in);
         
         try {
             // Initialize the extractor
-            extractor = new BookExtractor();
+            // Cached pages are always revalidated, so unchanged pages cost a 304
+            pageCache = new PageCache(Paths.get(PAGE_CACHE_DIR), PAGE_CACHE_MAX_BYTES, Duration.ZERO);
+            extractor = new BookExtractor(new JsoupExtractionEngine(pageCache));
             
             // Show menu options
             showMenu();
@@ -27,7 +74,7 @@ public class BookScrapperMain {
             
             switch (choice) {
                 case 1:
-                    scrapeAllPages(extractor);
+                    scrapeAllPages(extractor, OutputFormat.BOTH, false);
                     break;
                 case 2:
                     scrapeSpecificPage(extractor, scanner);
@@ -35,9 +82,21 @@ public class BookScrapperMain {
                 case 3:
                     scrapeFirstNPages(extractor, scanner);
                     break;
+                case 4:
+                    scrapeAllPagesConcurrently(extractor, CONCURRENT_PAGES, OutputFormat.BOTH, false);
+                    break;
+                case 5:
+                    scrapeChangesOnly(extractor);
+                    break;
+                case 6:
+                    scrapeAllPagesWithDetails(extractor, pageCache, CONCURRENT_PAGES, OutputFormat.BOTH, false);
+                    break;
+                case 7:
+                    runResumableJob(extractor, scanner);
+                    break;
                 default:
                     System.out.println("Invalid choice. Scraping all pages by default.");
-                    scrapeAllPages(extractor);
+                    scrapeAllPages(extractor, OutputFormat.BOTH, false);
             }
             
         } catch (Exception e) {
@@ -49,10 +108,206 @@ public class BookScrapperMain {
                 extractor.close();
             }
             scanner.close();
+            ScraperMetrics.get().printReport();
+            if (metricsServer != null) {
+                metricsServer.close();
+            }
             System.out.println("\nScraping process completed!");
         }
     }
     
+    /**
+     * Runs one scrape, or a daemon with --schedule, as described by the flags
+     * @param args command-line flags
+     * @return process exit code: 0 on success, 1 on failure, 2 on bad usage,
+     *         3 if another scrape holds the run lock
+     */
+    private static int runBatch(String[] args) {
+        CliOptions options;
+        ScrapeMode mode;
+        OutputFormat format;
+        EngineType engineType;
+        int concurrency;
+        int[] pageRange;
+        CronSchedule schedule;
+        try {
+            options = new CliOptions(args, "mode", "pages", "format", "concurrency", "engine",
+                "base-url", "job-id", "schedule", "metrics-port", "images", "help");
+            if (options.has("help")) {
+                printUsage();
+                return 0;
+            }
+            mode = options.getEnum("mode", ScrapeMode.class, ScrapeMode.ALL);
+            format = options.getEnum("format", OutputFormat.class, OutputFormat.BOTH);
+            engineType = options.getEnum("engine", EngineType.class, EngineType.JSOUP);
+            concurrency = options.getInt("concurrency", CONCURRENT_PAGES);
+            if (concurrency < 1) {
+                throw new IllegalArgumentException("--concurrency must be at least 1");
+            }
+            pageRange = parsePageRange(options.get("pages", "1"));
+            if (mode == ScrapeMode.JOB && !options.has("job-id")) {
+                throw new IllegalArgumentException("--mode job requires --job-id");
+            }
+            schedule = options.has("schedule") ? new CronSchedule(options.get("schedule", "")) : null;
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            printUsage();
+            return 2;
+        }
+        
+        Integer metricsPort = options.has("metrics-port")
+            ? Integer.valueOf(options.getInt("metrics-port", 0)) : Integer.getInteger(METRICS_PORT_PROPERTY);
+        MetricsServer metricsServer = startMetricsServer(metricsPort);
+        BookExtractor extractor = null;
+        CountDownLatch finished = new CountDownLatch(1);
+        try {
+            PageCache pageCache = new PageCache(Paths.get(PAGE_CACHE_DIR), PAGE_CACHE_MAX_BYTES, Duration.ZERO);
+            ExtractionEngine engine = engineType == EngineType.JSOUP
+                ? new JsoupExtractionEngine(pageCache) : engineType.create();
+            BookExtractor batchExtractor = new BookExtractor(engine,
+                options.get("base-url", BookExtractor.DEFAULT_BASE_URL));
+            extractor = batchExtractor;
+            String jobId = options.get("job-id", null);
+            boolean images = options.has("images");
+            
+            BooleanSupplier job = () -> {
+                long failedBefore = ScraperMetrics.get().getFailedPages();
+                boolean extracted;
+                switch (mode) {
+                    case CONCURRENT:
+                        extracted = scrapeAllPagesConcurrently(batchExtractor, concurrency, format, images);
+                        break;
+                    case PAGES:
+                        extracted = scrapePageRange(batchExtractor, pageRange[0], pageRange[1], format, images);
+                        break;
+                    case CHANGES:
+                        scrapeChangesOnly(batchExtractor);
+                        extracted = true;
+                        break;
+                    case DETAILS:
+                        extracted = scrapeAllPagesWithDetails(batchExtractor, pageCache, concurrency, format, images);
+                        break;
+                    case JOB:
+                        extracted = runJob(batchExtractor, jobId, concurrency);
+                        break;
+                    case ALL:
+                    default:
+                        extracted = scrapeAllPages(batchExtractor, format, images);
+                }
+                // Pages that failed after every retry leave gaps in the output; report them as a failed run
+                long failedPages = ScraperMetrics.get().getFailedPages() - failedBefore;
+                if (failedPages > 0) {
+                    System.err.println(failedPages + " pages could not be extracted");
+                    return false;
+                }
+                return extracted;
+            };
+            
+            if (schedule != null) {
+                // The engine and JIT state stay warm between scheduled runs
+                ScrapeDaemon daemon = new ScrapeDaemon(schedule, () -> {
+                    if (!job.getAsBoolean()) {
+                        System.err.println("Scheduled scrape failed");
+                    }
+                }, Paths.get(RUN_LOCK_FILE));
+                // On SIGTERM the JVM halts once the hooks return, so the hook waits for
+                // the main thread to close the engine, or closes it itself; a browser
+                // engine would otherwise leave Chrome and chromedriver running
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    daemon.stop();
+                    try {
+                        if (!finished.await(SHUTDOWN_GRACE.toMillis(), TimeUnit.MILLISECONDS)) {
+                            System.err.println("Scrape still running at shutdown; closing the engine");
+                            batchExtractor.close();
+                        }
+                    } catch (InterruptedException e) {
+                        batchExtractor.close();
+                    }
+                }, "scraper-shutdown"));
+                daemon.run();
+                return 0;
+            }
+            
+            try (RunLock lock = RunLock.tryAcquire(Paths.get(RUN_LOCK_FILE))) {
+                if (lock == null) {
+                    System.err.println("Another scrape is already running; exiting");
+                    return 3;
+                }
+                return job.getAsBoolean() ? 0 : 1;
+            }
+            
+        } catch (Exception e) {
+            System.err.println("An error occurred during scraping: " + e.getMessage());
+            e.printStackTrace();
+            return 1;
+        } finally {
+            if (extractor != null) {
+                extractor.close();
+            }
+            ScraperMetrics.get().printReport();
+            if (metricsServer != null) {
+                metricsServer.close();
+            }
+            finished.countDown();
+        }
+    }
+    
+    /**
+     * Parses "N" as pages 1 to N and "A-B" as pages A to B
+     */
+    private static int[] parsePageRange(String text) {
+        try {
+            int dash = text.indexOf('-');
+            int first = dash < 0 ? 1 : Integer.parseInt(text.substring(0, dash).trim());
+            int last = Integer.parseInt(text.substring(dash + 1).trim());
+            if (first < 1 || last < first) {
+                throw new IllegalArgumentException("Invalid page range: " + text);
+            }
+            return new int[]{first, last};
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid page range: " + text);
+        }
+    }
+    
+    private static void printUsage() {
+        System.out.println("Usage: BookScrapperMain [options]   (no options starts the interactive menu)");
+        System.out.println("  --mode all|concurrent|pages|changes|details|job   scrape to run (default all)");
+        System.out.println("  --pages N | A-B              pages for --mode pages (default 1)");
+        System.out.println("  --format csv|binary|both|archive   output files (default both); archive writes");
+        System.out.println("                               rotating gzip segments to " + ARCHIVE_DIR + "/");
+        System.out.println("  --concurrency N              max pages in flight (default " + CONCURRENT_PAGES + ")");
+        System.out.println("  --engine jsoup|selenium      extraction engine (default jsoup)");
+        System.out.println("  --base-url URL               catalogue root (default " + BookExtractor.DEFAULT_BASE_URL + ")");
+        System.out.println("  --job-id ID                  job to start or resume for --mode job");
+        System.out.println("  --schedule \"CRON\"            stay running and scrape on a 5-field cron schedule");
+        System.out.println("  --metrics-port N             serve metrics on 127.0.0.1:N");
+        System.out.println("  --images                     also download cover images to " + IMAGES_DIR + "/");
+    }
+    
+    /**
+     * Starts the metrics endpoint if a port was configured
+     * @return running server, or null if disabled or the port is unavailable
+     */
+    private static MetricsServer startMetricsServer() {
+        return startMetricsServer(Integer.getInteger(METRICS_PORT_PROPERTY));
+    }
+    
+    /**
+     * @param port port to bind, or null to disable the endpoint
+     * @return running server, or null if disabled or the port is unavailable
+     */
+    private static MetricsServer startMetricsServer(Integer port) {
+        if (port == null) {
+            return null;
+        }
+        try {
+            return new MetricsServer(port);
+        } catch (IOException e) {
+            System.err.println("Could not start metrics endpoint on port " + port + ": " + e.getMessage());
+            return null;
+        }
+    }
+    
     /**
      * Displays the menu options to the user
      */
@@ -61,7 +316,11 @@ public class BookScrapperMain {
         System.out.println("1. Scrape all pages");
         System.out.println("2. Scrape specific page");
         System.out.println("3. Scrape first N pages");
-        System.out.print("Enter your choice (1-3): ");
+        System.out.println("4. Scrape all pages concurrently");
+        System.out.println("5. Scrape changes since last snapshot");
+        System.out.println("6. Scrape all pages with product details");
+        System.out.println("7. Start or resume a checkpointed job");
+        System.out.print("Enter your choice (1-7): ");
     }
     
     /**
@@ -79,25 +338,242 @@ public class BookScrapperMain {
     }
     
     /**
-     * Scrapes all pages and exports to CSV
+     * Scrapes all pages and exports them in the given format
+     * @return false if no books were extracted
      */
-    private static void scrapeAllPages(BookExtractor extractor) {
+    private static boolean scrapeAllPages(BookExtractor extractor, OutputFormat format, boolean images) {
         System.out.println("Scraping all pages...");
         
         long startTime = System.currentTimeMillis();
-        List<Book> books = extractor.extractAllBooks();
-        long endTime = System.currentTimeMillis();
+        ScrapingStatistics.Accumulator stats = new ScrapingStatistics.Accumulator(SAMPLE_BOOKS);
+        BookSink imageStage = openImageStage(images);
+        try {
+            Map<String, Integer> files = streamToOutputs(BookSink.tee(stats, openPriceHistoryRun(startTime)),
+                format, imageStage, sink -> extractor.extractAllBooks(sink));
+            long endTime = System.currentTimeMillis();
+        
+            if (stats.getStatistics().getTotalBooks() == 0) {
+                System.out.println("No books were extracted!");
+                return false;
+            }
+        
+            // Print statistics
+            printScrapingStatistics(stats, startTime, endTime);
         
+            // List the CSV files written during extraction
+            printExportedFiles(files);
+            return true;
+        } finally {
+            imageStage.close();
+        }
+    }
+    
+    /**
+     * Scrapes all pages with several pages in flight and exports them in the given format
+     * @return false if no books were extracted
+     */
+    private static boolean scrapeAllPagesConcurrently(BookExtractor extractor, int concurrency, OutputFormat format,
+                                                   boolean images) {
+        System.out.println("Scraping all pages concurrently (" + concurrency + " max in flight, "
+            + REQUESTS_PER_SECOND + " requests/sec)...");
+
+        extractor.setRateLimiter(new HostRateLimiter(REQUESTS_PER_SECOND, REQUEST_BURST));
+
+        long startTime = System.currentTimeMillis();
+        ScrapingStatistics.Accumulator stats = new ScrapingStatistics.Accumulator(SAMPLE_BOOKS);
+        BookSink imageStage = openImageStage(images);
+        try {
+            Map<String, Integer> files = streamToOutputs(BookSink.tee(stats, openPriceHistoryRun(startTime)),
+                format, imageStage, sink -> extractor.extractAllBooksConcurrently(concurrency, sink));
+            long endTime = System.currentTimeMillis();
+
+            if (stats.getStatistics().getTotalBooks() == 0) {
+                System.out.println("No books were extracted!");
+                return false;
+            }
+
+            // Print statistics
+            printScrapingStatistics(stats, startTime, endTime);
+
+            // List the CSV files written during extraction
+            printExportedFiles(files);
+            return true;
+        } finally {
+            imageStage.close();
+        }
+    }
+
+    /**
+     * Scrapes all listing pages concurrently and crawls every product's detail
+     * page for UPC, stock count, category and description
+     * @return false if no books were extracted
+     */
+    private static boolean scrapeAllPagesWithDetails(BookExtractor extractor, PageCache pageCache,
+                                                  int concurrency, OutputFormat format, boolean images) {
+        System.out.println("Scraping all pages with product details (" + DETAIL_PAGES_IN_FLIGHT
+            + " detail pages in flight, " + REQUESTS_PER_SECOND + " requests/sec)...");
+
+        // Listing and detail requests share one politeness budget per host
+        HostRateLimiter rateLimiter = new HostRateLimiter(REQUESTS_PER_SECOND, REQUEST_BURST);
+        extractor.setRateLimiter(rateLimiter);
+        HttpPageFetcher fetcher = new HttpPageFetcher(pageCache);
+
+        long startTime = System.currentTimeMillis();
+        ScrapingStatistics.Accumulator stats = new ScrapingStatistics.Accumulator(SAMPLE_BOOKS);
+        // Detail rows are written as each book leaves the crawler
+        BookSink collector = BookSink.tee(stats, openPriceHistoryRun(startTime),
+            new BookCSVWriter().openDetailsSink(null));
+        BookSink imageStage = openImageStage(images);
+        try {
+            Map<String, Integer> files = streamToOutputs(collector, format, imageStage, sink -> {
+                try (DetailCrawler details = new DetailCrawler(fetcher, rateLimiter, DETAIL_PAGES_IN_FLIGHT, sink)) {
+                    extractor.extractAllBooksConcurrently(concurrency, details);
+                }
+            });
+            long endTime = System.currentTimeMillis();
+
+            if (stats.getStatistics().getTotalBooks() == 0) {
+                System.out.println("No books were extracted!");
+                return false;
+            }
+
+            printScrapingStatistics(stats, startTime, endTime);
+            printExportedFiles(files);
+            return true;
+        } finally {
+            imageStage.close();
+        }
+    }
+
+    /**
+     * Runs a crawl job whose progress is journaled, so running it again with
+     * the same job ID continues after the last completed page and keeps
+     * appending to the same CSV file
+     */
+    private static void runResumableJob(BookExtractor extractor, Scanner scanner) {
+        System.out.print("Enter job ID: ");
+        String jobId = scanner.nextLine().trim();
+        if (jobId.isEmpty()) {
+            jobId = "job_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss"));
+        }
+        runJob(extractor, jobId, CONCURRENT_PAGES);
+    }
+
+    /**
+     * Starts or resumes the journaled crawl job with the given ID
+     * @return false if no books were extracted
+     */
+    private static boolean runJob(BookExtractor extractor, String jobId, int concurrency) {
+        String filename = "books_" + jobId + ".csv";
+
+        extractor.setRateLimiter(new HostRateLimiter(REQUESTS_PER_SECOND, REQUEST_BURST));
+
+        long startTime = System.currentTimeMillis();
+        int extracted;
+        List<Book> books;
+        try (CrawlJournal journal = CrawlJournal.open(Paths.get(JOURNAL_DIR), jobId, JOURNAL_FSYNC_EVERY_PAGES)) {
+            File output = new File(filename);
+            long outputBytes = output.exists() ? output.length() : 0;
+            if (outputBytes < journal.getCommittedOutputBytes()) {
+                // Rows lost in a crash are crawled again rather than leaving the job unresumable
+                int dropped = journal.rollbackToOutput(outputBytes);
+                System.err.println(filename + " is shorter than its checkpoint; re-crawling " + dropped + " pages");
+            }
+            // Written synchronously, so the file size recorded at each commit covers the page's rows
+            CsvBookSink csv = new CsvBookSink(filename, journal.getScrapedAt(), journal.getCommittedOutputBytes());
+            journal.setOutputPosition(csv::getBytesWritten);
+            journal.setOutputSync(csv::sync);
+            try (csv) {
+                extracted = extractor.extractAllBooksConcurrently(concurrency, csv, journal);
+            }
+            books = journal.getCommittedBooks();
+        }
+        long endTime = System.currentTimeMillis();
+
+        System.out.println("Job " + jobId + ": " + extracted + " books extracted in this run, "
+            + books.size() + " in total");
         if (books.isEmpty()) {
-            System.out.println("No books were extracted!");
-            return;
+            return false;
         }
-        
-        // Print statistics
         printScrapingStatistics(books, startTime, endTime);
+        return true;
+    }
+
+    /**
+     * Runs an extraction while a background writer streams every book to the
+     * main CSV file, its partition files and a binary snapshot in one pass,
+     * so rows reach disk while later pages are still loading
+     * @param collector sink fed on the extraction thread, e.g. statistics and price history
+     * @param format which of the CSV files, the binary snapshot and the archive to write
+     * @param imageStage cover image stage fed alongside; left open, so the caller can time
+     *                   the scrape before waiting for the downloads
+     * @param extraction extraction to run against the sink
+     * @return rows written per CSV file
+     */
+    private static Map<String, Integer> streamToOutputs(BookSink collector, OutputFormat format, BookSink imageStage,
+                                                        Consumer<BookSink> extraction) {
+        List<BookSink> writers = new ArrayList<>();
+        FanOutCsvWriter fanOut = null;
+        if (format.includesCsv()) {
+            fanOut = new BookCSVWriter().openExportFanOut();
+            writers.add(fanOut);
+        }
+        if (format.includesBinary()) {
+            String snapshotFile = "books_data_"
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss")) + ".bks";
+            writers.add(new BinarySnapshotWriter(snapshotFile, System.currentTimeMillis()));
+            System.out.println("Writing binary snapshot to: " + snapshotFile);
+        }
+        if (format.includesArchive()) {
+            writers.add(new BookCSVWriter().openArchive(Paths.get(ARCHIVE_DIR)));
+        }
         
-        // Export to CSV
-        exportToCSV(books);
+        BookSink writer = BookSink.tee(writers.toArray(new BookSink[0]));
+        // Image downloads only queue URLs here; the caller waits for them once the scrape is timed
+        BookSink queueImages = new BookSink() {
+            @Override
+            public void accept(Book book) {
+                imageStage.accept(book);
+            }
+
+            @Override
+            public void flush() {
+                imageStage.flush();
+            }
+        };
+        try (BookSink sink = BookSink.tee(collector, new QueuedBookSink(writer, WRITE_QUEUE_CAPACITY), queueImages)) {
+            extraction.accept(sink);
+        }
+        return fanOut == null ? new LinkedHashMap<>() : fanOut.getRowCounts();
+    }
+
+    /**
+     * Opens the cover image stage with its own per-host request budget, so
+     * cover downloads never take request slots from the page crawl
+     * @param images whether cover images are downloaded
+     * @return downloader, or a sink that ignores books
+     */
+    private static BookSink openImageStage(boolean images) {
+        return images ? new CoverImageDownloader(Paths.get(IMAGES_DIR), IMAGE_DOWNLOADS_IN_FLIGHT)
+            .rateLimiter(new HostRateLimiter(IMAGE_REQUESTS_PER_SECOND, IMAGE_REQUEST_BURST)) : book -> { };
+    }
+
+    /**
+     * Compares the catalogue with the previous snapshot and writes only the changes
+     */
+    private static void scrapeChangesOnly(BookExtractor extractor) {
+        System.out.println("Scraping changes since last snapshot...");
+
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss"));
+        String changesFile = "books_changes_" + timestamp + ".csv";
+
+        long startTime = System.currentTimeMillis();
+        int changes = new DeltaScraper(extractor, UNCHANGED_PAGES_BEFORE_STOP).run(SNAPSHOT_FILE, changesFile);
+        long endTime = System.currentTimeMillis();
+
+        System.out.println("\n=== Delta Results ===");
+        System.out.println("Changes found: " + changes);
+        System.out.println("Time taken: " + String.format("%.2f", (endTime - startTime) / 1000.0) + " seconds");
     }
     
     /**
@@ -116,24 +592,7 @@ public class BookScrapperMain {
             scanner.nextLine(); // Clear invalid input
         }
         
-        System.out.println("Scraping page " + pageNumber + "...");
-        
-        long startTime = System.currentTimeMillis();
-        List<Book> books = extractor.extractBooksFromPage(pageNumber);
-        long endTime = System.currentTimeMillis();
-        
-        if (books.isEmpty()) {
-            System.out.println("No books found on page " + pageNumber);
-            return;
-        }
-        
-        // Print statistics
-        printScrapingStatistics(books, startTime, endTime);
-        
-        // Export to CSV
-        String filename = "books_page_" + pageNumber + ".csv";
-        BookCSVWriter writer = new BookCSVWriter();
-        writer.writeBooksToCSV(books, filename);
+        scrapePageRange(extractor, pageNumber, pageNumber, OutputFormat.CSV, false);
     }
     
     /**
@@ -152,60 +611,172 @@ public class BookScrapperMain {
             scanner.nextLine(); // Clear invalid input
         }
         
-        System.out.println("Scraping first " + numPages + " pages...");
+        scrapePageRange(extractor, 1, numPages, OutputFormat.CSV, false);
+    }
+    
+    /**
+     * Scrapes the pages from first to last and exports them once done
+     * @return false if no books were extracted
+     */
+    private static boolean scrapePageRange(BookExtractor extractor, int first, int last, OutputFormat format,
+                                        boolean images) {
+        String filename;
+        if (first == last) {
+            System.out.println("Scraping page " + first + "...");
+            filename = "books_page_" + first + ".csv";
+        } else if (first == 1) {
+            System.out.println("Scraping first " + last + " pages...");
+            filename = "books_first_" + last + "_pages.csv";
+        } else {
+            System.out.println("Scraping pages " + first + " to " + last + "...");
+            filename = "books_pages_" + first + "-" + last + ".csv";
+        }
         
         long startTime = System.currentTimeMillis();
         List<Book> allBooks = new ArrayList<>();
-        
-        for (int i = 1; i <= numPages; i++) {
-            List<Book> pageBooks = extractor.extractBooksFromPage(i);
-            if (pageBooks.isEmpty()) {
-                System.out.println("No more books found at page " + i + ". Stopping.");
-                break;
+        BookSink imageStage = openImageStage(images);
+        try {
+            for (int i = first; i <= last; i++) {
+                PageResult page;
+                try {
+                    page = extractor.extractPage(i);
+                } catch (PageFetchException e) {
+                    if (e.isNotFound()) {
+                        System.out.println("Page " + i + " does not exist. Stopping.");
+                        break;
+                    }
+                    // A page that failed after retries is a gap, not the end of the catalogue
+                    System.err.println("Skipping page " + i + ": " + e.getMessage());
+                    ScraperMetrics.get().recordFailedPage();
+                    continue;
+                } catch (Exception e) {
+                    System.err.println("Skipping page " + i + ": " + e.getMessage());
+                    ScraperMetrics.get().recordFailedPage();
+                    continue;
+                }
+                if (page.getBooks().isEmpty()) {
+                    System.out.println("No more books found at page " + i + ". Stopping.");
+                    break;
+                }
+                allBooks.addAll(page.getBooks());
+                // Covers download while the next pages load
+                page.getBooks().forEach(imageStage::accept);
+                if (!page.hasNextPage()) {
+                    System.out.println("Reached last page: " + i);
+                    break;
+                }
             }
-            allBooks.addAll(pageBooks);
-        }
         
-        long endTime = System.currentTimeMillis();
+            long endTime = System.currentTimeMillis();
         
-        if (allBooks.isEmpty()) {
-            System.out.println("No books were extracted!");
-            return;
-        }
+            if (allBooks.isEmpty()) {
+                System.out.println("No books were extracted!");
+                return false;
+            }
         
-        // Print statistics
-        printScrapingStatistics(allBooks, startTime, endTime);
+            // Print statistics
+            printScrapingStatistics(allBooks, startTime, endTime);
+            recordPriceHistory(allBooks, startTime);
         
-        // Export to CSV
-        String filename = "books_first_" + numPages + "_pages.csv";
-        BookCSVWriter writer = new BookCSVWriter();
-        writer.writeBooksToCSV(allBooks, filename);
+            // Export to CSV and/or a binary snapshot next to it
+            if (format.includesCsv()) {
+                new BookCSVWriter().writeBooksToCSV(allBooks, filename);
+            }
+            if (format.includesBinary()) {
+                String snapshotFile = filename.replace(".csv", ".bks");
+                try (BinarySnapshotWriter snapshot = new BinarySnapshotWriter(snapshotFile, System.currentTimeMillis())) {
+                    allBooks.forEach(snapshot::accept);
+                }
+            }
+            if (format.includesArchive()) {
+                try (RotatingCsvSink archive = new BookCSVWriter().openArchive(Paths.get(ARCHIVE_DIR))) {
+                    allBooks.forEach(archive::accept);
+                }
+            }
+            return true;
+        } finally {
+            imageStage.close();
+        }
     }
+
     
     /**
-     * Exports books to CSV with different options
+     * Appends the scraped prices to the price history store
      */
-    private static void exportToCSV(List<Book> books) {
-        BookCSVWriter writer = new BookCSVWriter();
-        
+    private static void recordPriceHistory(List<Book> books, long scrapedAtMillis) {
         try {
-            // Write all books to one CSV
-            String mainFile = writer.writeBooksToCSV(books);
-            
-            // Also create separate files for in-stock vs out-of-stock
-            String[] categoryFiles = writer.writeBooksToCSVByAvailability(books);
-            
-            System.out.println("\nCSV files created:");
-            System.out.println("- Main file: " + mainFile);
-            if (categoryFiles[0] != null) {
-                System.out.println("- In stock books: " + categoryFiles[0]);
+            int recorded = PriceHistoryStore.record(Paths.get(HISTORY_DIR), books, scrapedAtMillis);
+            System.out.println("Recorded " + recorded + " prices in " + HISTORY_DIR + "/");
+        } catch (RuntimeException e) {
+            // The exports are already written; a history failure should not fail the scrape
+            System.err.println("Price history not updated: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Opens a price history run fed as books stream past. The observations
+     * are buffered and the store is only locked while the run is recorded,
+     * when the sink is closed, so queries and imports are not held up by
+     * the crawl. A history failure is reported but never fails the scrape.
+     * @return sink recording into the price history store
+     */
+    private static BookSink openPriceHistoryRun(long scrapedAtMillis) {
+        PriceHistoryStore.PendingRun run = PriceHistoryStore.bufferRun(Paths.get(HISTORY_DIR), scrapedAtMillis);
+        return new BookSink() {
+            private boolean closed;
+
+            @Override
+            public void accept(Book book) {
+                run.accept(book);
             }
-            if (categoryFiles[1] != null) {
-                System.out.println("- Out of stock books: " + categoryFiles[1]);
+
+            @Override
+            public synchronized void close() {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    int recorded = run.commit();
+                    System.out.println("Recorded " + recorded + " prices in " + HISTORY_DIR + "/");
+                } catch (RuntimeException e) {
+                    System.err.println("Price history not updated: " + e.getMessage());
+                }
             }
-            
-        } catch (Exception e) {
-            System.err.println("Error creating CSV files: " + e.getMessage());
+        };
+    }
+
+    /**
+     * Lists the CSV files created by the export
+     */
+    private static void printExportedFiles(Map<String, Integer> files) {
+        System.out.println("\nCSV files created:");
+        for (Map.Entry<String, Integer> file : files.entrySet()) {
+            System.out.println("- " + file.getKey() + " (" + file.getValue() + " books)");
+        }
+    }
+    
+    /**
+     * Prints statistics gathered while the books streamed past
+     */
+    private static void printScrapingStatistics(ScrapingStatistics.Accumulator accumulator, long startTime,
+                                                long endTime) {
+        ScrapingStatistics stats = accumulator.getStatistics();
+        double durationSeconds = (endTime - startTime) / 1000.0;
+        
+        System.out.println("\n=== Scraping Results ===");
+        System.out.println("Total books scraped: " + stats.getTotalBooks());
+        System.out.println("Time taken: " + String.format("%.2f", durationSeconds) + " seconds");
+        System.out.println("Books per second: " + String.format("%.2f", stats.getTotalBooks() / durationSeconds));
+        System.out.println("In stock: " + stats.getInStockCount());
+        System.out.println("Out of stock: " + stats.getOutOfStockCount());
+        System.out.println("Average price: £" + String.format("%.2f", stats.getAveragePrice()));
+        
+        System.out.println("\n=== Sample Books ===");
+        accumulator.getSamples().forEach(System.out::println);
+        
+        if (stats.getTotalBooks() > SAMPLE_BOOKS) {
+            System.out.println("... and " + (stats.getTotalBooks() - SAMPLE_BOOKS) + " more books");
         }
     }
     
@@ -215,39 +786,23 @@ public class BookScrapperMain {
     private static void printScrapingStatistics(List<Book> books, long startTime, long endTime) {
         double durationSeconds = (endTime - startTime) / 1000.0;
         
-        // Count availability status
-        long inStockCount = books.stream()
-            .filter(book -> book.getAvailability().toLowerCase().contains("in stock"))
-            .count();
-        long outOfStockCount = books.size() - inStockCount;
-        
-        // Price analysis
-        double averagePrice = books.stream()
-            .mapToDouble(book -> {
-                try {
-                    String priceStr = book.getPrice().replaceAll("[£$]", "");
-                    return Double.parseDouble(priceStr);
-                } catch (NumberFormatException e) {
-                    return 0.0;
-                }
-            })
-            .average()
-            .orElse(0.0);
+        // Count availability status and average price in one pass over the pre-parsed fields
+        ScrapingStatistics stats = ScrapingStatistics.of(books);
         
         System.out.println("\n=== Scraping Results ===");
         System.out.println("Total books scraped: " + books.size());
         System.out.println("Time taken: " + String.format("%.2f", durationSeconds) + " seconds");
         System.out.println("Books per second: " + String.format("%.2f", books.size() / durationSeconds));
-        System.out.println("In stock: " + inStockCount);
-        System.out.println("Out of stock: " + outOfStockCount);
-        System.out.println("Average price: £" + String.format("%.2f", averagePrice));
+        System.out.println("In stock: " + stats.getInStockCount());
+        System.out.println("Out of stock: " + stats.getOutOfStockCount());
+        System.out.println("Average price: £" + String.format("%.2f", stats.getAveragePrice()));
         
         // Show some sample books
         System.out.println("\n=== Sample Books ===");
-        books.stream().limit(3).forEach(System.out::println);
+        books.stream().limit(SAMPLE_BOOKS).forEach(System.out::println);
         
-        if (books.size() > 3) {
-            System.out.println("... and " + (books.size() - 3) + " more books");
+        if (books.size() > SAMPLE_BOOKS) {
+            System.out.println("... and " + (books.size() - SAMPLE_BOOKS) + " more books");
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.somas.scraper.ecommerce_scraper;
+
+/**
+ * Push-based consumer of extracted books. The extractor calls accept for
+ * every book as soon as its page is parsed and flush after each page.
+ */
+@FunctionalInterface
+public interface BookSink extends AutoCloseable {
+
+    /**
+     * Consumes one book
+     * @param book extracted book
+     */
+    void accept(Book book);
+
+    /**
+     * Called at page boundaries so buffered output can reach its destination
+     */
+    default void flush() {
+    }
+
+    /**
+     * Flushes and releases any resources held by the sink
+     */
+    @Override
+    default void close() {
+    }
+
+    /**
+     * Combines several sinks into one that forwards every call to each of them in order
+     * @param sinks sinks to forward to
+     * @return combined sink
+     */
+    static BookSink tee(BookSink... sinks) {
+        return new BookSink() {
+            @Override
+            public void accept(Book book) {
+                for (BookSink sink : sinks) {
+                    sink.accept(book);
+                }
+            }
+
+            @Override
+            public void flush() {
+                for (BookSink sink : sinks) {
+                    sink.flush();
+                }
+            }
+
+            @Override
+            public void close() {
+                for (BookSink sink : sinks) {
+                    sink.close();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,67 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chrome configurations for the Selenium engine
+ */
+public enum BrowserProfile {
+    /** Full rendering: every subresource is loaded and driver.get waits for the load event */
+    FULL,
+    /**
+     * Text-only browsing: images, stylesheets and fonts are never requested
+     * and driver.get returns at DOMContentLoaded, leaving the engine's own
+     * selector wait to decide when the listing is ready
+     */
+    LEAN;
+
+    // Blocked through DevTools, since Chrome prefs can only switch off images
+    private static final List<String> BLOCKED_URL_PATTERNS = Arrays.asList(
+        "*.css", "*.woff", "*.woff2", "*.ttf", "*.otf", "*.eot",
+        "*.jpg", "*.jpeg", "*.png", "*.gif", "*.webp", "*.svg", "*.ico");
+
+    /**
+     * Starts a headless Chrome configured for this profile
+     * @return new browser session
+     */
+    public WebDriver createDriver() {
+        ChromeOptions options = new ChromeOptions();
+        options.addArguments("--headless"); // Run in headless mode
+        options.addArguments("--no-sandbox");
+        options.addArguments("--disable-dev-shm-usage");
+        options.addArguments("--disable-gpu");
+
+        if (this == FULL) {
+            options.addArguments("--window-size=1920,1080");
+            return new ChromeDriver(options);
+        }
+
+        options.setPageLoadStrategy(PageLoadStrategy.EAGER);
+        options.addArguments("--window-size=1280,800");
+        options.addArguments("--blink-settings=imagesEnabled=false");
+        options.addArguments("--disable-extensions");
+        Map<String, Object> prefs = new HashMap<>();
+        prefs.put("profile.managed_default_content_settings.images", 2);
+        prefs.put("profile.default_content_setting_values.images", 2);
+        options.setExperimentalOption("prefs", prefs);
+
+        ChromeDriver driver = new ChromeDriver(options);
+        try {
+            driver.executeCdpCommand("Network.enable", Collections.emptyMap());
+            driver.executeCdpCommand("Network.setBlockedURLs",
+                Collections.singletonMap("urls", BLOCKED_URL_PATTERNS));
+        } catch (RuntimeException e) {
+            // Still usable with images off; only stylesheets and fonts will load
+            System.err.println("Could not block stylesheets and fonts: " + e.getMessage());
+        }
+        return driver;
+    }
+}
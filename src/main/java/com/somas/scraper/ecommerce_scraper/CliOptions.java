@@ -0,0 +1,79 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parses "--name value", "--name=value" and bare "--flag" arguments,
+ * rejecting names that are not in the allowed set
+ */
+public class CliOptions {
+    private final Map<String, String> values = new LinkedHashMap<>();
+
+    /**
+     * @param args command-line arguments
+     * @param allowed option names without the leading dashes
+     * @throws IllegalArgumentException on unknown options or stray values
+     */
+    public CliOptions(String[] args, String... allowed) {
+        Set<String> names = new HashSet<>(Arrays.asList(allowed));
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            String name = arg.substring(2);
+            String value = null;
+            int equals = name.indexOf('=');
+            if (equals >= 0) {
+                value = name.substring(equals + 1);
+                name = name.substring(0, equals);
+            } else if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                value = args[++i];
+            }
+            if (!names.contains(name)) {
+                throw new IllegalArgumentException("Unknown option: --" + name);
+            }
+            values.put(name, value == null ? "true" : value);
+        }
+    }
+
+    public boolean has(String name) {
+        return values.containsKey(name);
+    }
+
+    public String get(String name, String defaultValue) {
+        return values.getOrDefault(name, defaultValue);
+    }
+
+    public int getInt(String name, int defaultValue) {
+        String value = values.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " expects a number: " + value);
+        }
+    }
+
+    /**
+     * Reads an enum option case-insensitively, e.g. "--engine selenium"
+     */
+    public <E extends Enum<E>> E getEnum(String name, Class<E> type, E defaultValue) {
+        String value = values.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid value for --" + name + ": " + value
+                + " (expected one of " + Arrays.toString(type.getEnumConstants()).toLowerCase() + ")");
+        }
+    }
+}
@@ -0,0 +1,593 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Optional image stage: downloads the cover thumbnail of every accepted book
+ * into a content-addressed store, "&lt;dir&gt;/ab/abcdef...&lt;sha256&gt;.jpg".
+ *
+ * accept only queues the URL, so the extraction thread never waits for an
+ * image. Downloads run on the HTTP client's asynchronous API with at most
+ * maxInFlight requests outstanding; response bodies are hashed and written
+ * to a temporary file through a FileChannel buffer by buffer, then renamed
+ * to their hash, so no image is held on the heap as a whole and a cover
+ * shared by several books or runs is stored once.
+ *
+ * index.tsv remembers the ETag, Last-Modified and hash of every URL. A URL
+ * seen in an earlier run is checked with a HEAD request and only downloaded
+ * again if its ETag changed, or its Last-Modified if the server sends no
+ * ETag; a URL whose server sends neither keeps its stored cover. If a known
+ * URL's new strong ETag matches a stored cover from the same host, it is
+ * linked to that cover without a download. A URL never seen before is
+ * fetched with a plain GET, as a HEAD would rarely save one; if its content
+ * is already stored, the download is dropped in favour of the stored cover.
+ *
+ * Every HEAD and GET takes a slot from the per-host rate limiter, if one is
+ * set. It should be the image stage's own limiter, so covers never take
+ * slots from the page crawl. Slots are reserved without blocking and the
+ * request is scheduled for when its slot comes up, so neither the
+ * extraction thread nor the HTTP client waits.
+ *
+ * Failed requests are retried per the retry policy, holding their slot while
+ * they wait so retries never exceed the concurrency bound.
+ */
+public class CoverImageDownloader implements BookSink {
+    private static final String INDEX_FILE = "index.tsv";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final Path directory;
+    private final int maxInFlight;
+    private final HttpClient client;
+    private final RetryPolicy retryPolicy;
+    private final BufferedWriter indexWriter;
+    private HostRateLimiter rateLimiter;
+    private final Map<String, StoredImage> imagesByUrl = new ConcurrentHashMap<>();
+    private final Map<String, StoredImage> imagesByEtag = new ConcurrentHashMap<>();
+    private final Set<String> queuedUrls = ConcurrentHashMap.newKeySet();
+    private final ConcurrentLinkedQueue<String> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong downloaded = new AtomicLong();
+    private final AtomicLong downloadedBytes = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * Opens the store, loading the index of covers downloaded by earlier runs
+     * @param directory image store, created if missing
+     * @param maxInFlight maximum concurrent image requests
+     */
+    public CoverImageDownloader(Path directory, int maxInFlight) {
+        this(directory, maxInFlight, RetryPolicy.DEFAULT);
+    }
+
+    /**
+     * @param directory image store, created if missing
+     * @param maxInFlight maximum concurrent image requests
+     * @param retryPolicy policy applied to every image request
+     */
+    public CoverImageDownloader(Path directory, int maxInFlight, RetryPolicy retryPolicy) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        this.directory = directory;
+        this.maxInFlight = maxInFlight;
+        this.retryPolicy = retryPolicy;
+        // Separate from the page fetcher's client so image connections never hold up page requests
+        this.client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+        try {
+            Files.createDirectories(directory);
+            loadIndex();
+            this.indexWriter = Files.newBufferedWriter(directory.resolve(INDEX_FILE), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Error opening image store: " + e.getMessage());
+            throw new RuntimeException("Failed to open image store", e);
+        }
+    }
+
+    /**
+     * Limits image requests per host; give the image stage a limiter of its
+     * own rather than the page crawl's, so covers do not slow the pages down
+     * @param rateLimiter limiter to take a slot from before every request, or null for none
+     * @return this downloader
+     */
+    public CoverImageDownloader rateLimiter(HostRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+        return this;
+    }
+
+    /**
+     * Reads index.tsv; later lines for a URL replace earlier ones. Lines
+     * written before Last-Modified was recorded have four fields.
+     */
+    private void loadIndex() throws IOException {
+        Path index = directory.resolve(INDEX_FILE);
+        if (!Files.exists(index)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(index, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length != 4 && fields.length != 5) {
+                    continue;
+                }
+                String lastModified = fields.length == 5 && !fields[4].isEmpty() ? fields[4] : null;
+                remember(new StoredImage(fields[0], fields[1].isEmpty() ? null : fields[1], lastModified,
+                    fields[2], fields[3]));
+            }
+        }
+    }
+
+    /**
+     * Queues the book's cover for download; returns immediately
+     */
+    @Override
+    public void accept(Book book) {
+        String url = book.getImageUrl();
+        if (url == null || url.isEmpty() || !queuedUrls.add(url)) {
+            return;
+        }
+        pending.add(url);
+        dispatch();
+    }
+
+    /**
+     * Starts queued downloads until maxInFlight are running. Called after every
+     * enqueue and every completion, so a slot freed by one is taken by the other.
+     */
+    private void dispatch() {
+        while (!pending.isEmpty()) {
+            int running = inFlight.get();
+            if (running >= maxInFlight) {
+                return;
+            }
+            if (!inFlight.compareAndSet(running, running + 1)) {
+                continue;
+            }
+            String url = pending.poll();
+            if (url == null) {
+                finished();
+                continue;
+            }
+            fetch(url, 1).whenComplete((ignored, error) -> {
+                if (error != null) {
+                    failed.incrementAndGet();
+                    System.err.println("Error downloading cover " + url + ": " + unwrap(error).getMessage());
+                }
+                finished();
+                dispatch();
+            });
+        }
+    }
+
+    private void finished() {
+        if (inFlight.decrementAndGet() == 0) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Runs one attempt and schedules the next after the policy's delay if it fails
+     */
+    private CompletableFuture<Void> fetch(String url, int attempt) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        CompletableFuture<Void> download;
+        try {
+            download = fetch(url);
+        } catch (RuntimeException e) {
+            download = CompletableFuture.failedFuture(e);
+        }
+        download.whenComplete((ignored, error) -> {
+            if (error == null) {
+                result.complete(null);
+                return;
+            }
+            Throwable cause = unwrap(error);
+            Exception failure = cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
+            if (!retryPolicy.shouldRetry(failure, attempt)) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            long delay = retryPolicy.delayMillis(failure, attempt);
+            System.err.println("Attempt " + attempt + " of " + retryPolicy.getMaxAttempts() + " failed for "
+                + url + ": " + cause.getMessage() + ", retrying in " + delay + " ms");
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() ->
+                fetch(url, attempt + 1).whenComplete((retried, retryError) -> {
+                    if (retryError == null) {
+                        result.complete(null);
+                    } else {
+                        result.completeExceptionally(unwrap(retryError));
+                    }
+                }));
+        });
+        return result;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * Checks a known URL with HEAD, then downloads it unless its validators
+     * identify a stored cover; a new URL is downloaded straight away
+     */
+    private CompletableFuture<Void> fetch(String url) {
+        URI uri = URI.create(url);
+        if (!imagesByUrl.containsKey(url)) {
+            return download(uri);
+        }
+        HttpRequest head = HttpRequest.newBuilder(uri)
+            .method("HEAD", HttpRequest.BodyPublishers.noBody())
+            .timeout(REQUEST_TIMEOUT)
+            .header("User-Agent", HttpPageFetcher.USER_AGENT)
+            .build();
+        return throttle(url)
+            .thenCompose(ready -> client.sendAsync(head, HttpResponse.BodyHandlers.discarding()))
+            .thenCompose(response -> {
+                boolean ok = response.statusCode() == 200;
+                String etag = ok ? response.headers().firstValue("ETag").orElse(null) : null;
+                String lastModified = ok ? response.headers().firstValue("Last-Modified").orElse(null) : null;
+                StoredImage known = findStored(uri, etag, lastModified);
+                if (known != null) {
+                    if (known.url.equals(url)) {
+                        unchanged.incrementAndGet();
+                    } else {
+                        duplicates.incrementAndGet();
+                        record(new StoredImage(url, etag, lastModified, known.hash, known.extension));
+                    }
+                    return CompletableFuture.completedFuture(null);
+                }
+                return download(uri);
+            });
+    }
+
+    /**
+     * @param etag ETag from the HEAD response of a known URL, or null
+     * @param lastModified Last-Modified from the HEAD response, or null
+     * @return stored cover the URL's validators refer to, or null if it has to be downloaded
+     */
+    private StoredImage findStored(URI uri, String etag, String lastModified) {
+        StoredImage image = imagesByUrl.get(uri.toString());
+        if (image != null && !isCurrent(image, etag, lastModified)) {
+            image = null;
+        }
+        if (image == null && etag != null && !etag.startsWith("W/")) {
+            // Weak validators only promise equivalence for the same URL
+            image = imagesByEtag.get(etagKey(uri.getHost(), etag));
+        }
+        return image != null && Files.exists(image.path(directory)) ? image : null;
+    }
+
+    /**
+     * Whether a URL's stored cover is still current: the ETag decides if both
+     * sides have one, then Last-Modified; without either the stored cover is kept
+     */
+    private static boolean isCurrent(StoredImage image, String etag, String lastModified) {
+        if (etag != null && image.etag != null) {
+            return etag.equals(image.etag);
+        }
+        if (lastModified != null && image.lastModified != null) {
+            return lastModified.equals(image.lastModified);
+        }
+        return true;
+    }
+
+    /**
+     * Reserves a request slot for the URL's host
+     * @return stage completing when the slot comes up, without blocking a thread until then
+     */
+    private CompletableFuture<Void> throttle(String url) {
+        long waitNanos = rateLimiter == null ? 0 : rateLimiter.reserve(url);
+        if (waitNanos <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> { },
+            CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * Streams the body into a temporary file, then moves it to its content hash
+     */
+    private CompletableFuture<Void> download(URI uri) {
+        Path temp = directory.resolve(".cover-" + UUID.randomUUID() + ".part");
+        HttpRequest get = HttpRequest.newBuilder(uri)
+            .timeout(REQUEST_TIMEOUT)
+            .header("User-Agent", HttpPageFetcher.USER_AGENT)
+            .GET()
+            .build();
+        return throttle(uri.toString())
+            .thenCompose(ready -> client.sendAsync(get, info -> info.statusCode() == 200
+                ? new HashingFileSubscriber(temp)
+                : HttpResponse.BodySubscribers.replacing((HashedFile) null)))
+            .thenAccept(response -> {
+                try {
+                    if (response.statusCode() != 200) {
+                        throw new PageFetchException(uri.toString(), response.statusCode(), -1);
+                    }
+                    HashedFile body = response.body();
+                    StoredImage image = new StoredImage(uri.toString(),
+                        response.headers().firstValue("ETag").orElse(null),
+                        response.headers().firstValue("Last-Modified").orElse(null), body.hash, extensionOf(uri));
+                    Path target = image.path(directory);
+                    if (Files.exists(target)) {
+                        duplicates.incrementAndGet();
+                    } else {
+                        Files.createDirectories(target.getParent());
+                        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                        downloaded.incrementAndGet();
+                        downloadedBytes.addAndGet(body.size);
+                    }
+                    record(image);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                } finally {
+                    deleteQuietly(temp);
+                }
+            })
+            .whenComplete((ignored, error) -> {
+                if (error != null) {
+                    deleteQuietly(temp);
+                }
+            });
+    }
+
+    private void record(StoredImage image) {
+        remember(image);
+        try {
+            synchronized (indexWriter) {
+                indexWriter.write(image.url + "\t" + (image.etag == null ? "" : image.etag) + "\t"
+                    + image.hash + "\t" + image.extension + "\t"
+                    + (image.lastModified == null ? "" : image.lastModified) + "\n");
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing image index: " + e.getMessage());
+            throw new RuntimeException("Failed to write image index", e);
+        }
+    }
+
+    private void remember(StoredImage image) {
+        imagesByUrl.put(image.url, image);
+        if (image.etag != null) {
+            imagesByEtag.put(etagKey(URI.create(image.url).getHost(), image.etag), image);
+        }
+    }
+
+    private static String etagKey(String host, String etag) {
+        return host + " " + etag;
+    }
+
+    /**
+     * @return lower-case file extension of the URL path, "img" if it has none
+     */
+    private static String extensionOf(URI uri) {
+        String path = uri.getPath() == null ? "" : uri.getPath();
+        int dot = path.lastIndexOf('.');
+        String extension = dot < 0 || dot < path.lastIndexOf('/') ? "" : path.substring(dot + 1).toLowerCase();
+        return extension.matches("[a-z0-9]{1,5}") ? extension : "img";
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Left-over .part files are ignored by the store
+        }
+    }
+
+    /**
+     * Persists the index lines written so far; downloads keep running
+     */
+    @Override
+    public void flush() {
+        try {
+            synchronized (indexWriter) {
+                indexWriter.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing image index: " + e.getMessage());
+            throw new RuntimeException("Failed to write image index", e);
+        }
+    }
+
+    /**
+     * Waits for every queued cover, then closes the index
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            while (inFlight.get() > 0 || !pending.isEmpty()) {
+                try {
+                    wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        try {
+            synchronized (indexWriter) {
+                indexWriter.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing image index: " + e.getMessage());
+            throw new RuntimeException("Failed to close image index", e);
+        }
+        System.out.println("Cover images in " + directory + ": " + downloaded.get() + " downloaded ("
+            + downloadedBytes.get() / 1024 + " KB), " + unchanged.get() + " unchanged, "
+            + duplicates.get() + " duplicates, " + failed.get() + " failed");
+    }
+
+    public long getDownloadedCount() {
+        return downloaded.get();
+    }
+
+    public long getUnchangedCount() {
+        return unchanged.get();
+    }
+
+    public long getDuplicateCount() {
+        return duplicates.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * One URL's entry in the store
+     */
+    private static class StoredImage {
+        final String url;
+        final String etag;
+        final String lastModified;
+        final String hash;
+        final String extension;
+
+        StoredImage(String url, String etag, String lastModified, String hash, String extension) {
+            this.url = url;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.hash = hash;
+            this.extension = extension;
+        }
+
+        Path path(Path directory) {
+            return directory.resolve(hash.substring(0, 2)).resolve(hash + "." + extension);
+        }
+    }
+
+    private static class HashedFile {
+        final String hash;
+        final long size;
+
+        HashedFile(String hash, long size) {
+            this.hash = hash;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Writes each body buffer to the file as it arrives, updating a SHA-256
+     * digest on the way, and requests the next buffer only once this one is on disk
+     */
+    private static class HashingFileSubscriber implements HttpResponse.BodySubscriber<HashedFile> {
+        private final Path file;
+        private final CompletableFuture<HashedFile> result = new CompletableFuture<>();
+        private final MessageDigest digest;
+        private FileChannel channel;
+        private Flow.Subscription subscription;
+        private long size;
+
+        HashingFileSubscriber(Path file) {
+            this.file = file;
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            try {
+                channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+            } catch (IOException e) {
+                subscription.cancel();
+                result.completeExceptionally(e);
+                return;
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            try {
+                for (ByteBuffer buffer : buffers) {
+                    digest.update(buffer.duplicate());
+                    size += buffer.remaining();
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+            } catch (IOException e) {
+                subscription.cancel();
+                fail(e);
+                return;
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            fail(error);
+        }
+
+        @Override
+        public void onComplete() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            result.complete(new HashedFile(hex.toString(), size));
+        }
+
+        private void fail(Throwable error) {
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                error.addSuppressed(e);
+            }
+            result.completeExceptionally(error);
+        }
+
+        @Override
+        public CompletionStage<HashedFile> getBody() {
+            return result;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Coordinator of a sharded crawl: splits each catalogue's page space into
+ * shards on a WorkQueue, and merges the per-shard outputs once every shard
+ * is done
+ */
+public class CrawlCoordinator {
+    private final WorkQueue queue;
+
+    public CrawlCoordinator(WorkQueue queue) {
+        this.queue = queue;
+    }
+
+    /**
+     * Reads each catalogue's page count from its first page and queues one
+     * shard per pagesPerShard pages. A catalogue whose pager reports no page
+     * count becomes a single shard running to the last page.
+     * @param engine engine used to probe the first pages
+     * @param baseUrls catalogue roots
+     * @param pagesPerShard pages in each shard
+     * @return number of shards queued
+     * @throws Exception if a catalogue cannot be probed or the queue written
+     */
+    public int plan(ExtractionEngine engine, List<String> baseUrls, int pagesPerShard) throws Exception {
+        if (pagesPerShard < 1) {
+            throw new IllegalArgumentException("pagesPerShard must be at least 1");
+        }
+        String scrapedAt = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+        int shards = 0;
+
+        for (int catalogue = 0; catalogue < baseUrls.size(); catalogue++) {
+            BookExtractor extractor = new BookExtractor(engine, baseUrls.get(catalogue));
+            String baseUrl = extractor.getBaseUrl();
+            int totalPages = extractor.extractPage(1).getTotalPages();
+
+            if (totalPages == PageResult.UNKNOWN_PAGE_COUNT) {
+                queue.add(new Shard(Shard.idOf(catalogue, 1), baseUrl, 1, Shard.UNTIL_LAST_PAGE, scrapedAt));
+                shards++;
+                System.out.println(baseUrl + ": page count unknown, queued as one shard");
+                continue;
+            }
+            for (int first = 1; first <= totalPages; first += pagesPerShard) {
+                int last = Math.min(totalPages, first + pagesPerShard - 1);
+                queue.add(new Shard(Shard.idOf(catalogue, first), baseUrl, first, last, scrapedAt));
+                shards++;
+            }
+            System.out.println(baseUrl + ": " + totalPages + " pages queued in shards of " + pagesPerShard);
+        }
+        return shards;
+    }
+
+    /**
+     * Concatenates the shard outputs in shard order into one CSV file with a
+     * single header. The merged file is written next to the target and
+     * renamed into place.
+     * @param mergedFile file to produce
+     * @return number of data rows written
+     * @throws IOException if a shard is unfinished or a file cannot be read or written
+     */
+    public long merge(Path mergedFile) throws IOException {
+        List<Shard> shards = queue.getShards();
+        long unfinished = 0;
+        long failed = 0;
+        for (Shard shard : shards) {
+            if (queue.isDone(shard)) {
+                continue;
+            }
+            if (queue.isFailed(shard)) {
+                failed++;
+            } else {
+                unfinished++;
+            }
+        }
+        if (failed > 0) {
+            throw new IOException(failed + " of " + shards.size() + " shards failed and must be retried before merging");
+        }
+        if (unfinished > 0) {
+            throw new IOException(unfinished + " of " + shards.size() + " shards are not finished");
+        }
+
+        Path tmp = mergedFile.resolveSibling(mergedFile.getFileName() + ".tmp");
+        long rows = 0;
+        boolean headerWritten = false;
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            for (Shard shard : shards) {
+                Path part = queue.getOutputFile(shard);
+                try (InputStream in = new BufferedInputStream(Files.newInputStream(part))) {
+                    // Shards share a header line; copy it once and stream the rows byte for byte
+                    if (skipLine(in, headerWritten ? null : out) < 0) {
+                        continue;
+                    }
+                    headerWritten = true;
+                    rows += copyCountingLines(in, out);
+                }
+            }
+        }
+        Files.move(tmp, mergedFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        System.out.println("Merged " + shards.size() + " shards (" + rows + " rows) into: " + mergedFile);
+        return rows;
+    }
+
+    /**
+     * Reads past the first line, copying it to out if given
+     * @return number of bytes read, or -1 if the stream was empty
+     */
+    private static int skipLine(InputStream in, OutputStream out) throws IOException {
+        int read = 0;
+        int b;
+        while ((b = in.read()) != -1) {
+            read++;
+            if (out != null) {
+                out.write(b);
+            }
+            if (b == '\n') {
+                return read;
+            }
+        }
+        return read == 0 ? -1 : read;
+    }
+
+    /**
+     * Copies the rest of the stream and counts its line feeds
+     */
+    private static long copyCountingLines(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long lines = 0;
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            for (int i = 0; i < n; i++) {
+                if (buffer[i] == '\n') {
+                    lines++;
+                }
+            }
+            out.write(buffer, 0, n);
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,36 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Set of URLs already scheduled in a crawl. Offering a URL a second time,
+ * from any thread, is rejected so each page is fetched once per run.
+ */
+public class CrawlFrontier {
+    private final Set<String> seen = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Claims a URL for crawling
+     * @param url absolute URL
+     * @return true if the URL has not been offered before
+     */
+    public boolean offer(String url) {
+        return seen.add(normalize(url));
+    }
+
+    /**
+     * @return number of distinct URLs offered so far
+     */
+    public int size() {
+        return seen.size();
+    }
+
+    /**
+     * Drops the fragment so "#reviews" links collapse onto the page itself
+     */
+    static String normalize(String url) {
+        int fragment = url.indexOf('#');
+        return fragment >= 0 ? url.substring(0, fragment) : url;
+    }
+}
@@ -0,0 +1,381 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Append-only progress log for a crawl job, so a crawl interrupted by an
+ * error, a crash or a preempted machine can be resumed where it stopped.
+ *
+ * Each completed page is written as its book records followed by a page
+ * commit line. Lines are UTF-8 and tab separated:
+ * <pre>
+ * J  jobId  scrapedAt
+ * B  title  price  availability  productUrl
+ * P  page  bookCount  hasNextPage  totalPages  outputBytes
+ * </pre>
+ * Books only count once their page's P line is present; on open, a torn
+ * tail after the last commit is truncated away. The log is fsync'd every
+ * fsyncEveryPages commits and on close, so a crash loses at most one batch,
+ * which is simply crawled again.
+ *
+ * outputBytes records the size of the job's output file after the page was
+ * flushed, so a resumed job can truncate rows written after the last commit
+ * and keep appending without duplicates. The output is synced before every
+ * fsync of the log, so a durable commit never points past durable output;
+ * if the output is still found shorter, e.g. after an unsynced batch was
+ * written back out of order, rollbackToOutput drops the pages it lost.
+ */
+public class CrawlJournal implements AutoCloseable {
+    private static final String SUFFIX = ".journal";
+
+    private final Path file;
+    private final String jobId;
+    private final String scrapedAt;
+    private final int fsyncEveryPages;
+    private final Map<Integer, PageRecord> completedPages = new HashMap<>();
+    private final List<Book> committedBooks = new ArrayList<>();
+    private final FileChannel channel;
+    private LongSupplier outputPosition = () -> -1;
+    private Runnable outputSync = () -> { };
+    private long committedOutputBytes = -1;
+    private int unsyncedPages;
+
+    private CrawlJournal(Path file, String jobId, int fsyncEveryPages) throws IOException {
+        this.file = file;
+        this.jobId = jobId;
+        this.fsyncEveryPages = Math.max(1, fsyncEveryPages);
+
+        long validLength = 0;
+        String existingScrapedAt = null;
+        if (Files.exists(file)) {
+            Replay replay = replay(file, Long.MAX_VALUE);
+            validLength = replay.validLength;
+            existingScrapedAt = replay.scrapedAt;
+        }
+
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        // Drop any half-written page left behind by a crash
+        channel.truncate(validLength);
+        channel.position(validLength);
+
+        if (existingScrapedAt != null) {
+            this.scrapedAt = existingScrapedAt;
+        } else {
+            this.scrapedAt = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+            write("J\t" + escape(jobId) + "\t" + scrapedAt + "\n");
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Opens the journal of a job, replaying any progress recorded by earlier runs
+     * @param dir directory holding journals
+     * @param jobId job identifier; the same ID resumes the same crawl
+     * @param fsyncEveryPages number of page commits between fsyncs
+     * @return open journal
+     */
+    public static CrawlJournal open(Path dir, String jobId, int fsyncEveryPages) {
+        if (jobId == null || !jobId.matches("[A-Za-z0-9._-]+")) {
+            throw new IllegalArgumentException("Job ID may only contain letters, digits, '.', '_' and '-': " + jobId);
+        }
+        try {
+            Files.createDirectories(dir);
+            return new CrawlJournal(dir.resolve(jobId + SUFFIX), jobId, fsyncEveryPages);
+        } catch (IOException e) {
+            System.err.println("Error opening crawl journal: " + e.getMessage());
+            throw new RuntimeException("Failed to open crawl journal", e);
+        }
+    }
+
+    /**
+     * Reads committed pages and books, returning the length of the valid prefix
+     * @param maxOutputBytes replay stops at the first commit recording a larger output
+     */
+    private Replay replay(Path file, long maxOutputBytes) throws IOException {
+        Replay replay = new Replay();
+        List<Book> pending = new ArrayList<>();
+        long position = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                long next = position + line.getBytes(StandardCharsets.UTF_8).length + 1;
+                String[] fields = line.split("\t", -1);
+                try {
+                    if (fields[0].equals("J") && fields.length >= 3) {
+                        replay.scrapedAt = fields[2];
+                        replay.validLength = next;
+                    } else if (fields[0].equals("B") && fields.length >= 5) {
+                        pending.add(new Book(unescape(fields[1]), unescape(fields[2]),
+                            unescape(fields[3]), unescape(fields[4])));
+                    } else if (fields[0].equals("P") && fields.length >= 6) {
+                        if (Long.parseLong(fields[5]) > maxOutputBytes) {
+                            break;
+                        }
+                        int page = Integer.parseInt(fields[1]);
+                        completedPages.put(page, new PageRecord(Integer.parseInt(fields[2]),
+                            Boolean.parseBoolean(fields[3]), Integer.parseInt(fields[4])));
+                        committedOutputBytes = Long.parseLong(fields[5]);
+                        committedBooks.addAll(pending);
+                        pending.clear();
+                        replay.validLength = next;
+                    } else {
+                        break;
+                    }
+                } catch (NumberFormatException e) {
+                    break;
+                }
+                position = next;
+            }
+        }
+        return replay;
+    }
+
+    /**
+     * Supplies the job output's size at each commit, normally CsvBookSink::getBytesWritten
+     * @param outputPosition size of the output after the page's rows were flushed
+     */
+    public void setOutputPosition(LongSupplier outputPosition) {
+        this.outputPosition = outputPosition;
+    }
+
+    /**
+     * Makes the job output durable; called before every fsync of the log,
+     * normally CsvBookSink::sync
+     * @param outputSync forces the output's flushed bytes to disk
+     */
+    public void setOutputSync(Runnable outputSync) {
+        this.outputSync = outputSync;
+    }
+
+    /**
+     * Forgets the commits that record more output than survived, so their
+     * pages are crawled again. Use when the output file is found shorter
+     * than getCommittedOutputBytes.
+     * @param outputBytes actual length of the output file
+     * @return number of pages dropped
+     */
+    public synchronized int rollbackToOutput(long outputBytes) {
+        if (committedOutputBytes <= outputBytes) {
+            return 0;
+        }
+        int pagesBefore = completedPages.size();
+        completedPages.clear();
+        committedBooks.clear();
+        committedOutputBytes = -1;
+        try {
+            Replay replay = replay(file, outputBytes);
+            channel.truncate(replay.validLength);
+            channel.position(replay.validLength);
+            channel.force(false);
+        } catch (IOException e) {
+            System.err.println("Error rolling back crawl journal: " + e.getMessage());
+            throw new RuntimeException("Failed to roll back crawl journal", e);
+        }
+        return pagesBefore - completedPages.size();
+    }
+
+    /**
+     * Records a page as completed. Call after its books were pushed and flushed to the output.
+     * @param page 1-based page number
+     * @param result extracted page
+     */
+    public synchronized void commitPage(int page, PageResult result) {
+        StringBuilder entry = new StringBuilder(256 * (result.getBooks().size() + 1));
+        for (Book book : result.getBooks()) {
+            entry.append("B\t").append(escape(book.getTitle()))
+                .append('\t').append(escape(book.getPrice()))
+                .append('\t').append(escape(book.getAvailability()))
+                .append('\t').append(escape(book.getProductUrl())).append('\n');
+        }
+        long outputBytes = outputPosition.getAsLong();
+        entry.append("P\t").append(page)
+            .append('\t').append(result.getBooks().size())
+            .append('\t').append(result.hasNextPage())
+            .append('\t').append(result.getTotalPages())
+            .append('\t').append(outputBytes).append('\n');
+
+        try {
+            write(entry.toString());
+            if (++unsyncedPages >= fsyncEveryPages) {
+                // The output first, so a durable commit never records bytes that may still be lost
+                outputSync.run();
+                channel.force(false);
+                unsyncedPages = 0;
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing crawl journal: " + e.getMessage());
+            throw new RuntimeException("Failed to write crawl journal", e);
+        }
+
+        completedPages.put(page, new PageRecord(result.getBooks().size(), result.hasNextPage(), result.getTotalPages()));
+        committedBooks.addAll(result.getBooks());
+        committedOutputBytes = outputBytes;
+    }
+
+    private void write(String text) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    public synchronized boolean isCompleted(int page) {
+        return completedPages.containsKey(page);
+    }
+
+    /**
+     * @param page 1-based page number
+     * @return recorded pagination state of a completed page, or null
+     */
+    public synchronized PageRecord getCompletedPage(int page) {
+        return completedPages.get(page);
+    }
+
+    public synchronized int getCompletedPageCount() {
+        return completedPages.size();
+    }
+
+    /**
+     * @return books of every committed page, from earlier runs and this one
+     */
+    public synchronized List<Book> getCommittedBooks() {
+        return Collections.unmodifiableList(new ArrayList<>(committedBooks));
+    }
+
+    /**
+     * @return output size at the last commit, or -1 if nothing was committed
+     */
+    public synchronized long getCommittedOutputBytes() {
+        return committedOutputBytes;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    /**
+     * @return Scraped_At value fixed when the job was first started
+     */
+    public String getScrapedAt() {
+        return scrapedAt;
+    }
+
+    /**
+     * Forces outstanding commits to disk and closes the log
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            outputSync.run();
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing crawl journal: " + e.getMessage());
+            throw new RuntimeException("Failed to close crawl journal", e);
+        }
+    }
+
+    /**
+     * Deletes the journal of a finished job
+     */
+    public void delete() {
+        close();
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Error deleting crawl journal: " + e.getMessage());
+        }
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                default:
+                    out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder out = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                out.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private static class Replay {
+        long validLength;
+        String scrapedAt;
+    }
+
+    /**
+     * Pagination state recorded for a completed page
+     */
+    public static class PageRecord {
+        private final int bookCount;
+        private final boolean hasNextPage;
+        private final int totalPages;
+
+        PageRecord(int bookCount, boolean hasNextPage, int totalPages) {
+            this.bookCount = bookCount;
+            this.hasNextPage = hasNextPage;
+            this.totalPages = totalPages;
+        }
+
+        public int getBookCount() {
+            return bookCount;
+        }
+
+        public boolean hasNextPage() {
+            return hasNextPage;
+        }
+
+        public int getTotalPages() {
+            return totalPages;
+        }
+    }
+}
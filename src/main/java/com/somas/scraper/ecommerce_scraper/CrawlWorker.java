@@ -0,0 +1,196 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Worker of a sharded crawl. Claims shards from a WorkQueue, extracts
+ * their pages through one shared engine and publishes each shard's CSV
+ * atomically before marking it done. The lease is renewed in the
+ * background; a shard that fails, or whose lease is lost, is not published.
+ * A failed shard is retried after a backoff from the worker's RetryPolicy
+ * and given up once the policy runs out of attempts or the error is final,
+ * e.g. a page that is not found.
+ */
+public class CrawlWorker {
+    /** Five attempts per shard, backing off up to ten minutes between them */
+    public static final RetryPolicy SHARD_RETRIES = new RetryPolicy(5, 30_000, 600_000);
+
+    private final WorkQueue queue;
+    private final ExtractionEngine engine;
+    private final HostRateLimiter rateLimiter;
+    private final String workerId;
+    private final Duration renewInterval;
+    private final Duration pollInterval;
+    private RetryPolicy retryPolicy = SHARD_RETRIES;
+
+    /**
+     * @param queue shared shard queue
+     * @param engine engine used for every shard; not closed by the worker
+     * @param rateLimiter per-host limiter applied to this worker's requests
+     * @param workerId identifier unique across nodes, e.g. host name plus process ID
+     * @param renewInterval how often leases are renewed, well below the lease duration
+     * @param pollInterval wait between claim attempts while other workers hold the remaining shards
+     */
+    public CrawlWorker(WorkQueue queue, ExtractionEngine engine, HostRateLimiter rateLimiter,
+                       String workerId, Duration renewInterval, Duration pollInterval) {
+        this.queue = queue;
+        this.engine = engine;
+        this.rateLimiter = rateLimiter;
+        this.workerId = workerId;
+        this.renewInterval = renewInterval;
+        this.pollInterval = pollInterval;
+    }
+
+    /**
+     * Replaces the policy deciding how often and how soon a failed shard is retried
+     * @param retryPolicy policy applied to whole shards; pages are still retried by the extractor
+     * @return this worker
+     */
+    public CrawlWorker retryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
+    /**
+     * Processes shards until every shard in the queue is done or given up
+     * @return number of shards this worker completed
+     * @throws IOException if the queue cannot be accessed
+     */
+    public int run() throws IOException {
+        ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lease-renewal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int completed = 0;
+        try {
+            System.out.println("Worker " + workerId + " started");
+            while (true) {
+                Shard shard = queue.claim(workerId);
+                if (shard == null) {
+                    if (queue.isFinished()) {
+                        break;
+                    }
+                    TimeUnit.MILLISECONDS.sleep(pollInterval.toMillis());
+                    continue;
+                }
+                if (process(shard, heartbeat)) {
+                    completed++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Worker " + workerId + " interrupted");
+        } finally {
+            heartbeat.shutdownNow();
+        }
+        System.out.println("Worker " + workerId + " finished, " + completed + " shards completed");
+        return completed;
+    }
+
+    /**
+     * Extracts one claimed shard and publishes its output
+     * @return true if the shard was completed by this worker
+     */
+    private boolean process(Shard shard, ScheduledExecutorService heartbeat) throws IOException {
+        System.out.println("Worker " + workerId + " claimed " + shard);
+        AtomicBoolean leaseLost = new AtomicBoolean();
+        ScheduledFuture<?> renewal = heartbeat.scheduleAtFixedRate(() -> {
+            try {
+                if (!queue.renew(shard, workerId)) {
+                    leaseLost.set(true);
+                }
+            } catch (IOException e) {
+                System.err.println("Error renewing lease on shard " + shard.getId() + ": " + e.getMessage());
+            }
+        }, renewInterval.toMillis(), renewInterval.toMillis(), TimeUnit.MILLISECONDS);
+
+        Path output = queue.getOutputFile(shard);
+        Path tmp = output.resolveSibling(output.getFileName() + "." + workerId + ".tmp");
+        try {
+            int books;
+            try (CsvBookSink csv = new CsvBookSink(tmp.toString(), shard.getScrapedAt())) {
+                books = extract(shard, csv, leaseLost);
+            }
+            if (leaseLost.get()) {
+                System.err.println("Lost lease on shard " + shard.getId() + ", discarding output");
+                Files.deleteIfExists(tmp);
+                return false;
+            }
+            Files.move(tmp, output, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            if (!queue.complete(shard, workerId)) {
+                System.err.println("Lost lease on shard " + shard.getId() + " before completing it");
+                return false;
+            }
+            System.out.println("Worker " + workerId + " completed shard " + shard.getId() + " (" + books + " books)");
+            return true;
+        } catch (InterruptedException | InterruptedIOException e) {
+            // Stopping the worker is not the shard's fault; let another worker take it straight away
+            Thread.currentThread().interrupt();
+            Files.deleteIfExists(tmp);
+            queue.release(shard, workerId);
+            return false;
+        } catch (Exception e) {
+            System.err.println("Error processing shard " + shard.getId() + ": " + e.getMessage());
+            Files.deleteIfExists(tmp);
+            int attempt = queue.getFailedAttempts(shard) + 1;
+            if (retryPolicy.shouldRetry(e, attempt)) {
+                long delay = retryPolicy.delayMillis(e, attempt);
+                System.err.println("Shard " + shard.getId() + " failed attempt " + attempt + ", retrying in "
+                    + delay + " ms");
+                queue.fail(shard, workerId, delay, false);
+            } else {
+                System.err.println("Giving up shard " + shard.getId() + " after " + attempt + " attempts");
+                queue.fail(shard, workerId, 0, true);
+            }
+            return false;
+        } finally {
+            renewal.cancel(false);
+        }
+    }
+
+    /**
+     * Extracts the shard's page range. A missing page ends an open-ended
+     * shard; any other failure fails the whole shard so it is retried.
+     */
+    private int extract(Shard shard, BookSink sink, AtomicBoolean leaseLost) throws Exception {
+        BookExtractor extractor = new BookExtractor(engine, shard.getBaseUrl());
+        extractor.setRateLimiter(rateLimiter);
+
+        int books = 0;
+        int lastPage = shard.getLastPage();
+        for (int page = shard.getFirstPage(); lastPage == Shard.UNTIL_LAST_PAGE || page <= lastPage; page++) {
+            if (leaseLost.get()) {
+                break;
+            }
+            PageResult result;
+            try {
+                result = extractor.extractPage(page);
+            } catch (PageFetchException e) {
+                if (e.isNotFound() && page > 1) {
+                    break;
+                }
+                throw e;
+            }
+            for (Book book : result.getBooks()) {
+                sink.accept(book);
+            }
+            sink.flush();
+            books += result.getBooks().size();
+            if (!result.hasNextPage() || result.getBooks().isEmpty()) {
+                break;
+            }
+        }
+        return books;
+    }
+}
@@ -0,0 +1,136 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.BitSet;
+
+/**
+ * Five-field cron expression (minute hour day-of-month month day-of-week)
+ * supporting "*", single values, ranges "a-b", steps "*&#47;n" and "a-b/n",
+ * and comma-separated lists, plus the @hourly, @daily and @weekly shortcuts.
+ * As in cron, if both day fields are restricted a day matches either.
+ */
+public class CronSchedule {
+    private final String expression;
+    private final BitSet minutes;
+    private final BitSet hours;
+    private final BitSet daysOfMonth;
+    private final BitSet months;
+    private final BitSet daysOfWeek;
+    private final boolean dayOfMonthRestricted;
+    private final boolean dayOfWeekRestricted;
+
+    /**
+     * @param expression cron expression, e.g. "*&#47;15 * * * *"
+     * @throws IllegalArgumentException if the expression is malformed
+     */
+    public CronSchedule(String expression) {
+        this.expression = expression;
+        String[] fields = expand(expression.trim()).split("\\s+");
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("Cron expression needs 5 fields: " + expression);
+        }
+        minutes = parseField(fields[0], 0, 59);
+        hours = parseField(fields[1], 0, 23);
+        daysOfMonth = parseField(fields[2], 1, 31);
+        months = parseField(fields[3], 1, 12);
+        daysOfWeek = parseField(fields[4], 0, 7);
+        // Both 0 and 7 mean Sunday
+        if (daysOfWeek.get(7)) {
+            daysOfWeek.set(0);
+        }
+        dayOfMonthRestricted = !fields[2].equals("*");
+        dayOfWeekRestricted = !fields[4].equals("*");
+    }
+
+    private static String expand(String expression) {
+        switch (expression) {
+            case "@hourly":
+                return "0 * * * *";
+            case "@daily":
+            case "@midnight":
+                return "0 0 * * *";
+            case "@weekly":
+                return "0 0 * * 0";
+            default:
+                return expression;
+        }
+    }
+
+    private static BitSet parseField(String field, int min, int max) {
+        BitSet values = new BitSet(max + 1);
+        for (String part : field.split(",")) {
+            int step = 1;
+            int slash = part.indexOf('/');
+            if (slash >= 0) {
+                step = parseNumber(part.substring(slash + 1), 1, max, field);
+                part = part.substring(0, slash);
+            }
+            int from;
+            int to;
+            if (part.equals("*")) {
+                from = min;
+                to = max;
+            } else if (part.indexOf('-') > 0) {
+                from = parseNumber(part.substring(0, part.indexOf('-')), min, max, field);
+                to = parseNumber(part.substring(part.indexOf('-') + 1), min, max, field);
+            } else {
+                from = parseNumber(part, min, max, field);
+                to = slash >= 0 ? max : from;
+            }
+            for (int value = from; value <= to; value += step) {
+                values.set(value);
+            }
+        }
+        return values;
+    }
+
+    private static int parseNumber(String text, int min, int max, String field) {
+        try {
+            int value = Integer.parseInt(text);
+            if (value < min || value > max) {
+                throw new IllegalArgumentException("Value " + value + " out of range " + min + "-" + max + " in: " + field);
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cron field: " + field);
+        }
+    }
+
+    /**
+     * @param after reference time
+     * @return first matching minute strictly after the reference time
+     */
+    public ZonedDateTime next(ZonedDateTime after) {
+        ZonedDateTime time = after.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        ZonedDateTime limit = time.plusYears(5);
+        while (time.isBefore(limit)) {
+            if (!months.get(time.getMonthValue())) {
+                time = time.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).plusMonths(1);
+            } else if (!dayMatches(time)) {
+                time = time.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+            } else if (!hours.get(time.getHour())) {
+                time = time.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+            } else if (!minutes.get(time.getMinute())) {
+                time = time.plusMinutes(1);
+            } else {
+                return time;
+            }
+        }
+        throw new IllegalStateException("Cron expression never fires: " + expression);
+    }
+
+    private boolean dayMatches(ZonedDateTime time) {
+        boolean dayOfMonth = daysOfMonth.get(time.getDayOfMonth());
+        boolean dayOfWeek = daysOfWeek.get(time.getDayOfWeek().getValue() % 7);
+        if (dayOfMonthRestricted && dayOfWeekRestricted) {
+            return dayOfMonth || dayOfWeek;
+        }
+        return dayOfMonth && dayOfWeek;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
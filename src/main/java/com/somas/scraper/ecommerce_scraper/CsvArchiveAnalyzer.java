@@ -0,0 +1,396 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Summarises scrape CSVs in the Title,Price,Availability,Scraped_At layout
+ * without creating Book objects. Plain CSV files are memory-mapped and cut
+ * into chunks that are parsed in parallel on a fork-join pool; each chunk
+ * starts after the first line break at or past its offset and finishes the
+ * record straddling its end, so every record is parsed exactly once.
+ * Compressed archive segments (.csv.gz) cannot be mapped and are streamed,
+ * one task per file.
+ *
+ * Fields are scanned byte by byte: the price is read like
+ * Book.parseMinorUnits and availability is matched against "in stock" like
+ * Availability.parse, straight into an ArchiveStatistics accumulator.
+ */
+public class CsvArchiveAnalyzer {
+    static final long CHUNK_BYTES = 16L * 1024 * 1024;
+    // A record must end within this distance past its chunk
+    private static final int MAX_RECORD_BYTES = 1024 * 1024;
+    private static final byte[] IN_STOCK = "in stock".getBytes(StandardCharsets.US_ASCII);
+    // A currency symbol or code followed by an amount, e.g. £51.77
+    private static final Pattern PRICE_FIELD = Pattern.compile("\\D{0,4}\\d+(\\.\\d+)?");
+
+    private final ForkJoinPool pool;
+
+    /**
+     * @param pool pool running the chunk tasks
+     */
+    public CsvArchiveAnalyzer(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Parses every file in parallel. Files that are not book exports (no
+     * Price column, and a first line that is not a Title,Price,Availability
+     * row) are reported and skipped.
+     * @param files .csv or .csv.gz files
+     * @return combined statistics
+     * @throws IOException if a file cannot be read
+     */
+    public ArchiveStatistics analyze(List<Path> files) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        ArchiveStatistics sizes = new ArchiveStatistics();
+        for (Path file : files) {
+            long size = Files.size(file);
+            if (size == 0) {
+                sizes.addFile(size);
+                continue;
+            }
+            boolean compressed = file.getFileName().toString().endsWith(".gz");
+            Layout layout = readLayout(file, compressed);
+            if (layout == null) {
+                System.out.println("Skipping " + file + ": not a book export");
+                continue;
+            }
+            sizes.addFile(size);
+            if (compressed) {
+                chunks.add(new Chunk(file, 0, size, layout, true));
+                continue;
+            }
+            for (long start = 0; start < size; start += CHUNK_BYTES) {
+                chunks.add(new Chunk(file, start, Math.min(size, start + CHUNK_BYTES), layout, false));
+            }
+        }
+        try {
+            return pool.invoke(new ChunkTask(chunks, 0, chunks.size())).merge(sizes);
+        } catch (UncheckedChunkException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Column positions of a file, taken from its header row
+     */
+    private static class Layout {
+        final boolean hasHeader;
+        final int priceColumn;
+        final int availabilityColumn;
+
+        Layout(boolean hasHeader, int priceColumn, int availabilityColumn) {
+            this.hasHeader = hasHeader;
+            this.priceColumn = priceColumn;
+            this.availabilityColumn = availabilityColumn;
+        }
+    }
+
+    private static Layout readLayout(Path file, boolean compressed) throws IOException {
+        try (InputStream in = compressed ? new GZIPInputStream(Files.newInputStream(file)) : Files.newInputStream(file)) {
+            return parseLayout(in.readNBytes(4096));
+        }
+    }
+
+    /**
+     * Reads the header from the start of a file. A file without one is taken
+     * to use BookCSVWriter's column order only if its first line is clearly
+     * such a row, i.e. its second field is a price.
+     * @return layout, or null if the file is not a book export
+     */
+    private static Layout parseLayout(byte[] start) {
+        int end = 0;
+        while (end < start.length && start[end] != '\n') {
+            end++;
+        }
+        List<String> columns = splitLine(new String(start, 0, end, StandardCharsets.UTF_8).trim());
+        int price = columns.indexOf("Price");
+        if (price >= 0) {
+            return new Layout(true, price, columns.indexOf("Availability"));
+        }
+        if (columns.size() >= 3 && PRICE_FIELD.matcher(columns.get(1)).matches()) {
+            return new Layout(false, 1, 2);
+        }
+        return null;
+    }
+
+    /**
+     * Splits one CSV line into trimmed, unquoted fields
+     */
+    private static List<String> splitLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    /**
+     * Parses one chunk of a mapped file
+     */
+    private static ArchiveStatistics parseMapped(Chunk chunk) throws IOException {
+        ArchiveStatistics stats = new ArchiveStatistics();
+        try (FileChannel channel = FileChannel.open(chunk.file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            // Start one byte early to see whether the chunk begins on a record boundary
+            long mapStart = chunk.start == 0 ? 0 : chunk.start - 1;
+            long mapEnd = Math.min(size, chunk.end + MAX_RECORD_BYTES);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+
+            int position = 0;
+            if (chunk.start > 0 || chunk.layout.hasHeader) {
+                // Skip the partial record owned by the previous chunk, or the header
+                while (position < buffer.limit() && buffer.get(position) != '\n') {
+                    position++;
+                }
+                position++;
+            }
+            int recordStartLimit = (int) (chunk.end - mapStart);
+            if (mapEnd < size && recordStartLimit < buffer.limit()) {
+                int lastBreak = buffer.limit() - 1;
+                while (lastBreak >= recordStartLimit && buffer.get(lastBreak) != '\n') {
+                    lastBreak--;
+                }
+                if (lastBreak < recordStartLimit) {
+                    throw new IOException("Record longer than " + MAX_RECORD_BYTES + " bytes in " + chunk.file);
+                }
+            }
+            parse(buffer, position, recordStartLimit, chunk.layout, stats);
+        }
+        return stats;
+    }
+
+    /**
+     * Streams a compressed file through the same parser, one buffer of whole records at a time
+     */
+    private static ArchiveStatistics parseCompressed(Chunk chunk) throws IOException {
+        ArchiveStatistics stats = new ArchiveStatistics();
+        byte[] block = new byte[4 * 1024 * 1024];
+        int length = 0;
+        boolean first = true;
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(chunk.file), 64 * 1024)) {
+            while (true) {
+                int read = in.read(block, length, block.length - length);
+                if (read > 0) {
+                    length += read;
+                    if (length < block.length) {
+                        continue;
+                    }
+                }
+                boolean eof = read < 0;
+                int position = 0;
+                if (first) {
+                    first = false;
+                    if (chunk.layout.hasHeader) {
+                        while (position < length && block[position] != '\n') {
+                            position++;
+                        }
+                        position++;
+                    }
+                }
+                int end = length;
+                if (!eof) {
+                    while (end > position && block[end - 1] != '\n') {
+                        end--;
+                    }
+                    if (end == position) {
+                        throw new IOException("Record longer than " + block.length + " bytes in " + chunk.file);
+                    }
+                }
+                if (position < end) {
+                    parse(ByteBuffer.wrap(block, 0, end), position, end, chunk.layout, stats);
+                }
+                if (eof) {
+                    return stats;
+                }
+                // Carry the incomplete last record over to the next block
+                System.arraycopy(block, end, block, 0, length - end);
+                length -= end;
+            }
+        }
+    }
+
+    /**
+     * Parses every record starting before recordStartLimit, reading past it
+     * to finish the last record
+     */
+    private static void parse(ByteBuffer buffer, int position, int recordStartLimit, Layout layout,
+                              ArchiveStatistics stats) {
+        int limit = buffer.limit();
+        int priceColumn = layout.priceColumn;
+        int availabilityColumn = layout.availabilityColumn;
+
+        while (position < recordStartLimit && position < limit) {
+            int column = 0;
+            boolean quoted = false;
+            long whole = 0;
+            int fraction = 0;
+            int fractionDigits = -1;
+            boolean priceFound = false;
+            boolean priceDone = false;
+            int match = 0;
+            boolean inStock = false;
+            boolean availabilityText = false;
+
+            while (position < limit) {
+                byte b = buffer.get(position++);
+                if (quoted) {
+                    if (b == '"') {
+                        if (position < limit && buffer.get(position) == '"') {
+                            position++;
+                        } else {
+                            quoted = false;
+                            continue;
+                        }
+                    }
+                } else if (b == '"') {
+                    quoted = true;
+                    continue;
+                } else if (b == ',') {
+                    column++;
+                    continue;
+                } else if (b == '\n') {
+                    break;
+                } else if (b == '\r') {
+                    continue;
+                }
+
+                if (column == priceColumn && !priceDone) {
+                    if (b >= '0' && b <= '9') {
+                        priceFound = true;
+                        if (fractionDigits < 0) {
+                            whole = whole * 10 + (b - '0');
+                        } else if (fractionDigits < 2) {
+                            fraction = fraction * 10 + (b - '0');
+                            fractionDigits++;
+                        }
+                    } else if (b == '.' && priceFound && fractionDigits < 0) {
+                        fractionDigits = 0;
+                    } else if (b == ',' && priceFound && fractionDigits < 0) {
+                        // Thousands separator inside the quoted field
+                        continue;
+                    } else if (priceFound) {
+                        priceDone = true;
+                    }
+                } else if (column == availabilityColumn && !inStock) {
+                    if (b != ' ' && b != '\t') {
+                        availabilityText = true;
+                    }
+                    byte lower = b >= 'A' && b <= 'Z' ? (byte) (b + 32) : b;
+                    match = lower == IN_STOCK[match] ? match + 1 : (lower == IN_STOCK[0] ? 1 : 0);
+                    if (match == IN_STOCK.length) {
+                        inStock = true;
+                    }
+                }
+            }
+
+            if (column == 0 && !priceFound && !availabilityText) {
+                // Blank line
+                continue;
+            }
+            long priceMinor = Book.UNKNOWN_PRICE;
+            if (priceFound) {
+                for (int i = Math.max(fractionDigits, 0); i < 2; i++) {
+                    fraction *= 10;
+                }
+                priceMinor = whole * 100 + fraction;
+            }
+            stats.add(priceMinor, inStock ? Availability.IN_STOCK
+                : availabilityText ? Availability.OUT_OF_STOCK : Availability.UNKNOWN);
+        }
+    }
+
+    private static class Chunk {
+        final Path file;
+        final long start;
+        final long end;
+        final Layout layout;
+        final boolean compressed;
+
+        /**
+         * @param compressed true for a compressed file parsed as a whole
+         */
+        Chunk(Path file, long start, long end, Layout layout, boolean compressed) {
+            this.file = file;
+            this.start = start;
+            this.end = end;
+            this.layout = layout;
+            this.compressed = compressed;
+        }
+    }
+
+    /**
+     * Splits the chunk list in halves until a single chunk is left, then merges the partial results
+     */
+    private static class ChunkTask extends RecursiveTask<ArchiveStatistics> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Chunk> chunks;
+        private final int from;
+        private final int to;
+
+        ChunkTask(List<Chunk> chunks, int from, int to) {
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ArchiveStatistics compute() {
+            if (to - from == 0) {
+                return new ArchiveStatistics();
+            }
+            if (to - from == 1) {
+                Chunk chunk = chunks.get(from);
+                try {
+                    return chunk.compressed ? parseCompressed(chunk) : parseMapped(chunk);
+                } catch (IOException e) {
+                    throw new UncheckedChunkException(e);
+                }
+            }
+            int middle = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(chunks, from, middle);
+            left.fork();
+            ArchiveStatistics right = new ChunkTask(chunks, middle, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    private static class UncheckedChunkException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        UncheckedChunkException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+
+/**
+ * Streaming CSV sink: writes the header on open and one row per accepted
+ * book, flushing to disk at every page boundary. Each flush records the rows
+ * and bytes written since the previous one in ScraperMetrics.
+ */
+public class CsvBookSink implements BookSink {
+    private final String filename;
+    private final CsvRowEncoder encoder;
+    private final CountingOutputStream counter;
+    private final FileOutputStream file;
+    private final long initialBytes;
+    private int rowCount;
+    private int rowsAtLastFlush;
+    private long bytesAtLastFlush;
+    private boolean closed;
+
+    /**
+     * Opens the file and writes the CSV header
+     * @param filename file to create or overwrite
+     * @param timestamp Scraped_At value written on every row
+     */
+    public CsvBookSink(String filename, String timestamp) {
+        this(filename, timestamp, -1);
+    }
+
+    /**
+     * Opens the file for a resumed job: the file is cut back to the given
+     * length, dropping rows written after the last checkpoint, and new rows
+     * are appended. A negative length starts a fresh file with a header.
+     * @param filename file to create or resume
+     * @param timestamp Scraped_At value written on every row
+     * @param resumeAtBytes length of the file at the last checkpoint, or -1
+     */
+    public CsvBookSink(String filename, String timestamp, long resumeAtBytes) {
+        this.filename = filename;
+        try {
+            boolean resume = resumeAtBytes > 0;
+            if (resume) {
+                try (RandomAccessFile file = new RandomAccessFile(filename, "rw")) {
+                    if (file.length() < resumeAtBytes) {
+                        throw new IOException(filename + " is shorter than its checkpoint (" + file.length()
+                            + " < " + resumeAtBytes + " bytes)");
+                    }
+                    file.setLength(resumeAtBytes);
+                }
+            }
+            this.initialBytes = resume ? resumeAtBytes : 0;
+            // Same platform charset as FileWriter, with the encoded bytes counted on the way to disk
+            this.file = new FileOutputStream(filename, resume);
+            this.counter = new CountingOutputStream(file);
+            this.encoder = new CsvRowEncoder(new BufferedWriter(new OutputStreamWriter(counter)), timestamp);
+            if (!resume) {
+                encoder.writeHeader();
+            }
+        } catch (IOException e) {
+            System.err.println("Error opening CSV file: " + e.getMessage());
+            throw new RuntimeException("Failed to open CSV file", e);
+        }
+    }
+
+    @Override
+    public void accept(Book book) {
+        try {
+            encoder.writeBook(book);
+            rowCount++;
+        } catch (IOException e) {
+            System.err.println("Error writing to CSV file: " + e.getMessage());
+            throw new RuntimeException("Failed to write CSV file", e);
+        }
+    }
+
+    @Override
+    public void flush() {
+        try {
+            encoder.flush();
+            recordWrite();
+        } catch (IOException e) {
+            System.err.println("Error flushing CSV file: " + e.getMessage());
+            throw new RuntimeException("Failed to flush CSV file", e);
+        }
+    }
+
+    /**
+     * Flushes and forces the rows written so far to disk, so a checkpoint
+     * recording getBytesWritten survives a crash or power loss
+     */
+    public void sync() {
+        if (closed) {
+            return;
+        }
+        try {
+            encoder.flush();
+            file.getFD().sync();
+        } catch (IOException e) {
+            System.err.println("Error syncing CSV file: " + e.getMessage());
+            throw new RuntimeException("Failed to sync CSV file", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        try {
+            encoder.flush();
+            file.getFD().sync();
+            closed = true;
+            encoder.close();
+            recordWrite();
+            System.out.println("Successfully wrote " + rowCount + " books to: " + filename);
+        } catch (IOException e) {
+            System.err.println("Error closing CSV file: " + e.getMessage());
+            throw new RuntimeException("Failed to close CSV file", e);
+        }
+    }
+
+    /**
+     * Reports the rows and bytes written since the last report
+     */
+    private void recordWrite() {
+        long bytes = counter.getCount();
+        if (rowCount > rowsAtLastFlush || bytes > bytesAtLastFlush) {
+            ScraperMetrics.get().recordWrite(rowCount - rowsAtLastFlush, bytes - bytesAtLastFlush);
+            rowsAtLastFlush = rowCount;
+            bytesAtLastFlush = bytes;
+        }
+    }
+
+    /**
+     * @return size of the file after the last flush, including rows from before a resume
+     */
+    public long getBytesWritten() {
+        return initialBytes + counter.getCount();
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+}
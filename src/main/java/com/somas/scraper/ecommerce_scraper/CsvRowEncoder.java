@@ -0,0 +1,225 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Purpose-built CSV row encoder for book exports. Produces exactly the bytes
+ * OpenCSV's default CSVWriter produced for cleaned fields (every field
+ * quoted, quotes doubled, "\n" line ends), but trims, collapses whitespace
+ * and escapes each field in one hand-written pass into a reusable buffer.
+ * The Scraped_At column is encoded once when the encoder is created.
+ */
+public class CsvRowEncoder implements Closeable, Flushable {
+    private static final char QUOTE = '"';
+    private static final char SEPARATOR = ',';
+    private static final char LINE_END = '\n';
+
+    private final Writer out;
+    private final char[] timestampSuffix;
+    private char[] buffer = new char[512];
+    private int length;
+
+    /**
+     * @param out destination; should be buffered
+     * @param timestamp Scraped_At value shared by every row of the batch
+     */
+    public CsvRowEncoder(Writer out, String timestamp) {
+        this.out = out;
+        StringBuilder suffix = new StringBuilder(timestamp.length() + 4);
+        suffix.append(SEPARATOR).append(QUOTE);
+        for (int i = 0; i < timestamp.length(); i++) {
+            char c = timestamp.charAt(i);
+            if (c == QUOTE) {
+                suffix.append(QUOTE);
+            }
+            suffix.append(c);
+        }
+        suffix.append(QUOTE).append(LINE_END);
+        this.timestampSuffix = suffix.toString().toCharArray();
+    }
+
+    /**
+     * Writes the header row
+     * @throws IOException on write failure
+     */
+    public void writeHeader() throws IOException {
+        writeRawRow(BookCSVWriter.CSV_HEADER);
+    }
+
+    /**
+     * Writes the header row of the detail-page export
+     * @throws IOException on write failure
+     */
+    public void writeDetailsHeader() throws IOException {
+        writeRawRow(BookCSVWriter.DETAILS_HEADER);
+    }
+
+    /**
+     * Writes one detail-page row: product URL and UPC as scraped, cleaned
+     * title, category and description, and the stock count ("" when unknown).
+     * The batch timestamp is not part of this row.
+     * @param book book enriched by DetailCrawler
+     * @throws IOException on write failure
+     */
+    public void writeDetails(Book book) throws IOException {
+        length = 0;
+        appendField(book.getProductUrl(), false);
+        append(SEPARATOR);
+        appendField(book.getTitle(), true);
+        append(SEPARATOR);
+        appendField(book.getUpc(), false);
+        append(SEPARATOR);
+        appendField(book.getCategory(), true);
+        append(SEPARATOR);
+        appendField(book.getStockCount() < 0 ? "" : Integer.toString(book.getStockCount()), false);
+        append(SEPARATOR);
+        appendField(book.getDescription(), true);
+        append(LINE_END);
+        out.write(buffer, 0, length);
+    }
+
+    /**
+     * Writes one book row: cleaned title, price and availability plus the batch timestamp
+     * @param book book to write
+     * @throws IOException on write failure
+     */
+    public void writeBook(Book book) throws IOException {
+        length = 0;
+        appendField(book.getTitle(), true);
+        append(SEPARATOR);
+        appendField(book.getPrice(), true);
+        append(SEPARATOR);
+        appendField(book.getAvailability(), true);
+        ensureCapacity(timestampSuffix.length);
+        System.arraycopy(timestampSuffix, 0, buffer, length, timestampSuffix.length);
+        length += timestampSuffix.length;
+        out.write(buffer, 0, length);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeRawRow(String[] fields) throws IOException {
+        length = 0;
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                append(SEPARATOR);
+            }
+            appendField(fields[i], false);
+        }
+        append(LINE_END);
+        out.write(buffer, 0, length);
+    }
+
+    /**
+     * Appends a quoted field. When cleaning, leading/trailing characters up to
+     * U+0020 are dropped (String.trim) and each interior run of \s characters
+     * becomes one space (replaceAll("\\s+", " ")); null becomes an empty field.
+     */
+    private void appendField(String text, boolean clean) {
+        append(QUOTE);
+        if (text != null) {
+            int start = 0;
+            int end = text.length();
+            if (clean) {
+                while (start < end && text.charAt(start) <= ' ') {
+                    start++;
+                }
+                while (end > start && text.charAt(end - 1) <= ' ') {
+                    end--;
+                }
+            }
+            ensureCapacity((end - start) * 2);
+            boolean inWhitespace = false;
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                if (clean && isRegexWhitespace(c)) {
+                    if (!inWhitespace) {
+                        buffer[length++] = ' ';
+                        inWhitespace = true;
+                    }
+                    continue;
+                }
+                inWhitespace = false;
+                if (c == QUOTE) {
+                    buffer[length++] = QUOTE;
+                }
+                buffer[length++] = c;
+            }
+        }
+        append(QUOTE);
+    }
+
+    /**
+     * Cleans a field the same way writeBook does, without quoting
+     * @param text text to clean
+     * @return trimmed text with whitespace runs collapsed, "" for null
+     */
+    static String clean(String text) {
+        if (text == null) {
+            return "";
+        }
+        int start = 0;
+        int end = text.length();
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        StringBuilder cleaned = null;
+        boolean inWhitespace = false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            boolean whitespace = isRegexWhitespace(c);
+            if (cleaned == null && whitespace && (c != ' ' || isRegexWhitespace(text.charAt(i + 1)))) {
+                // First run that actually needs rewriting; copy the clean prefix
+                cleaned = new StringBuilder(end - start).append(text, start, i);
+            }
+            if (cleaned != null) {
+                if (whitespace) {
+                    if (!inWhitespace) {
+                        cleaned.append(' ');
+                    }
+                } else {
+                    cleaned.append(c);
+                }
+            }
+            inWhitespace = whitespace;
+        }
+        if (cleaned != null) {
+            return cleaned.toString();
+        }
+        return start == 0 && end == text.length() ? text : text.substring(start, end);
+    }
+
+    /**
+     * Characters matched by the regex class \s
+     */
+    private static boolean isRegexWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    private void append(char c) {
+        ensureCapacity(1);
+        buffer[length++] = c;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            char[] grown = new char[Math.max(buffer.length * 2, length + extra)];
+            System.arraycopy(buffer, 0, grown, 0, length);
+            buffer = grown;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import com.opencsv.CSVWriter;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Incremental scrape that compares the catalogue against the previous run's
+ * snapshot and writes only the differences: added, removed, price-changed
+ * and availability-changed books. Once a configurable number of consecutive
+ * pages show no changes, the crawl stops early and the rest of the previous
+ * snapshot is carried forward.
+ */
+public class DeltaScraper {
+    private static final String[] CHANGES_HEADER = {
+        "Change_Type", "Product_URL", "Title", "Old_Price", "New_Price",
+        "Old_Availability", "New_Availability", "Scraped_At"
+    };
+
+    private final BookExtractor extractor;
+    private final int unchangedPagesBeforeStop;
+
+    /**
+     * @param extractor extractor used to load catalogue pages
+     * @param unchangedPagesBeforeStop consecutive unchanged pages after which the
+     *                                 crawl stops, 0 to always crawl every page
+     */
+    public DeltaScraper(BookExtractor extractor, int unchangedPagesBeforeStop) {
+        this.extractor = extractor;
+        this.unchangedPagesBeforeStop = unchangedPagesBeforeStop;
+    }
+
+    /**
+     * Runs the delta scrape
+     * @param snapshotFile previous snapshot, replaced by the new one on success
+     * @param changesFile file receiving the change records
+     * @return number of change records written
+     */
+    public int run(String snapshotFile, String changesFile) {
+        SnapshotIndex previous = SnapshotIndex.load(snapshotFile);
+        SnapshotIndex current = new SnapshotIndex();
+        Map<Integer, Set<String>> previousKeysByPage = groupByPage(previous);
+        Set<String> seen = new HashSet<>();
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+
+        int changeCount = 0;
+        int unchangedRun = 0;
+        int lastPage = 0;
+        boolean completed = false;
+
+        try (CSVWriter changes = new CSVWriter(new BufferedWriter(new FileWriter(changesFile, StandardCharsets.UTF_8)))) {
+            changes.writeNext(CHANGES_HEADER);
+
+            for (int page = 1; ; page++) {
+                PageResult result;
+                try {
+                    result = extractor.extractPage(page);
+                } catch (Exception e) {
+                    System.err.println("Error processing page " + page + ": " + e.getMessage());
+                    ScraperMetrics.get().recordFailedPage();
+                    break;
+                }
+
+                List<Book> books = result.getBooks();
+                if (books.isEmpty()) {
+                    completed = true;
+                    break;
+                }
+                lastPage = page;
+
+                int pageChanges = 0;
+                Set<String> pageKeys = new HashSet<>();
+                for (Book book : books) {
+                    SnapshotIndex.Entry entry = SnapshotIndex.Entry.of(book, page);
+                    pageKeys.add(entry.getKey());
+                    seen.add(entry.getKey());
+                    current.put(entry);
+                    pageChanges += writeChanges(changes, previous.get(entry.getKey()), entry, timestamp);
+                }
+                changes.flush();
+                changeCount += pageChanges;
+
+                boolean pageUnchanged = pageChanges == 0
+                    && pageKeys.equals(previousKeysByPage.get(page));
+                unchangedRun = pageUnchanged ? unchangedRun + 1 : 0;
+                System.out.println("Page " + page + ": " + pageChanges + " changes");
+
+                if (!result.hasNextPage()) {
+                    completed = true;
+                    break;
+                }
+                if (unchangedPagesBeforeStop > 0 && unchangedRun >= unchangedPagesBeforeStop) {
+                    System.out.println(unchangedRun + " consecutive unchanged pages, stopping early after page " + page);
+                    break;
+                }
+            }
+
+            // Books no longer listed are only known to be removed on pages we actually visited
+            for (SnapshotIndex.Entry old : previous.entries()) {
+                if (seen.contains(old.getKey())) {
+                    continue;
+                }
+                if (completed || old.getPage() <= lastPage) {
+                    changes.writeNext(changeRow("REMOVED", old, null, timestamp));
+                    changeCount++;
+                } else {
+                    current.put(old);
+                }
+            }
+
+        } catch (IOException e) {
+            System.err.println("Error writing changes file: " + e.getMessage());
+            throw new RuntimeException("Failed to write changes file", e);
+        }
+
+        if (lastPage == 0) {
+            System.out.println("No pages extracted; keeping previous snapshot");
+            return changeCount;
+        }
+
+        current.save(snapshotFile);
+        System.out.println("Wrote " + changeCount + " changes to: " + changesFile);
+        System.out.println("Snapshot updated: " + snapshotFile + " (" + current.size() + " books)");
+        return changeCount;
+    }
+
+    private int writeChanges(CSVWriter changes, SnapshotIndex.Entry old, SnapshotIndex.Entry now, String timestamp) {
+        if (old == null) {
+            changes.writeNext(changeRow("ADDED", null, now, timestamp));
+            return 1;
+        }
+        int written = 0;
+        if (!Objects.equals(old.getPrice(), now.getPrice())) {
+            changes.writeNext(changeRow("PRICE_CHANGED", old, now, timestamp));
+            written++;
+        }
+        if (!Objects.equals(old.getAvailability(), now.getAvailability())) {
+            changes.writeNext(changeRow("AVAILABILITY_CHANGED", old, now, timestamp));
+            written++;
+        }
+        return written;
+    }
+
+    private String[] changeRow(String type, SnapshotIndex.Entry old, SnapshotIndex.Entry now, String timestamp) {
+        SnapshotIndex.Entry ref = now != null ? now : old;
+        return new String[] {
+            type,
+            ref.getKey(),
+            ref.getTitle(),
+            old == null ? "" : old.getPrice(),
+            now == null ? "" : now.getPrice(),
+            old == null ? "" : old.getAvailability(),
+            now == null ? "" : now.getAvailability(),
+            timestamp
+        };
+    }
+
+    private Map<Integer, Set<String>> groupByPage(SnapshotIndex index) {
+        Map<Integer, Set<String>> byPage = new HashMap<>();
+        for (SnapshotIndex.Entry entry : index.entries()) {
+            byPage.computeIfAbsent(entry.getPage(), p -> new HashSet<>()).add(entry.getKey());
+        }
+        return byPage;
+    }
+}
@@ -0,0 +1,183 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sink that enriches listing-page books with their product detail pages.
+ * Every accepted book's product URL goes through a CrawlFrontier, so
+ * duplicate listings are dropped and each detail page is fetched once.
+ * Detail pages are fetched on a worker pool with at most maxInFlight
+ * requests outstanding; when the budget is used up, accept blocks, which
+ * applies backpressure to the listing crawl.
+ *
+ * Enriched books reach the downstream sink in completion order rather than
+ * page order. A book whose detail page fails is still forwarded with the
+ * listing fields only.
+ */
+public class DetailCrawler implements BookSink {
+    private final HttpPageFetcher fetcher;
+    private final HostRateLimiter rateLimiter;
+    private final BookSink downstream;
+    private final BookDetailParser parser = new BookDetailParser();
+    private final CrawlFrontier frontier = new CrawlFrontier();
+    private final Semaphore inFlight;
+    private final ExecutorService executor;
+    private final Object downstreamLock = new Object();
+    private final AtomicInteger duplicates = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    private volatile RuntimeException failure;
+    private boolean closed;
+
+    /**
+     * @param fetcher fetcher used for detail pages
+     * @param rateLimiter per-host limiter, normally shared with the listing crawl
+     * @param maxInFlight maximum number of detail pages fetched at once
+     * @param downstream sink receiving the enriched books
+     */
+    public DetailCrawler(HttpPageFetcher fetcher, HostRateLimiter rateLimiter, int maxInFlight, BookSink downstream) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        this.fetcher = fetcher;
+        this.rateLimiter = rateLimiter;
+        this.downstream = downstream;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.executor = Executors.newFixedThreadPool(maxInFlight, runnable -> {
+            Thread thread = new Thread(runnable, "detail-crawler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void accept(Book book) {
+        checkFailure();
+        String url = book.getProductUrl();
+        if (url == null || url.isEmpty()) {
+            forward(book);
+            return;
+        }
+        if (!frontier.offer(url)) {
+            duplicates.incrementAndGet();
+            return;
+        }
+
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a detail fetch slot", e);
+        }
+        executor.execute(() -> {
+            try {
+                crawl(book);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    /**
+     * Fetches and merges one detail page, then forwards the book
+     */
+    private void crawl(Book book) {
+        String url = book.getProductUrl();
+        try {
+            rateLimiter.acquire(url);
+            ScraperMetrics metrics = ScraperMetrics.get();
+            long start = System.nanoTime();
+            String html = fetcher.fetch(url).getBody();
+            metrics.getPageFetchSeconds().recordNanos(System.nanoTime() - start);
+
+            start = System.nanoTime();
+            parser.mergeInto(html, url, book);
+            metrics.getParseSeconds().recordNanos(System.nanoTime() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            System.err.println("Error crawling detail page " + url + ": " + e.getMessage());
+            ScraperMetrics.get().recordFailedPage();
+            failures.incrementAndGet();
+        }
+        forward(book);
+    }
+
+    private void forward(Book book) {
+        synchronized (downstreamLock) {
+            if (failure != null) {
+                return;
+            }
+            try {
+                downstream.accept(book);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+    }
+
+    @Override
+    public void flush() {
+        checkFailure();
+        synchronized (downstreamLock) {
+            downstream.flush();
+        }
+    }
+
+    /**
+     * Waits for outstanding detail fetches, then closes the downstream sink
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                System.out.println("Waiting for detail pages to finish...");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+            throw new RuntimeException("Interrupted while waiting for detail pages", e);
+        } finally {
+            downstream.close();
+        }
+        System.out.println("Detail pages crawled: " + frontier.size() + " (" + failures.get()
+            + " failed, " + duplicates.get() + " duplicate listings skipped)");
+        checkFailure();
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new RuntimeException("Detail crawl sink failed: " + failure.getMessage(), failure);
+        }
+    }
+
+    /**
+     * @return number of distinct detail pages scheduled
+     */
+    public int getScheduledCount() {
+        return frontier.size();
+    }
+
+    /**
+     * @return number of listings dropped because their product URL was already scheduled
+     */
+    public int getDuplicateCount() {
+        return duplicates.get();
+    }
+
+    /**
+     * @return number of detail pages that could not be fetched or parsed
+     */
+    public int getFailureCount() {
+        return failures.get();
+    }
+}
@@ -0,0 +1,25 @@
+package com.somas.scraper.ecommerce_scraper;
+
+/**
+ * Available extraction engines
+ */
+public enum EngineType {
+    /** Plain HTTP fetch + Jsoup parsing, no browser */
+    JSOUP,
+    /** Headless Chrome via Selenium, for JavaScript-rendered pages */
+    SELENIUM;
+
+    /**
+     * Creates a new engine instance of this type
+     * @return the engine
+     */
+    public ExtractionEngine create() {
+        switch (this) {
+            case SELENIUM:
+                return new SeleniumExtractionEngine();
+            case JSOUP:
+            default:
+                return new JsoupExtractionEngine();
+        }
+    }
+}
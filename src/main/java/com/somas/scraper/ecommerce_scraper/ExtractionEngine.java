@@ -0,0 +1,41 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.io.IOException;
+
+/**
+ * Strategy for loading a catalogue page and turning it into books.
+ * BookExtractor drives pagination and delegates every page to an engine.
+ */
+public interface ExtractionEngine extends AutoCloseable {
+
+    /**
+     * Loads the given page and extracts every product on it
+     * @param pageUrl absolute URL of the catalogue page
+     * @return books found on the page plus pagination info
+     * @throws IOException if the page could not be loaded
+     */
+    PageResult extractPage(String pageUrl) throws IOException;
+
+    /**
+     * Loads the given page and extracts products with a site profile's rules
+     * @param pageUrl absolute URL of the catalogue page
+     * @param profile site whose selectors and field rules apply
+     * @return books found on the page plus pagination info
+     * @throws IOException if the page could not be loaded
+     */
+    PageResult extractPage(String pageUrl, SiteProfile profile) throws IOException;
+
+    /**
+     * Whether extractPage may be called from several threads at once
+     * @return true if the engine supports concurrent page loads
+     */
+    default boolean isThreadSafe() {
+        return false;
+    }
+
+    /**
+     * Releases any resources held by the engine
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,78 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Writes books to any number of partitioned CSV files in a single pass.
+ * Each route maps a book to the file it belongs in (or null to skip it);
+ * every distinct file gets its own buffered CSV writer, opened on first use.
+ */
+public class FanOutCsvWriter implements BookSink {
+    private final String timestamp;
+    private final List<Function<Book, String>> routes = new ArrayList<>();
+    private final Map<String, CsvBookSink> outputs = new LinkedHashMap<>();
+
+    /**
+     * @param timestamp Scraped_At value written on every row
+     */
+    public FanOutCsvWriter(String timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Adds a routing function; a book is written once per route that accepts it
+     * @param route maps a book to its output filename, or null to skip it
+     * @return this writer
+     */
+    public FanOutCsvWriter addRoute(Function<Book, String> route) {
+        routes.add(route);
+        return this;
+    }
+
+    @Override
+    public void accept(Book book) {
+        for (Function<Book, String> route : routes) {
+            String filename = route.apply(book);
+            if (filename != null) {
+                outputs.computeIfAbsent(filename, f -> new CsvBookSink(f, timestamp)).accept(book);
+            }
+        }
+    }
+
+    @Override
+    public void flush() {
+        for (CsvBookSink output : outputs.values()) {
+            output.flush();
+        }
+    }
+
+    @Override
+    public void close() {
+        RuntimeException failure = null;
+        for (CsvBookSink output : outputs.values()) {
+            try {
+                output.close();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * @return rows written per file, in the order the files were opened
+     */
+    public Map<String, Integer> getRowCounts() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (Map.Entry<String, CsvBookSink> output : outputs.entrySet()) {
+            counts.put(output.getKey(), output.getValue().getRowCount());
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,332 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * WorkQueue kept in a directory that every node can reach, e.g. a shared
+ * mount:
+ * <pre>
+ * shards/&lt;id&gt;.properties   shard definitions, written once
+ * leases/&lt;id&gt;.lease       "workerId expiresAtMillis" of the current lease
+ * done/&lt;id&gt;              completion markers
+ * failed/&lt;id&gt;            "attempts retryAtMillis" of a failing shard, "attempts never" once given up
+ * outputs/&lt;id&gt;.csv        per-shard output
+ * </pre>
+ * A claim creates the lease file with CREATE_NEW, so exactly one worker wins
+ * a shard. Renewing or reclaiming a lease first renames it aside, which only
+ * one worker can do, checks it is still the lease it read, and publishes
+ * the replacement with a hard link, which fails if another worker created a
+ * lease meanwhile. A renewal can therefore never overwrite a lease that was
+ * reclaimed by someone else; at worst a claim slips in while the lease is
+ * aside and the renewing worker sees its lease as lost.
+ *
+ * To retry a shard that was given up, delete its failed/&lt;id&gt; file.
+ *
+ * Lease expiry relies on the nodes' clocks roughly agreeing; keep the lease
+ * duration well above any expected clock skew.
+ */
+public class FileWorkQueue implements WorkQueue {
+    private static final String NEVER = "never";
+
+    private final Path shardsDir;
+    private final Path leasesDir;
+    private final Path doneDir;
+    private final Path failedDir;
+    private final Path outputsDir;
+    private final long leaseMillis;
+
+    /**
+     * Opens or creates a queue directory
+     * @param dir queue root
+     * @param leaseDuration how long a lease lasts without renewal
+     * @throws IOException if the directories cannot be created
+     */
+    public FileWorkQueue(Path dir, Duration leaseDuration) throws IOException {
+        this.shardsDir = Files.createDirectories(dir.resolve("shards"));
+        this.leasesDir = Files.createDirectories(dir.resolve("leases"));
+        this.doneDir = Files.createDirectories(dir.resolve("done"));
+        this.failedDir = Files.createDirectories(dir.resolve("failed"));
+        this.outputsDir = Files.createDirectories(dir.resolve("outputs"));
+        this.leaseMillis = leaseDuration.toMillis();
+    }
+
+    @Override
+    public void add(Shard shard) throws IOException {
+        Path file = shardsDir.resolve(shard.getId() + ".properties");
+        if (Files.exists(file)) {
+            return;
+        }
+        Path tmp = shardsDir.resolve(shard.getId() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            shard.store(writer);
+        }
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public Shard claim(String workerId) throws IOException {
+        List<Shard> shards = getShards();
+        // Workers start at different shards so they rarely contend for the same lease
+        Collections.rotate(shards, Math.floorMod(workerId.hashCode(), Math.max(1, shards.size())));
+
+        for (Shard shard : shards) {
+            if (isDone(shard)) {
+                continue;
+            }
+            Failure failure = readFailure(shard);
+            if (failure != null && (failure.gaveUp() || System.currentTimeMillis() < failure.retryAtMillis)) {
+                continue;
+            }
+            Path lease = leaseFile(shard);
+            Lease current = readLease(lease);
+            if (current != null) {
+                if (!current.isExpired()) {
+                    continue;
+                }
+                Path aside = asideFile(shard, workerId);
+                Lease taken = takeLease(lease, aside);
+                if (taken != null && !taken.isExpired()) {
+                    // Renewed or reclaimed since it was read
+                    putLease(aside, lease);
+                    continue;
+                }
+                System.out.println("Lease of " + current.workerId + " on shard " + shard.getId() + " expired, reclaiming");
+                Files.deleteIfExists(aside);
+            }
+            try {
+                Files.write(lease, leaseText(workerId).getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                return shard;
+            } catch (FileAlreadyExistsException e) {
+                // Another worker claimed it first
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized boolean renew(Shard shard, String workerId) throws IOException {
+        Path lease = leaseFile(shard);
+        Path aside = asideFile(shard, workerId);
+        Lease current = takeLease(lease, aside);
+        if (current == null) {
+            return false;
+        }
+        if (!current.workerId.equals(workerId)) {
+            putLease(aside, lease);
+            return false;
+        }
+        Files.write(aside, leaseText(workerId).getBytes(StandardCharsets.UTF_8));
+        return putLease(aside, lease);
+    }
+
+    @Override
+    public synchronized boolean complete(Shard shard, String workerId) throws IOException {
+        Lease current = readLease(leaseFile(shard));
+        if (current == null || !current.workerId.equals(workerId)) {
+            return false;
+        }
+        try {
+            Files.createFile(doneDir.resolve(shard.getId()));
+        } catch (FileAlreadyExistsException e) {
+            // Completed by a worker that took over an expired lease; the outputs are identical
+        }
+        Files.deleteIfExists(leaseFile(shard));
+        return true;
+    }
+
+    @Override
+    public synchronized void release(Shard shard, String workerId) throws IOException {
+        Lease current = readLease(leaseFile(shard));
+        if (current != null && current.workerId.equals(workerId)) {
+            Files.deleteIfExists(leaseFile(shard));
+        }
+    }
+
+    @Override
+    public synchronized boolean fail(Shard shard, String workerId, long retryDelayMillis, boolean giveUp)
+            throws IOException {
+        Lease current = readLease(leaseFile(shard));
+        if (current == null || !current.workerId.equals(workerId)) {
+            return false;
+        }
+        int attempts = getFailedAttempts(shard) + 1;
+        String retryAt = giveUp ? NEVER : String.valueOf(System.currentTimeMillis() + retryDelayMillis);
+        Path file = failedDir.resolve(shard.getId());
+        Path tmp = failedDir.resolve(shard.getId() + "." + workerId + ".tmp");
+        Files.write(tmp, (attempts + " " + retryAt).getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        Files.deleteIfExists(leaseFile(shard));
+        return true;
+    }
+
+    @Override
+    public int getFailedAttempts(Shard shard) throws IOException {
+        Failure failure = readFailure(shard);
+        return failure == null ? 0 : failure.attempts;
+    }
+
+    @Override
+    public boolean isFailed(Shard shard) throws IOException {
+        Failure failure = readFailure(shard);
+        return failure != null && failure.gaveUp();
+    }
+
+    @Override
+    public List<Shard> getShards() throws IOException {
+        List<Shard> shards = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(shardsDir, "*.properties")) {
+            for (Path file : files) {
+                try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    shards.add(Shard.load(reader));
+                }
+            }
+        }
+        shards.sort((a, b) -> a.getId().compareTo(b.getId()));
+        return shards;
+    }
+
+    @Override
+    public boolean isDone(Shard shard) {
+        return Files.exists(doneDir.resolve(shard.getId()));
+    }
+
+    /**
+     * @param shard shard to look up
+     * @return worker currently holding a live lease on the shard, or null
+     * @throws IOException if the lease cannot be read
+     */
+    public String getLeaseHolder(Shard shard) throws IOException {
+        Lease lease = readLease(leaseFile(shard));
+        return lease == null || lease.isExpired() ? null : lease.workerId;
+    }
+
+    @Override
+    public Path getOutputFile(Shard shard) {
+        return outputsDir.resolve(shard.getId() + ".csv");
+    }
+
+    private Path leaseFile(Shard shard) {
+        return leasesDir.resolve(shard.getId() + ".lease");
+    }
+
+    private Path asideFile(Shard shard, String workerId) {
+        return leasesDir.resolve(shard.getId() + "." + workerId + ".aside");
+    }
+
+    /**
+     * Renames the lease aside, so no other worker can renew or reclaim it meanwhile
+     * @return the lease that was moved, or null if the shard was not leased
+     */
+    private Lease takeLease(Path lease, Path aside) throws IOException {
+        try {
+            Files.move(lease, aside, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        return readLease(aside);
+    }
+
+    /**
+     * Publishes a lease taken aside, unless another worker created one meanwhile
+     * @return true if the file became the lease
+     */
+    private boolean putLease(Path aside, Path lease) throws IOException {
+        try {
+            Files.createLink(lease, aside);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        } finally {
+            Files.deleteIfExists(aside);
+        }
+    }
+
+    private String leaseText(String workerId) {
+        return workerId + " " + (System.currentTimeMillis() + leaseMillis);
+    }
+
+    /**
+     * @return the lease, or null if the shard is not leased
+     */
+    private Lease readLease(Path file) throws IOException {
+        String text;
+        try {
+            text = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        int space = text.lastIndexOf(' ');
+        if (space < 0) {
+            // Created but not yet written; treat as fresh until it is old enough to be abandoned
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            return new Lease("", modified + leaseMillis);
+        }
+        try {
+            return new Lease(text.substring(0, space), Long.parseLong(text.substring(space + 1)));
+        } catch (NumberFormatException e) {
+            return new Lease("", 0);
+        }
+    }
+
+    /**
+     * @return the failure record, or null if the shard never failed
+     */
+    private Failure readFailure(Shard shard) throws IOException {
+        String text;
+        try {
+            text = new String(Files.readAllBytes(failedDir.resolve(shard.getId())), StandardCharsets.UTF_8).trim();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        String[] fields = text.split(" ");
+        try {
+            long retryAt = fields.length > 1 && !fields[1].equals(NEVER) ? Long.parseLong(fields[1]) : Long.MAX_VALUE;
+            return new Failure(Integer.parseInt(fields[0]), retryAt);
+        } catch (NumberFormatException e) {
+            return new Failure(1, 0);
+        }
+    }
+
+    private static class Failure {
+        final int attempts;
+        final long retryAtMillis;
+
+        Failure(int attempts, long retryAtMillis) {
+            this.attempts = attempts;
+            this.retryAtMillis = retryAtMillis;
+        }
+
+        boolean gaveUp() {
+            return retryAtMillis == Long.MAX_VALUE;
+        }
+    }
+
+    private static class Lease {
+        final String workerId;
+        final long expiresAtMillis;
+
+        Lease(String workerId, long expiresAtMillis) {
+            this.workerId = workerId;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAtMillis;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Fixed-bucket histogram safe for concurrent recording. Buckets follow the
+ * Prometheus convention: each bound is an inclusive upper limit and a final
+ * implicit +Inf bucket catches everything larger.
+ */
+public class Histogram {
+    /** Latency bounds in seconds, from 1 ms to 30 s */
+    public static final double[] LATENCY_SECONDS = {
+        0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30
+    };
+    /** Row count bounds for per-page write batches */
+    public static final double[] ROW_COUNTS = {1, 5, 10, 20, 50, 100, 500, 1000, 10000};
+    /** Byte size bounds, from 1 KB to 64 MB */
+    public static final double[] BYTE_SIZES = {
+        1024, 4096, 16384, 65536, 262144, 1048576, 4194304, 16777216, 67108864
+    };
+
+    private final String name;
+    private final String help;
+    private final double[] bounds;
+    private final AtomicLongArray buckets;
+    private final DoubleAdder sum = new DoubleAdder();
+
+    /**
+     * @param name metric name, e.g. "scraper_page_fetch_seconds"
+     * @param help one-line description
+     * @param bounds ascending bucket upper bounds
+     */
+    public Histogram(String name, String help, double[] bounds) {
+        this.name = name;
+        this.help = help;
+        this.bounds = bounds.clone();
+        this.buckets = new AtomicLongArray(bounds.length + 1);
+    }
+
+    public void record(double value) {
+        int bucket = 0;
+        while (bucket < bounds.length && value > bounds[bucket]) {
+            bucket++;
+        }
+        buckets.incrementAndGet(bucket);
+        sum.add(value);
+    }
+
+    /**
+     * Records a duration measured with System.nanoTime, in seconds
+     * @param nanos elapsed nanoseconds
+     */
+    public void recordNanos(long nanos) {
+        record(nanos / 1_000_000_000.0);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            count += buckets.get(i);
+        }
+        return count;
+    }
+
+    public double getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Estimates a quantile as the upper bound of the bucket containing it
+     * @param quantile value between 0 and 1
+     * @return estimated value, +Inf if it falls in the overflow bucket, 0 if empty
+     */
+    public double getQuantile(double quantile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return bounds[i];
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Appends this histogram in Prometheus text exposition format
+     * @param out destination
+     */
+    public void appendPrometheus(StringBuilder out) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" histogram\n");
+        long cumulative = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            cumulative += buckets.get(i);
+            out.append(name).append("_bucket{le=\"").append(formatBound(bounds[i])).append("\"} ")
+                .append(cumulative).append('\n');
+        }
+        cumulative += buckets.get(bounds.length);
+        out.append(name).append("_bucket{le=\"+Inf\"} ").append(cumulative).append('\n');
+        out.append(name).append("_sum ").append(getSum()).append('\n');
+        out.append(name).append("_count ").append(cumulative).append('\n');
+    }
+
+    /**
+     * Appends this histogram as a JSON object value
+     * @param out destination
+     */
+    public void appendJson(StringBuilder out) {
+        out.append("{\"count\":").append(getCount())
+            .append(",\"sum\":").append(getSum())
+            .append(",\"p50\":").append(jsonNumber(getQuantile(0.5)))
+            .append(",\"p99\":").append(jsonNumber(getQuantile(0.99)))
+            .append('}');
+    }
+
+    private static String formatBound(double bound) {
+        return bound == Math.rint(bound) ? Long.toString((long) bound) : Double.toString(bound);
+    }
+
+    private static String jsonNumber(double value) {
+        return Double.isInfinite(value) ? "null" : Double.toString(value);
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,50 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Politeness limiter keeping one token bucket per host, so requests to
+ * different hosts never throttle each other
+ */
+public class HostRateLimiter {
+    private final double permitsPerSecond;
+    private final int burst;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param permitsPerSecond allowed requests per second for each host
+     * @param burst number of requests a host may receive back to back
+     */
+    public HostRateLimiter(double permitsPerSecond, int burst) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+    }
+
+    /**
+     * Blocks until a request to the URL's host is allowed
+     * @param url URL about to be requested
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void acquire(String url) throws InterruptedException {
+        bucket(url).acquire();
+    }
+
+    /**
+     * Takes a request slot for the URL's host without blocking
+     * @param url URL about to be requested
+     * @return nanoseconds to wait before sending the request
+     */
+    public long reserve(String url) {
+        return bucket(url).reserve();
+    }
+
+    private TokenBucket bucket(String url) {
+        String host = URI.create(url).getHost();
+        if (host == null) {
+            host = "";
+        }
+        return buckets.computeIfAbsent(host, h -> new TokenBucket(permitsPerSecond, burst));
+    }
+}
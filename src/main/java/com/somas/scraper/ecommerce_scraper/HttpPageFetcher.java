@@ -0,0 +1,160 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+
+/**
+ * Downloads pages over HTTP, optionally through a PageCache. Cached pages
+ * are revalidated with If-None-Match / If-Modified-Since, so unchanged
+ * pages cost a 304 instead of a full download.
+ */
+public class HttpPageFetcher {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    static final String USER_AGENT = "Mozilla/5.0 (compatible; ecommerce-scraper)";
+
+    private final HttpClient httpClient;
+    private final PageCache cache;
+
+    /**
+     * Creates a fetcher without a cache
+     */
+    public HttpPageFetcher() {
+        this(null);
+    }
+
+    /**
+     * @param cache page cache to consult, or null to always download
+     */
+    public HttpPageFetcher(PageCache cache) {
+        this.httpClient = HttpClient.newBuilder()
+            .connectTimeout(TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+        this.cache = cache;
+    }
+
+    /**
+     * Fetches a page, serving or revalidating it from the cache where possible
+     * @param pageUrl URL to fetch
+     * @return page body and whether it came unchanged from the cache
+     * @throws PageFetchException on unexpected status codes and timeouts
+     * @throws IOException on other network errors
+     */
+    public FetchResult fetch(String pageUrl) throws IOException {
+        PageCache.CachedPage cached = cache == null ? null : cache.get(pageUrl);
+
+        if (cached != null && cache.isFresh(cached)) {
+            String body = readCachedBody(cached);
+            if (body != null) {
+                return new FetchResult(body, true);
+            }
+            cached = null;
+        }
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(pageUrl))
+            .timeout(TIMEOUT)
+            .header("User-Agent", USER_AGENT)
+            .GET();
+        if (cached != null) {
+            if (cached.getEtag() != null) {
+                request.header("If-None-Match", cached.getEtag());
+            }
+            if (cached.getLastModified() != null) {
+                request.header("If-Modified-Since", cached.getLastModified());
+            }
+        }
+
+        HttpResponse<String> response = send(request.build());
+
+        if (response.statusCode() == 304 && cached != null) {
+            String body = readCachedBody(cached);
+            if (body != null) {
+                cache.markRevalidated(pageUrl);
+                return new FetchResult(body, true);
+            }
+            // Body vanished between lookup and revalidation; fetch it unconditionally
+            response = send(HttpRequest.newBuilder(URI.create(pageUrl))
+                .timeout(TIMEOUT)
+                .header("User-Agent", USER_AGENT)
+                .GET()
+                .build());
+        }
+
+        if (response.statusCode() != 200) {
+            throw new PageFetchException(pageUrl, response.statusCode(), retryAfterMillis(response));
+        }
+
+        if (cache != null) {
+            cache.put(pageUrl, response.body(),
+                response.headers().firstValue("ETag").orElse(null),
+                response.headers().firstValue("Last-Modified").orElse(null));
+        }
+        return new FetchResult(response.body(), false);
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException {
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (HttpTimeoutException e) {
+            throw new PageFetchException(request.uri().toString(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while fetching " + request.uri());
+        }
+    }
+
+    /**
+     * Reads a Retry-After header given in seconds
+     * @return requested delay, or -1 if absent or given as a date
+     */
+    private static long retryAfterMillis(HttpResponse<?> response) {
+        String value = response.headers().firstValue("Retry-After").orElse(null);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim()) * 1000;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String readCachedBody(PageCache.CachedPage cached) {
+        try {
+            return cache.readBody(cached);
+        } catch (IOException e) {
+            cache.remove(cached.getUrl());
+            return null;
+        }
+    }
+
+    /**
+     * Body of a fetched page
+     */
+    public static class FetchResult {
+        private final String body;
+        private final boolean unchanged;
+
+        FetchResult(String body, boolean unchanged) {
+            this.body = body;
+            this.unchanged = unchanged;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        /**
+         * @return true if the body was served from the cache without a new download
+         */
+        public boolean isUnchanged() {
+            return unchanged;
+        }
+    }
+}
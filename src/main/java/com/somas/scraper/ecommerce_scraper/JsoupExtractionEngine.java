@@ -0,0 +1,129 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Browserless extraction engine: fetches pages with java.net.http.HttpClient
+ * and parses them with Jsoup. Suitable for static HTML catalogues.
+ *
+ * When backed by a PageCache, pages confirmed unchanged by the server reuse
+ * the result parsed earlier in the same process instead of being parsed again.
+ * The cache keeps its own copies of the books and hands out fresh copies, as
+ * callers such as DetailCrawler enrich the books they receive.
+ * One engine can serve several sites; each site profile gets its own parser,
+ * and parsed pages are cached per parser, so the same URL read with another
+ * profile is parsed with that profile's rules.
+ */
+public class JsoupExtractionEngine implements ExtractionEngine {
+    private static final int MAX_PARSED_PAGES = 1000;
+
+    private final HttpPageFetcher fetcher;
+    private final BookPageParser parser;
+    private final Map<SiteProfile, BookPageParser> profileParsers = new ConcurrentHashMap<>();
+    private final Map<PageKey, PageResult> parsedPages = Collections.synchronizedMap(
+        new LinkedHashMap<PageKey, PageResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PageKey, PageResult> eldest) {
+                return size() > MAX_PARSED_PAGES;
+            }
+        });
+
+    public JsoupExtractionEngine() {
+        this(new HttpPageFetcher());
+    }
+
+    /**
+     * @param cache on-disk page cache used for conditional revalidation
+     */
+    public JsoupExtractionEngine(PageCache cache) {
+        this(new HttpPageFetcher(cache));
+    }
+
+    public JsoupExtractionEngine(HttpPageFetcher fetcher) {
+        this.fetcher = fetcher;
+        this.parser = new BookPageParser();
+    }
+
+    @Override
+    public PageResult extractPage(String pageUrl) throws IOException {
+        return extractPage(pageUrl, parser);
+    }
+
+    @Override
+    public PageResult extractPage(String pageUrl, SiteProfile profile) throws IOException {
+        return extractPage(pageUrl, profile.isBuiltIn() ? parser
+            : profileParsers.computeIfAbsent(profile, BookPageParser::new));
+    }
+
+    private PageResult extractPage(String pageUrl, BookPageParser parser) throws IOException {
+        ScraperMetrics metrics = ScraperMetrics.get();
+        long start = System.nanoTime();
+        HttpPageFetcher.FetchResult fetched = fetcher.fetch(pageUrl);
+        metrics.getPageFetchSeconds().recordNanos(System.nanoTime() - start);
+
+        PageKey key = new PageKey(parser, pageUrl);
+        if (fetched.isUnchanged()) {
+            PageResult parsed = parsedPages.get(key);
+            if (parsed != null) {
+                return copyOf(parsed);
+            }
+        }
+
+        start = System.nanoTime();
+        PageResult result = parser.parse(fetched.getBody(), pageUrl);
+        metrics.getParseSeconds().recordNanos(System.nanoTime() - start);
+        parsedPages.put(key, copyOf(result));
+        return result;
+    }
+
+    private static PageResult copyOf(PageResult result) {
+        List<Book> books = new ArrayList<>(result.getBooks().size());
+        for (Book book : result.getBooks()) {
+            books.add(new Book(book));
+        }
+        return new PageResult(books, result.hasNextPage(), result.getTotalPages());
+    }
+
+    /**
+     * Cache key of a parsed page: the parser that read it and its URL
+     */
+    private static final class PageKey {
+        private final BookPageParser parser;
+        private final String url;
+
+        PageKey(BookPageParser parser, String url) {
+            this.parser = parser;
+            this.url = url;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof PageKey)) {
+                return false;
+            }
+            PageKey key = (PageKey) other;
+            return parser == key.parser && url.equals(key.url);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(parser) + url.hashCode();
+        }
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+        // HttpClient has no explicit shutdown on Java 11; nothing to release
+    }
+}
@@ -0,0 +1,100 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * End-to-end load test against a local SyntheticCatalogueServer. Runs each
+ * extraction mode over the same generated catalogue and reports books/sec,
+ * p50/p99 page latency and peak heap.
+ *
+ * Usage: LoadTestRunner [pages] [latencyMs] [errorRate] [pageSizeBytes] [concurrency] [--selenium]
+ */
+public class LoadTestRunner {
+    private static final int BOOKS_PER_PAGE = 20;
+    // The synthetic server is local, so politeness limits only get in the way
+    private static final double UNLIMITED_REQUESTS_PER_SECOND = 1_000_000;
+
+    public static void main(String[] args) throws Exception {
+        int pages = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long latencyMillis = args.length > 1 ? Long.parseLong(args[1]) : 20;
+        double errorRate = args.length > 2 ? Double.parseDouble(args[2]) : 0.0;
+        int pageSizeBytes = args.length > 3 ? Integer.parseInt(args[3]) : 50 * 1024;
+        int concurrency = args.length > 4 ? Integer.parseInt(args[4]) : 16;
+        boolean includeSelenium = args.length > 5 && args[5].equals("--selenium");
+
+        System.out.println("=== Synthetic Catalogue Load Test ===");
+        System.out.println("Pages: " + pages + ", latency: " + latencyMillis + " ms, error rate: " + errorRate
+            + ", page size: " + pageSizeBytes + " bytes, concurrency: " + concurrency);
+
+        try (SyntheticCatalogueServer server =
+                 new SyntheticCatalogueServer(pages, BOOKS_PER_PAGE, latencyMillis, errorRate, pageSizeBytes)) {
+            String baseUrl = server.start(0);
+            System.out.println("Serving catalogue at " + baseUrl + "\n");
+
+            List<String> report = new ArrayList<>();
+            report.add(run("jsoup-sequential", new JsoupExtractionEngine(), baseUrl, 1));
+            report.add(run("jsoup-concurrent", new JsoupExtractionEngine(), baseUrl, concurrency));
+            if (includeSelenium) {
+                report.add(run("selenium-concurrent", new SeleniumExtractionEngine(), baseUrl, concurrency));
+            }
+
+            System.out.println("\n=== Load Test Results ===");
+            System.out.println(String.format("%-22s %10s %12s %10s %10s %12s",
+                "Mode", "Books", "Books/sec", "p50 ms", "p99 ms", "Peak heap"));
+            report.forEach(System.out::println);
+            System.out.println("\nServer requests: " + server.getRequestCount()
+                + ", injected errors: " + server.getErrorCount());
+            ScraperMetrics.get().printReport();
+        }
+    }
+
+    /**
+     * Runs one extraction mode and formats its result line
+     */
+    private static String run(String mode, ExtractionEngine engine, String baseUrl, int concurrency) {
+        TimedExtractionEngine timed = new TimedExtractionEngine(engine);
+        BookExtractor extractor = new BookExtractor(timed, baseUrl);
+        extractor.setRateLimiter(new HostRateLimiter(UNLIMITED_REQUESTS_PER_SECOND, concurrency));
+
+        System.gc();
+        resetPeakHeap();
+        long start = System.nanoTime();
+        int books;
+        try {
+            books = concurrency > 1
+                ? extractor.extractAllBooksConcurrently(concurrency, book -> { })
+                : extractor.extractAllBooks(book -> { });
+        } finally {
+            extractor.close();
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        long peakHeap = peakHeapBytes();
+
+        return String.format("%-22s %10d %12.1f %10.1f %10.1f %9.1f MB",
+            mode, books, books / seconds,
+            timed.getLatencyPercentileMillis(50), timed.getLatencyPercentileMillis(99),
+            peakHeap / (1024.0 * 1024.0));
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long peakHeapBytes() {
+        long total = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                total += pool.getPeakUsage().getUsed();
+            }
+        }
+        return total;
+    }
+}
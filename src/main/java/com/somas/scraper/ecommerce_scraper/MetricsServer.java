@@ -0,0 +1,49 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Small local HTTP endpoint exposing ScraperMetrics:
+ * /metrics in Prometheus text format and /metrics.json as JSON
+ */
+public class MetricsServer implements AutoCloseable {
+    private final HttpServer server;
+
+    /**
+     * Starts the endpoint on the loopback interface
+     * @param port port to bind, 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public MetricsServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.createContext("/metrics", exchange ->
+            send(exchange, "text/plain; version=0.0.4; charset=utf-8", ScraperMetrics.get().toPrometheusText()));
+        server.createContext("/metrics.json", exchange ->
+            send(exchange, "application/json", ScraperMetrics.get().toJson()));
+        server.start();
+        System.out.println("Metrics available at http://127.0.0.1:" + getPort() + "/metrics");
+    }
+
+    private void send(HttpExchange exchange, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
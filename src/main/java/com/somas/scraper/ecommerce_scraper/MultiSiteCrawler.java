@@ -0,0 +1,98 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Crawls several configured sites at once on one shared extraction engine.
+ * Every site runs on its own thread with its own BookExtractor, so it keeps
+ * the concurrency and request rate of its profile regardless of how many
+ * other sites are being crawled; the engine, its HTTP client or browser
+ * pool and its parsed-page cache are shared by all of them.
+ */
+public class MultiSiteCrawler {
+    private final ExtractionEngine engine;
+    private final List<SiteProfile> profiles;
+    private RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+
+    /**
+     * @param engine engine shared by every site; not closed by the crawler
+     * @param profiles sites to crawl; names must be unique, as they key the results and output files
+     */
+    public MultiSiteCrawler(ExtractionEngine engine, List<SiteProfile> profiles) {
+        if (profiles.isEmpty()) {
+            throw new IllegalArgumentException("At least one site profile is required");
+        }
+        Set<String> names = new HashSet<>();
+        for (SiteProfile profile : profiles) {
+            if (!names.add(profile.getName())) {
+                throw new IllegalArgumentException("Duplicate site profile name: " + profile.getName());
+            }
+        }
+        this.engine = engine;
+        this.profiles = new ArrayList<>(profiles);
+    }
+
+    /**
+     * Replaces the retry policy applied to every page load
+     * @param retryPolicy policy to use
+     * @return this crawler
+     */
+    public MultiSiteCrawler retryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
+    /**
+     * Crawls every site into its own CSV file named "&lt;site&gt;_&lt;fileSuffix&gt;"
+     * @param fileSuffix shared end of the file names, e.g. "books_2024-01-01_12-00-00.csv"
+     * @return books extracted per site name, -1 for a site whose crawl failed
+     */
+    public Map<String, Integer> crawl(String fileSuffix) {
+        BookCSVWriter csvWriter = new BookCSVWriter();
+        ExecutorService executor = Executors.newFixedThreadPool(profiles.size(), runnable -> {
+            Thread thread = new Thread(runnable, "site-crawler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Map<String, Future<Integer>> running = new LinkedHashMap<>();
+        try {
+            for (SiteProfile profile : profiles) {
+                String filename = profile.getName() + "_" + fileSuffix;
+                running.put(profile.getName(), executor.submit(() -> crawlSite(profile, csvWriter, filename)));
+            }
+
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            for (Map.Entry<String, Future<Integer>> site : running.entrySet()) {
+                try {
+                    counts.put(site.getKey(), site.getValue().get());
+                } catch (ExecutionException e) {
+                    System.err.println("Crawl of " + site.getKey() + " failed: " + e.getCause().getMessage());
+                    counts.put(site.getKey(), -1);
+                }
+            }
+            return counts;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while crawling sites", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private int crawlSite(SiteProfile profile, BookCSVWriter csvWriter, String filename) {
+        BookExtractor extractor = new BookExtractor(engine, profile);
+        extractor.setRetryPolicy(retryPolicy);
+        try (CsvBookSink sink = csvWriter.openStreamingSink(filename)) {
+            return extractor.extractAllBooksConcurrently(profile.getMaxConcurrency(), sink);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Command-line entry point for crawling several configured sites at once:
+ * <pre>
+ * MultiSiteMain &lt;profile.properties&gt;... [--engine jsoup|selenium]
+ * </pre>
+ * Each site is written to "&lt;site&gt;_books_&lt;timestamp&gt;.csv". See
+ * sites/books-toscrape.properties for the profile format.
+ */
+public class MultiSiteMain {
+
+    public static void main(String[] args) {
+        EngineType engineType = EngineType.JSOUP;
+        List<SiteProfile> profiles = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--engine") && i + 1 < args.length) {
+                    engineType = EngineType.valueOf(args[++i].toUpperCase());
+                } else if (args[i].startsWith("--")) {
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+                } else {
+                    SiteProfile profile = SiteProfile.load(Paths.get(args[i]));
+                    if (!names.add(profile.getName())) {
+                        throw new IllegalArgumentException("Two profiles are named " + profile.getName()
+                            + "; site names must be unique (" + args[i] + ")");
+                    }
+                    profiles.add(profile);
+                }
+            }
+            if (profiles.isEmpty()) {
+                throw new IllegalArgumentException("No site profiles given");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            printUsage();
+            System.exit(2);
+        } catch (Exception e) {
+            System.err.println("Could not load site profile: " + e.getMessage());
+            System.exit(1);
+        }
+
+        String fileSuffix = "books_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss")) + ".csv";
+        int exitCode = 0;
+        try (ExtractionEngine engine = engineType.create()) {
+            Map<String, Integer> counts = new MultiSiteCrawler(engine, profiles).crawl(fileSuffix);
+            System.out.println("\n=== SITES ===");
+            for (Map.Entry<String, Integer> site : counts.entrySet()) {
+                System.out.println(site.getKey() + ": " + (site.getValue() < 0 ? "failed" : site.getValue() + " books"));
+                if (site.getValue() < 0) {
+                    exitCode = 1;
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Multi-site crawl failed: " + e.getMessage());
+            e.printStackTrace();
+            exitCode = 1;
+        }
+        ScraperMetrics.get().printReport();
+        System.exit(exitCode);
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage:");
+        System.out.println("  MultiSiteMain <profile.properties>... [--engine jsoup|selenium]");
+    }
+}
@@ -0,0 +1,34 @@
+package com.somas.scraper.ecommerce_scraper;
+
+/**
+ * Files produced by an export: the CSV files, the compact binary snapshot,
+ * both, or rotating compressed segments in the archive directory
+ */
+public enum OutputFormat {
+    CSV(true, false, false),
+    BINARY(false, true, false),
+    BOTH(true, true, false),
+    ARCHIVE(false, false, true);
+
+    private final boolean csv;
+    private final boolean binary;
+    private final boolean archive;
+
+    OutputFormat(boolean csv, boolean binary, boolean archive) {
+        this.csv = csv;
+        this.binary = binary;
+        this.archive = archive;
+    }
+
+    public boolean includesCsv() {
+        return csv;
+    }
+
+    public boolean includesBinary() {
+        return binary;
+    }
+
+    public boolean includesArchive() {
+        return archive;
+    }
+}
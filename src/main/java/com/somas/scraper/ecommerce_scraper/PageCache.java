@@ -0,0 +1,296 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Persistent page cache keyed by URL. Each entry keeps the response body
+ * plus its ETag / Last-Modified validators so later runs can revalidate
+ * with a conditional request instead of downloading the page again.
+ *
+ * Entries younger than the TTL are served without touching the network.
+ * The cache is bounded by total body bytes and evicts the least recently
+ * used entries first.
+ */
+public class PageCache {
+    private static final String BODY_SUFFIX = ".body";
+    private static final String META_SUFFIX = ".meta";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Duration ttl;
+    private final LinkedHashMap<String, CachedPage> index = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    /**
+     * Opens the cache, loading the index of any entries already on disk
+     * @param directory directory holding cached pages, created if missing
+     * @param maxBytes maximum total size of cached bodies
+     * @param ttl age below which entries are served without revalidation
+     */
+    public PageCache(Path directory, long maxBytes, Duration ttl) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.ttl = ttl;
+        try {
+            Files.createDirectories(directory);
+            loadIndex();
+        } catch (IOException e) {
+            System.err.println("Error opening page cache: " + e.getMessage());
+            throw new RuntimeException("Failed to open page cache", e);
+        }
+    }
+
+    private void loadIndex() throws IOException {
+        List<CachedPage> pages = new ArrayList<>();
+        try (DirectoryStream<Path> metaFiles = Files.newDirectoryStream(directory, "*" + META_SUFFIX)) {
+            for (Path metaFile : metaFiles) {
+                try (InputStream in = Files.newInputStream(metaFile)) {
+                    Properties meta = new Properties();
+                    meta.load(in);
+                    pages.add(CachedPage.fromProperties(meta));
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Skipping unreadable cache entry " + metaFile + ": " + e.getMessage());
+                }
+            }
+        }
+        // Oldest first so the least recently stored entries are evicted first
+        pages.sort(Comparator.comparingLong(CachedPage::getStoredAtMillis));
+        for (CachedPage page : pages) {
+            index.put(page.getUrl(), page);
+            totalBytes += page.getSizeBytes();
+        }
+        evictIfNeeded();
+    }
+
+    /**
+     * Looks up a cached page
+     * @param url page URL
+     * @return cached entry, or null if the URL is not cached
+     */
+    public synchronized CachedPage get(String url) {
+        return index.get(url);
+    }
+
+    /**
+     * Whether an entry may be served without revalidating it
+     * @param page cached entry
+     * @return true if the entry is younger than the TTL
+     */
+    public boolean isFresh(CachedPage page) {
+        return System.currentTimeMillis() - page.getStoredAtMillis() < ttl.toMillis();
+    }
+
+    /**
+     * Reads the body of a cached entry
+     * @param page cached entry
+     * @return page body
+     * @throws IOException if the body file is missing or unreadable
+     */
+    public String readBody(CachedPage page) throws IOException {
+        return new String(Files.readAllBytes(bodyFile(page.getUrl())), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Stores a freshly downloaded page, replacing any previous entry
+     * @param url page URL
+     * @param body response body
+     * @param etag ETag header value, may be null
+     * @param lastModified Last-Modified header value, may be null
+     */
+    public synchronized void put(String url, String body, String etag, String lastModified) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        CachedPage page = new CachedPage(url, etag, lastModified, System.currentTimeMillis(), bytes.length);
+        try {
+            writeAtomically(bodyFile(url), bytes);
+            writeMeta(page);
+        } catch (IOException e) {
+            // A cache write failure must never fail the scrape itself
+            System.err.println("Error writing page cache entry for " + url + ": " + e.getMessage());
+            return;
+        }
+        CachedPage previous = index.put(url, page);
+        if (previous != null) {
+            totalBytes -= previous.getSizeBytes();
+        }
+        totalBytes += page.getSizeBytes();
+        evictIfNeeded();
+    }
+
+    /**
+     * Records that the origin confirmed an entry is still current (HTTP 304)
+     * @param url page URL
+     */
+    public synchronized void markRevalidated(String url) {
+        CachedPage page = index.get(url);
+        if (page == null) {
+            return;
+        }
+        CachedPage refreshed = new CachedPage(url, page.getEtag(), page.getLastModified(),
+            System.currentTimeMillis(), page.getSizeBytes());
+        index.put(url, refreshed);
+        try {
+            writeMeta(refreshed);
+        } catch (IOException e) {
+            System.err.println("Error updating page cache entry for " + url + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Drops an entry, e.g. when its body file turned out to be missing
+     * @param url page URL
+     */
+    public synchronized void remove(String url) {
+        CachedPage page = index.remove(url);
+        if (page != null) {
+            totalBytes -= page.getSizeBytes();
+            deleteFiles(url);
+        }
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, CachedPage>> it = index.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            CachedPage eldest = it.next().getValue();
+            it.remove();
+            totalBytes -= eldest.getSizeBytes();
+            deleteFiles(eldest.getUrl());
+        }
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    private void writeMeta(CachedPage page) throws IOException {
+        Path tmp = Files.createTempFile(directory, "meta", ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            page.toProperties().store(out, null);
+        }
+        Files.move(tmp, metaFile(page.getUrl()), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void writeAtomically(Path target, byte[] bytes) throws IOException {
+        Path tmp = Files.createTempFile(directory, "body", ".tmp");
+        Files.write(tmp, bytes);
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void deleteFiles(String url) {
+        try {
+            Files.deleteIfExists(bodyFile(url));
+            Files.deleteIfExists(metaFile(url));
+        } catch (IOException e) {
+            System.err.println("Error deleting page cache entry for " + url + ": " + e.getMessage());
+        }
+    }
+
+    private Path bodyFile(String url) {
+        return directory.resolve(key(url) + BODY_SUFFIX);
+    }
+
+    private Path metaFile(String url) {
+        return directory.resolve(key(url) + META_SUFFIX);
+    }
+
+    /**
+     * File-system safe key for a URL
+     */
+    private static String key(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Metadata of one cached page
+     */
+    public static class CachedPage {
+        private final String url;
+        private final String etag;
+        private final String lastModified;
+        private final long storedAtMillis;
+        private final long sizeBytes;
+
+        CachedPage(String url, String etag, String lastModified, long storedAtMillis, long sizeBytes) {
+            this.url = url;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.storedAtMillis = storedAtMillis;
+            this.sizeBytes = sizeBytes;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public long getStoredAtMillis() {
+            return storedAtMillis;
+        }
+
+        public long getSizeBytes() {
+            return sizeBytes;
+        }
+
+        private Properties toProperties() {
+            Properties meta = new Properties();
+            meta.setProperty("url", url);
+            if (etag != null) {
+                meta.setProperty("etag", etag);
+            }
+            if (lastModified != null) {
+                meta.setProperty("lastModified", lastModified);
+            }
+            meta.setProperty("storedAt", Long.toString(storedAtMillis));
+            meta.setProperty("size", Long.toString(sizeBytes));
+            return meta;
+        }
+
+        private static CachedPage fromProperties(Properties meta) {
+            String url = meta.getProperty("url");
+            if (url == null) {
+                throw new IllegalArgumentException("missing url");
+            }
+            return new CachedPage(url,
+                meta.getProperty("etag"),
+                meta.getProperty("lastModified"),
+                Long.parseLong(meta.getProperty("storedAt", "0")),
+                Long.parseLong(meta.getProperty("size", "0")));
+        }
+    }
+}
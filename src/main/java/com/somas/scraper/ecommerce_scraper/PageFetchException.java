@@ -0,0 +1,82 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.io.IOException;
+
+/**
+ * A page could not be loaded. Carries the HTTP status code, if the server
+ * answered, so callers can tell the end of the catalogue (404) from
+ * throttling (429), server errors (5xx) and timeouts.
+ */
+public class PageFetchException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    /** Status code used when the server never answered, e.g. on a timeout */
+    public static final int NO_STATUS = -1;
+
+    private final String url;
+    private final int statusCode;
+    private final boolean timeout;
+    private final long retryAfterMillis;
+
+    /**
+     * @param url page that failed
+     * @param statusCode HTTP status code of the response
+     * @param retryAfterMillis delay requested by a Retry-After header, or -1
+     */
+    public PageFetchException(String url, int statusCode, long retryAfterMillis) {
+        super("HTTP " + statusCode + " for " + url);
+        this.url = url;
+        this.statusCode = statusCode;
+        this.timeout = false;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * Creates an exception for a page that did not load in time
+     * @param url page that failed
+     * @param cause underlying timeout
+     */
+    public PageFetchException(String url, Throwable cause) {
+        super("Timed out loading " + url, cause);
+        this.url = url;
+        this.statusCode = NO_STATUS;
+        this.timeout = true;
+        this.retryAfterMillis = -1;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return HTTP status code, or NO_STATUS if the server never answered
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public boolean isTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @return true if the page does not exist, which past the last page means the catalogue has ended
+     */
+    public boolean isNotFound() {
+        return statusCode == 404 || statusCode == 410;
+    }
+
+    /**
+     * @return true for throttling, server errors and timeouts, which signal an overloaded site
+     */
+    public boolean isOverload() {
+        return timeout || statusCode == 429 || statusCode >= 500;
+    }
+
+    /**
+     * @return delay requested by the server before retrying, or -1 if none
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -0,0 +1,41 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Books extracted from a single catalogue page together with its pagination state
+ */
+public class PageResult {
+    /** Marker for catalogues whose pager does not report a page count */
+    public static final int UNKNOWN_PAGE_COUNT = -1;
+
+    private final List<Book> books;
+    private final boolean hasNextPage;
+    private final int totalPages;
+
+    public PageResult(List<Book> books, boolean hasNextPage) {
+        this(books, hasNextPage, UNKNOWN_PAGE_COUNT);
+    }
+
+    public PageResult(List<Book> books, boolean hasNextPage, int totalPages) {
+        this.books = books == null ? Collections.emptyList() : books;
+        this.hasNextPage = hasNextPage;
+        this.totalPages = totalPages;
+    }
+
+    public List<Book> getBooks() {
+        return books;
+    }
+
+    public boolean hasNextPage() {
+        return hasNextPage;
+    }
+
+    /**
+     * @return number of catalogue pages reported by the pager, or UNKNOWN_PAGE_COUNT
+     */
+    public int getTotalPages() {
+        return totalPages;
+    }
+}
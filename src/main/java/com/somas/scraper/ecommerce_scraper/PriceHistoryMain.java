@@ -0,0 +1,233 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Command-line queries over the price history store:
+ * <pre>
+ * import  &lt;historyDir&gt; &lt;csv&gt;...                       load existing exports, one run per Scraped_At value
+ * history &lt;historyDir&gt; &lt;productUrlOrTitle&gt; [from] [to]   every observed price of one book
+ * scan    &lt;historyDir&gt; &lt;from&gt; &lt;to&gt;                     every observation in a date range
+ * movers  &lt;historyDir&gt; &lt;from&gt; &lt;to&gt; [count] [drops|rises] largest price changes in a date range
+ * stats   &lt;historyDir&gt;                                size of the store
+ * </pre>
+ * Dates are yyyy-MM-dd in the local time zone; a "to" date includes the whole day.
+ * Exports carry no product URL, so imported books are matched to scraped
+ * ones by title and "history" accepts either. Queries read the store
+ * without locking it, so they run while a scrape or an import is writing.
+ */
+public class PriceHistoryMain {
+    private static final DateTimeFormatter SCRAPED_AT_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int DEFAULT_MOVERS = 10;
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            printUsage();
+            System.exit(2);
+        }
+
+        if (args[0].equals("import")) {
+            try {
+                importCsv(Paths.get(args[1]), Arrays.asList(args).subList(2, args.length));
+            } catch (Exception e) {
+                System.err.println("Price history import failed: " + e.getMessage());
+                e.printStackTrace();
+                System.exit(1);
+            }
+            return;
+        }
+
+        try (PriceHistoryStore store = PriceHistoryStore.openReadOnly(Paths.get(args[1]))) {
+            switch (args[0]) {
+                case "history":
+                    requireArgs(args, 3);
+                    printHistory(store, args[2], args.length > 3 ? startOfDay(args[3]) : Long.MIN_VALUE,
+                        args.length > 4 ? endOfDay(args[4]) : Long.MAX_VALUE);
+                    break;
+                case "scan":
+                    requireArgs(args, 4);
+                    long[] rows = new long[1];
+                    store.scan(startOfDay(args[2]), endOfDay(args[3]), point -> {
+                        System.out.println(formatTime(point.getScrapedAtMillis()) + "  " + formatPrice(point.getPriceMinor())
+                            + "  " + (point.isInStock() ? "In stock    " : "Out of stock") + "  " + point.getTitle());
+                        rows[0]++;
+                    });
+                    System.out.println(rows[0] + " observations");
+                    break;
+                case "movers":
+                    requireArgs(args, 4);
+                    printMovers(store, startOfDay(args[2]), endOfDay(args[3]),
+                        args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_MOVERS,
+                        args.length <= 5 || !args[5].equals("rises"));
+                    break;
+                case "stats":
+                    System.out.println("Scrapes: " + store.getRunCount());
+                    System.out.println("Books: " + store.getBookCount());
+                    System.out.println("Observations: " + store.getRecordCount());
+                    if (store.getLatestRunMillis() >= 0) {
+                        System.out.println("Latest scrape: " + formatTime(store.getLatestRunMillis()));
+                    }
+                    break;
+                default:
+                    printUsage();
+                    System.exit(2);
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            System.err.println(e.getMessage());
+            printUsage();
+            System.exit(2);
+        } catch (Exception e) {
+            System.err.println("Price history query failed: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Imports CSV exports oldest scrape first. Scrapes already in the store
+     * are skipped; if any are older than its latest scrape, the store is
+     * rewritten with them backfilled in time order.
+     */
+    private static void importCsv(Path dir, List<String> files) throws IOException, CsvValidationException {
+        SortedMap<Long, List<Book>> runs = new TreeMap<>();
+        for (String file : files) {
+            // Exports are written in the platform charset
+            try (CSVReader reader = new CSVReader(new BufferedReader(new FileReader(file)))) {
+                String[] header = reader.readNext();
+                if (header == null) {
+                    continue;
+                }
+                List<String> columns = Arrays.asList(header);
+                int title = columns.indexOf("Title");
+                int price = columns.indexOf("Price");
+                int availability = columns.indexOf("Availability");
+                int scrapedAt = columns.indexOf("Scraped_At");
+                int url = columns.indexOf("Product_URL");
+                if (title < 0 || price < 0 || scrapedAt < 0) {
+                    System.err.println("Skipping " + file + ": no Title, Price and Scraped_At columns");
+                    continue;
+                }
+                String[] row;
+                while ((row = reader.readNext()) != null) {
+                    if (row.length <= Math.max(title, Math.max(price, scrapedAt))) {
+                        continue;
+                    }
+                    long millis = LocalDateTime.parse(row[scrapedAt], SCRAPED_AT_FORMAT)
+                        .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                    runs.computeIfAbsent(millis, k -> new ArrayList<>()).add(new Book(row[title], row[price],
+                        availability >= 0 && availability < row.length ? row[availability] : "",
+                        url >= 0 && url < row.length ? row[url] : null));
+                }
+            }
+        }
+
+        int skipped = 0;
+        long records = 0;
+        try (PriceHistoryStore store = PriceHistoryStore.open(dir)) {
+            for (Iterator<Long> scrapes = runs.keySet().iterator(); scrapes.hasNext(); ) {
+                if (store.hasRun(scrapes.next())) {
+                    scrapes.remove();
+                    skipped++;
+                }
+            }
+            if (!runs.isEmpty() && runs.firstKey() > store.getLatestRunMillis()) {
+                for (Map.Entry<Long, List<Book>> run : runs.entrySet()) {
+                    records += store.append(run.getValue(), run.getKey());
+                }
+                System.out.println("Imported " + runs.size() + " scrapes (" + records + " prices); skipped " + skipped
+                    + " already in the history");
+                return;
+            }
+        }
+        if (!runs.isEmpty()) {
+            System.out.println("Rewriting " + dir + " to backfill scrapes older than its latest one...");
+            records = PriceHistoryStore.backfill(dir, runs);
+        }
+        System.out.println("Imported " + runs.size() + " scrapes (" + records + " prices); skipped " + skipped
+            + " already in the history");
+    }
+
+    private static void printHistory(PriceHistoryStore store, String key, long from, long to) {
+        List<PriceHistoryStore.PricePoint> history = store.getHistory(key, from, to);
+        if (history.isEmpty()) {
+            System.out.println("No history for: " + key);
+            return;
+        }
+        System.out.println(history.get(0).getTitle());
+        long previous = Book.UNKNOWN_PRICE;
+        for (PriceHistoryStore.PricePoint point : history) {
+            String change = previous == Book.UNKNOWN_PRICE || point.getPriceMinor() == previous
+                ? "" : "  (" + formatChange(point.getPriceMinor() - previous) + ")";
+            System.out.println(formatTime(point.getScrapedAtMillis()) + "  " + formatPrice(point.getPriceMinor())
+                + "  " + (point.isInStock() ? "In stock" : "Out of stock") + change);
+            previous = point.getPriceMinor();
+        }
+    }
+
+    private static void printMovers(PriceHistoryStore store, long from, long to, int count, boolean drops) {
+        List<PriceHistoryStore.PriceMove> movers = store.getTopMovers(from, to, count, drops);
+        System.out.println("Largest price " + (drops ? "drops" : "rises") + ":");
+        for (PriceHistoryStore.PriceMove move : movers) {
+            System.out.println(formatChange(move.getChange()) + "  " + formatPrice(move.getFromPriceMinor())
+                + " -> " + formatPrice(move.getToPriceMinor()) + "  " + move.getTitle());
+        }
+        if (movers.isEmpty()) {
+            System.out.println("(none)");
+        }
+    }
+
+    private static void requireArgs(String[] args, int count) {
+        if (args.length < count) {
+            throw new IllegalArgumentException("Missing arguments for " + args[0]);
+        }
+    }
+
+    private static long startOfDay(String date) {
+        return LocalDate.parse(date).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static long endOfDay(String date) {
+        return LocalDate.parse(date).plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli() - 1;
+    }
+
+    private static String formatTime(long millis) {
+        return SCRAPED_AT_FORMAT.format(Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault()));
+    }
+
+    private static String formatPrice(long priceMinor) {
+        return priceMinor == Book.UNKNOWN_PRICE ? "?" : String.format("%d.%02d", priceMinor / 100, priceMinor % 100);
+    }
+
+    private static String formatChange(long changeMinor) {
+        return (changeMinor < 0 ? "-" : "+") + formatPrice(Math.abs(changeMinor));
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage:");
+        System.out.println("  PriceHistoryMain import  <historyDir> <csv>...");
+        System.out.println("  PriceHistoryMain history <historyDir> <productUrlOrTitle> [fromDate] [toDate]");
+        System.out.println("  PriceHistoryMain scan    <historyDir> <fromDate> <toDate>");
+        System.out.println("  PriceHistoryMain movers  <historyDir> <fromDate> <toDate> [count] [drops|rises]");
+        System.out.println("  PriceHistoryMain stats   <historyDir>");
+        System.out.println("Dates are yyyy-MM-dd.");
+    }
+}
@@ -0,0 +1,1142 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Embedded append-only store of every price observed for every book, so
+ * price histories and movers can be answered without re-reading old exports.
+ *
+ * Files in the store directory:
+ * <pre>
+ * segment-NNNNNN.log  fixed 24-byte records: int bookId | int flags | long scrapedAtMillis | long priceMinor
+ * books.dict          book dictionary: (int keyLength | key UTF-8 | int titleLength | title UTF-8) per book
+ * runs.idx            time index, one 24-byte entry per scrape:
+ *                     long scrapedAtMillis | long firstRecord | int recordCount | int dictionarySize
+ * postings.idx        book index checkpoint: record numbers of each book, written on close
+ * </pre>
+ * Records are numbered globally and a segment holds RECORDS_PER_SEGMENT of
+ * them, so a record is located by arithmetic alone. A scrape's records and
+ * new dictionary entries are fsync'd before its runs.idx entry is appended;
+ * on open, anything past the last complete run is truncated, and records
+ * newer than the postings checkpoint are indexed by scanning the log tail.
+ *
+ * Books are keyed by product URL. CSV exports carry no URL, so imported
+ * books are keyed by title and joined to the scraped book of the same
+ * title: an imported title resolves to an existing URL-keyed book, and
+ * the first URL-keyed book with an imported title takes over its history.
+ * The joins follow from dictionary order, so they are rebuilt on open
+ * rather than stored. If two scraped books share a title, imports join
+ * the first of them.
+ *
+ * Runs must be appended in scrape-time order, which keeps every book's
+ * records sorted by time for binary search; older scrapes are merged in
+ * by backfill, which rewrites the store. A sibling "&lt;dir&gt;.lock" file
+ * serialises writers across processes, e.g. an import next to a scrape.
+ * Readers opened with openReadOnly take no lock: they see the runs
+ * committed when they opened and never write, so queries do not wait for
+ * a scrape or an import.
+ */
+public class PriceHistoryStore implements AutoCloseable {
+    static final int RECORD_SIZE = 24;
+    static final int RUN_ENTRY_SIZE = 24;
+    static final long RECORDS_PER_SEGMENT = 1 << 20;
+    private static final int POSTINGS_MAGIC = 0x50485332; // "PHS2", postings per joined history
+    private static final int IN_STOCK_FLAG = 1;
+    private static final int READ_ONLY_OPEN_ATTEMPTS = 20;
+    private static final long READ_ONLY_RETRY_MILLIS = 100;
+
+    private final Path dir;
+    private final RunLock lock;
+    private final boolean readOnly;
+    private final FileChannel dictionaryChannel;
+    private final FileChannel runsChannel;
+    private final Map<String, Integer> bookIds = new HashMap<>();
+    private final List<String> keys = new ArrayList<>();
+    private final List<String> titles = new ArrayList<>();
+    private final List<Integer> historyIds = new ArrayList<>();
+    private final Map<String, Integer> titleIds = new HashMap<>();
+    private final List<Run> runs = new ArrayList<>();
+    private final Map<Integer, FileChannel> segmentChannels = new HashMap<>();
+    private final Map<Integer, MappedByteBuffer> segmentMaps = new HashMap<>();
+    private long[][] postings = new long[0][];
+    private int[] postingCounts = new int[0];
+    private long recordCount;
+    private boolean postingsDirty;
+    private RunAppender openRun;
+
+    private PriceHistoryStore(Path dir, RunLock lock) throws IOException {
+        this(dir, lock, false);
+    }
+
+    private PriceHistoryStore(Path dir, RunLock lock, boolean readOnly) throws IOException {
+        this.dir = readOnly ? dir : Files.createDirectories(dir);
+        this.lock = lock;
+        this.readOnly = readOnly;
+        StandardOpenOption[] options = readOnly
+            ? new StandardOpenOption[] {StandardOpenOption.READ}
+            : new StandardOpenOption[] {StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE};
+        this.runsChannel = FileChannel.open(dir.resolve("runs.idx"), options);
+        FileChannel dictionary = null;
+        try {
+            dictionary = FileChannel.open(dir.resolve("books.dict"), options);
+            this.dictionaryChannel = dictionary;
+
+            int committedBooks = loadRuns();
+            loadDictionary(committedBooks);
+            if (readOnly) {
+                // Open every committed segment now, so a later backfill swap cannot mix two stores
+                for (long record = 0; record < recordCount; record += RECORDS_PER_SEGMENT) {
+                    segmentChannel((int) (record / RECORDS_PER_SEGMENT));
+                }
+            } else {
+                truncateSegments();
+            }
+        } catch (IOException e) {
+            closeChannels(dictionary);
+            throw e;
+        }
+        long indexed = loadPostings();
+        for (long record = indexed; record < recordCount; record++) {
+            addPosting(historyIds.get(readBookId(record)), record);
+        }
+        postingsDirty = indexed < recordCount;
+    }
+
+    /**
+     * Opens or creates a store, recovering from any interrupted append or
+     * backfill. Waits while another process has the store open.
+     * @param dir store directory
+     * @return open store; closing it releases the lock
+     */
+    public static PriceHistoryStore open(Path dir) {
+        RunLock lock = null;
+        try {
+            lock = lockStore(dir);
+            finishBackfill(dir);
+            return new PriceHistoryStore(dir, lock);
+        } catch (IOException e) {
+            if (lock != null) {
+                lock.close();
+            }
+            System.err.println("Error opening price history: " + e.getMessage());
+            throw new RuntimeException("Failed to open price history", e);
+        }
+    }
+
+    /**
+     * Opens the store for queries without taking the lock, so it never
+     * waits for a scrape or an import. The store shows the runs committed
+     * at the time it was opened; anything a writer has not committed yet is
+     * ignored rather than truncated, and nothing is written back.
+     * @param dir store directory
+     * @return read-only store; appending to it fails
+     * @throws IllegalArgumentException if there is no store in dir
+     */
+    public static PriceHistoryStore openReadOnly(Path dir) {
+        try {
+            for (int attempt = 1; ; attempt++) {
+                Path runsFile = dir.resolve("runs.idx");
+                if (!Files.exists(runsFile)) {
+                    if (!Files.exists(sibling(dir, ".old")) && !Files.exists(sibling(dir, ".rebuild"))) {
+                        throw new IllegalArgumentException("No price history in " + dir);
+                    }
+                } else {
+                    try {
+                        Object fileKey = Files.readAttributes(runsFile, BasicFileAttributes.class).fileKey();
+                        PriceHistoryStore store = new PriceHistoryStore(dir, null, true);
+                        // A backfill swaps in a new directory; only a store read from one directory is consistent
+                        if (fileKey == null
+                                || fileKey.equals(Files.readAttributes(runsFile, BasicFileAttributes.class).fileKey())) {
+                            return store;
+                        }
+                        store.close();
+                    } catch (NoSuchFileException e) {
+                        // Swapped out while opening; try again
+                    }
+                }
+                if (attempt == READ_ONLY_OPEN_ATTEMPTS) {
+                    throw new IOException("Price history in " + dir + " kept changing while it was opened");
+                }
+                Thread.sleep(READ_ONLY_RETRY_MILLIS);
+            }
+        } catch (IOException e) {
+            System.err.println("Error opening price history: " + e.getMessage());
+            throw new RuntimeException("Failed to open price history", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while opening price history", e);
+        }
+    }
+
+    /**
+     * Records one scrape, taking the lock only while its observations are
+     * written. A scrape older than the latest run, e.g. one that finished
+     * after a later scrape, is merged in by backfill.
+     * @param dir store directory
+     * @param books books observed by the scrape
+     * @param scrapedAtMillis time of the scrape
+     * @return number of records added
+     */
+    public static int record(Path dir, Collection<Book> books, long scrapedAtMillis) {
+        try (PriceHistoryStore store = open(dir)) {
+            if (scrapedAtMillis >= store.getLatestRunMillis()) {
+                return store.append(books, scrapedAtMillis);
+            }
+        }
+        SortedMap<Long, Collection<Book>> scrape = new TreeMap<>();
+        scrape.put(scrapedAtMillis, books);
+        return (int) backfill(dir, scrape);
+    }
+
+    /**
+     * Starts collecting a scrape's observations in memory, so the store is
+     * only locked when the scrape is recorded on close rather than for the
+     * whole crawl. Only the fields the store keeps are retained per book.
+     * @param dir store directory
+     * @param scrapedAtMillis time of the scrape
+     * @return sink to feed the scrape's books into
+     */
+    public static PendingRun bufferRun(Path dir, long scrapedAtMillis) {
+        return new PendingRun(dir, scrapedAtMillis);
+    }
+
+    /**
+     * A scrape waiting to be recorded. Closing it records the scrape.
+     */
+    public static class PendingRun implements BookSink {
+        private final Path dir;
+        private final long scrapedAtMillis;
+        private final List<Book> books = new ArrayList<>();
+        private boolean recorded;
+
+        private PendingRun(Path dir, long scrapedAtMillis) {
+            this.dir = dir;
+            this.scrapedAtMillis = scrapedAtMillis;
+        }
+
+        @Override
+        public synchronized void accept(Book book) {
+            if (recorded) {
+                throw new IllegalStateException("Run is already recorded");
+            }
+            books.add(new Book(book.getTitle(), book.getPrice(), book.getAvailability(), book.getProductUrl()));
+        }
+
+        /**
+         * Records the scrape in the store
+         * @return number of records added
+         */
+        public synchronized int commit() {
+            if (recorded) {
+                return 0;
+            }
+            recorded = true;
+            return books.isEmpty() ? 0 : record(dir, books, scrapedAtMillis);
+        }
+
+        @Override
+        public void close() {
+            commit();
+        }
+    }
+
+    /**
+     * Merges scrapes into the store regardless of their time, e.g. exports
+     * older than the latest scrape. Runs must stay in time order, so the
+     * store is rewritten into "&lt;dir&gt;.rebuild" with the new scrapes in
+     * place and swapped in while the lock is held. Scrapes whose time is
+     * already in the store are skipped.
+     * @param dir store directory
+     * @param scrapes books observed per scrape time
+     * @return number of records added
+     */
+    public static long backfill(Path dir, SortedMap<Long, ? extends Collection<Book>> scrapes) {
+        Path rebuilt = sibling(dir, ".rebuild");
+        Path replaced = sibling(dir, ".old");
+        try (RunLock lock = lockStore(dir)) {
+            finishBackfill(dir);
+            long added = 0;
+            try (PriceHistoryStore store = new PriceHistoryStore(dir, null);
+                 PriceHistoryStore target = new PriceHistoryStore(rebuilt, null)) {
+                Iterator<? extends Map.Entry<Long, ? extends Collection<Book>>> pending = scrapes.entrySet().iterator();
+                Map.Entry<Long, ? extends Collection<Book>> next = pending.hasNext() ? pending.next() : null;
+                for (Run run : store.runs) {
+                    while (next != null && next.getKey() <= run.scrapedAtMillis) {
+                        if (next.getKey() < run.scrapedAtMillis) {
+                            added += target.append(next.getValue(), next.getKey());
+                        }
+                        next = pending.hasNext() ? pending.next() : null;
+                    }
+                    try (RunAppender copy = target.openRun(run.scrapedAtMillis)) {
+                        for (long record = run.firstRecord; record < run.firstRecord + run.recordCount; record++) {
+                            PricePoint point = store.readPoint(record);
+                            copy.add(point.getKey().equals(point.getTitle()) ? null : point.getKey(), point.getTitle(),
+                                point.isInStock(), point.getPriceMinor());
+                        }
+                    }
+                }
+                while (next != null) {
+                    added += target.append(next.getValue(), next.getKey());
+                    next = pending.hasNext() ? pending.next() : null;
+                }
+            }
+            // The rebuilt store is complete once closed; finishBackfill completes the swap after a crash
+            Files.move(dir, replaced, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(rebuilt, dir, StandardCopyOption.ATOMIC_MOVE);
+            deleteTree(replaced);
+            return added;
+        } catch (IOException e) {
+            System.err.println("Error backfilling price history: " + e.getMessage());
+            throw new RuntimeException("Failed to backfill price history", e);
+        }
+    }
+
+    private static RunLock lockStore(Path dir) throws IOException {
+        Path lockFile = sibling(dir, ".lock");
+        Files.createDirectories(lockFile.getParent());
+        return RunLock.acquire(lockFile);
+    }
+
+    /**
+     * Completes a backfill interrupted between its two renames and removes
+     * what an interrupted one left behind; called with the lock held
+     */
+    private static void finishBackfill(Path dir) throws IOException {
+        Path rebuilt = sibling(dir, ".rebuild");
+        Path replaced = sibling(dir, ".old");
+        if (!Files.exists(dir) && Files.exists(replaced)) {
+            Files.move(Files.exists(rebuilt) ? rebuilt : replaced, dir, StandardCopyOption.ATOMIC_MOVE);
+        }
+        deleteTree(replaced);
+        deleteTree(rebuilt);
+    }
+
+    private static Path sibling(Path dir, String suffix) {
+        Path absolute = dir.toAbsolutePath().normalize();
+        return absolute.resolveSibling(absolute.getFileName() + suffix);
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Reads the complete runs.idx entries and drops a torn tail
+     * @return number of dictionary entries referenced by the last run
+     */
+    private int loadRuns() throws IOException {
+        long entries = runsChannel.size() / RUN_ENTRY_SIZE;
+        if (!readOnly) {
+            runsChannel.truncate(entries * RUN_ENTRY_SIZE);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) (entries * RUN_ENTRY_SIZE));
+        while (buffer.hasRemaining() && runsChannel.read(buffer, buffer.position()) >= 0) {
+            // Keep reading until the index is in memory
+        }
+        buffer.flip();
+        int dictionarySize = 0;
+        while (buffer.remaining() >= RUN_ENTRY_SIZE) {
+            Run run = new Run(buffer.getLong(), buffer.getLong(), buffer.getInt());
+            dictionarySize = buffer.getInt();
+            runs.add(run);
+            recordCount = run.firstRecord + run.recordCount;
+        }
+        runsChannel.position(runsChannel.size());
+        return dictionarySize;
+    }
+
+    /**
+     * Loads the committed dictionary entries and truncates entries written by an unfinished run
+     */
+    private void loadDictionary(int committedBooks) throws IOException {
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(dir.resolve("books.dict")), 64 * 1024))) {
+            while (keys.size() < committedBooks) {
+                String key = readString(in);
+                String title = readString(in);
+                addBook(key, title);
+                validLength += 8 + utf8Length(key) + utf8Length(title);
+            }
+        } catch (EOFException e) {
+            throw new IOException("Book dictionary is shorter than runs.idx expects");
+        }
+        if (!readOnly) {
+            dictionaryChannel.truncate(validLength);
+            dictionaryChannel.position(validLength);
+        }
+    }
+
+    /**
+     * Cuts segments back to the last committed record and removes segments past it
+     */
+    private void truncateSegments() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "segment-*.log")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                int segment = Integer.parseInt(name.substring("segment-".length(), name.length() - ".log".length()));
+                long firstRecord = segment * RECORDS_PER_SEGMENT;
+                long committed = Math.max(0, Math.min(RECORDS_PER_SEGMENT, recordCount - firstRecord));
+                if (committed == 0) {
+                    Files.delete(file);
+                } else if (Files.size(file) > committed * RECORD_SIZE) {
+                    segmentChannel(segment).truncate(committed * RECORD_SIZE);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads the postings checkpoint
+     * @return number of records it covers, 0 if missing or unusable
+     */
+    private long loadPostings() throws IOException {
+        Path file = dir.resolve("postings.idx");
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            if (in.readInt() != POSTINGS_MAGIC) {
+                return 0;
+            }
+            long indexed = in.readLong();
+            int books = in.readInt();
+            if (!readOnly && (indexed > recordCount || books > keys.size())) {
+                // Checkpoint is ahead of the recovered log; rebuild from scratch
+                return 0;
+            }
+            // A reader may see a checkpoint written after it read runs.idx; keep only
+            // postings of the runs it loaded. Records are in order, and books past its
+            // dictionary have no records in those runs.
+            ensureBooks(keys.size());
+            for (int book = 0; book < Math.min(books, keys.size()); book++) {
+                int count = in.readInt();
+                long[] records = new long[Math.max(4, count)];
+                int kept = 0;
+                for (int i = 0; i < count; i++) {
+                    long record = in.readLong();
+                    if (record < recordCount) {
+                        records[kept++] = record;
+                    }
+                }
+                postings[book] = records;
+                postingCounts[book] = kept;
+            }
+            return Math.min(indexed, recordCount);
+        } catch (IOException e) {
+            System.err.println("Rebuilding price history index: " + e.getMessage());
+            Arrays.fill(postingCounts, 0);
+            return 0;
+        }
+    }
+
+    /**
+     * Appends one scrape's observations as a single run
+     * @param books books observed by the scrape
+     * @param scrapedAtMillis time of the scrape; must not be before the latest run
+     * @return number of records appended
+     */
+    public synchronized int append(Collection<Book> books, long scrapedAtMillis) {
+        RunAppender run = openRun(scrapedAtMillis);
+        for (Book book : books) {
+            run.accept(book);
+        }
+        return run.commit();
+    }
+
+    /**
+     * Starts a run that is fed one book at a time, e.g. as a sink of a
+     * streaming scrape, so only 24 bytes per book are buffered rather than
+     * the books themselves. Records are written to the segments as the
+     * buffer fills but stay invisible until the run is committed.
+     * @param scrapedAtMillis time of the scrape; must not be before the latest run
+     * @return open run; commit or close it to make the records visible
+     */
+    public synchronized RunAppender openRun(long scrapedAtMillis) {
+        if (readOnly) {
+            throw new IllegalStateException("Price history was opened read-only");
+        }
+        if (!runs.isEmpty() && scrapedAtMillis < runs.get(runs.size() - 1).scrapedAtMillis) {
+            throw new IllegalArgumentException("Price history is append-only: scrape time " + scrapedAtMillis
+                + " is before the latest run");
+        }
+        if (openRun != null) {
+            throw new IllegalStateException("Another run is still open");
+        }
+        openRun = new RunAppender(scrapedAtMillis);
+        return openRun;
+    }
+
+    /**
+     * One scrape being appended. Closing the run commits it.
+     */
+    public class RunAppender implements BookSink {
+        private static final int BUFFERED_RECORDS = 4096;
+        private static final int BUFFERED_DICTIONARY_BYTES = 64 * 1024;
+
+        private final long scrapedAtMillis;
+        private final int firstNewBook;
+        private final long firstRecord;
+        private final long dictionaryStart;
+        private final long runsStart;
+        private final ByteBuffer records = ByteBuffer.allocate(BUFFERED_RECORDS * RECORD_SIZE);
+        private final Set<FileChannel> touched = new HashSet<>();
+        private ByteBuffer dictionary = ByteBuffer.allocate(4096);
+        private int[] recordBooks = new int[256];
+        private int count;
+        private long written;
+        private boolean finished;
+
+        private RunAppender(long scrapedAtMillis) {
+            this.scrapedAtMillis = scrapedAtMillis;
+            this.firstNewBook = keys.size();
+            this.firstRecord = recordCount;
+            try {
+                this.dictionaryStart = dictionaryChannel.position();
+                this.runsStart = runsChannel.position();
+            } catch (IOException e) {
+                openRun = null;
+                System.err.println("Error appending to price history: " + e.getMessage());
+                throw new RuntimeException("Failed to append to price history", e);
+            }
+        }
+
+        /**
+         * Adds one observation to the run; books with neither URL nor title are skipped
+         */
+        @Override
+        public void accept(Book book) {
+            String url = book.getProductUrl();
+            add(url == null || url.isEmpty() ? null : url, book.getTitle(), book.isInStock(), book.getPriceMinor());
+        }
+
+        private void add(String url, String title, boolean inStock, long priceMinor) {
+            synchronized (PriceHistoryStore.this) {
+                if (finished) {
+                    throw new IllegalStateException("Run is already committed");
+                }
+                if (url == null && (title == null || title.isEmpty())) {
+                    return;
+                }
+                try {
+                    Integer id = url != null ? bookIds.get(url) : lookup(title);
+                    if (id == null) {
+                        id = addBook(url != null ? url : title, title == null ? "" : title);
+                        dictionary = putString(putString(dictionary, keys.get(id)), titles.get(id));
+                        if (dictionary.position() >= BUFFERED_DICTIONARY_BYTES) {
+                            writeDictionary();
+                        }
+                    }
+                    records.putInt(id)
+                        .putInt(inStock ? IN_STOCK_FLAG : 0)
+                        .putLong(scrapedAtMillis)
+                        .putLong(priceMinor);
+                    if (count == recordBooks.length) {
+                        recordBooks = Arrays.copyOf(recordBooks, count * 2);
+                    }
+                    recordBooks[count++] = id;
+                    if (!records.hasRemaining()) {
+                        writeRecords();
+                    }
+                } catch (IOException e) {
+                    abort(e);
+                }
+            }
+        }
+
+        /**
+         * Makes the run durable and visible: the records and new dictionary
+         * entries are fsync'd before the runs.idx entry that commits them
+         * @return number of records appended
+         */
+        public int commit() {
+            synchronized (PriceHistoryStore.this) {
+                if (finished) {
+                    return count;
+                }
+                if (count == 0) {
+                    finished = true;
+                    openRun = null;
+                    return 0;
+                }
+                try {
+                    writeRecords();
+                    writeDictionary();
+                    for (FileChannel channel : touched) {
+                        channel.force(false);
+                    }
+                    dictionaryChannel.force(false);
+
+                    ByteBuffer entry = ByteBuffer.allocate(RUN_ENTRY_SIZE)
+                        .putLong(scrapedAtMillis).putLong(firstRecord).putInt(count).putInt(keys.size());
+                    entry.flip();
+                    while (entry.hasRemaining()) {
+                        runsChannel.write(entry);
+                    }
+                    runsChannel.force(false);
+                } catch (IOException e) {
+                    abort(e);
+                }
+                finished = true;
+                openRun = null;
+
+                runs.add(new Run(scrapedAtMillis, firstRecord, count));
+                ensureBooks(keys.size());
+                for (int i = 0; i < count; i++) {
+                    addPosting(historyIds.get(recordBooks[i]), firstRecord + i);
+                }
+                recordCount = firstRecord + count;
+                postingsDirty = true;
+                return count;
+            }
+        }
+
+        @Override
+        public void close() {
+            commit();
+        }
+
+        private void writeRecords() throws IOException {
+            records.flip();
+            long record = firstRecord + written;
+            written += records.remaining() / RECORD_SIZE;
+            PriceHistoryStore.this.writeRecords(records, record, touched);
+            records.clear();
+        }
+
+        private void writeDictionary() throws IOException {
+            dictionary.flip();
+            while (dictionary.hasRemaining()) {
+                dictionaryChannel.write(dictionary);
+            }
+            dictionary.clear();
+        }
+
+        /**
+         * Drops the run: forgets its new books and cuts off anything it wrote
+         */
+        private void discard() {
+            finished = true;
+            openRun = null;
+            for (int id = keys.size() - 1; id >= firstNewBook; id--) {
+                bookIds.remove(keys.remove(id));
+                titleIds.remove(titles.remove(id), id);
+                historyIds.remove(id);
+            }
+            try {
+                dictionaryChannel.truncate(dictionaryStart).position(dictionaryStart);
+                runsChannel.truncate(runsStart).position(runsStart);
+            } catch (IOException ignored) {
+                // The next open truncates the same tails
+            }
+        }
+
+        private void abort(IOException e) {
+            discard();
+            System.err.println("Error appending to price history: " + e.getMessage());
+            throw new RuntimeException("Failed to append to price history", e);
+        }
+    }
+
+    /**
+     * Writes records starting at the given record number, splitting them across segments as needed
+     * @param touched collects the channels written, to be forced before the run is committed
+     */
+    private void writeRecords(ByteBuffer records, long firstRecord, Set<FileChannel> touched) throws IOException {
+        long record = firstRecord;
+        while (records.hasRemaining()) {
+            int segment = (int) (record / RECORDS_PER_SEGMENT);
+            long offset = (record % RECORDS_PER_SEGMENT) * RECORD_SIZE;
+            int length = (int) Math.min(records.remaining(), (RECORDS_PER_SEGMENT * RECORD_SIZE) - offset);
+            ByteBuffer slice = records.duplicate();
+            slice.limit(slice.position() + length);
+            FileChannel channel = segmentChannel(segment);
+            while (slice.hasRemaining()) {
+                offset += channel.write(slice, offset);
+            }
+            records.position(records.position() + length);
+            record += length / RECORD_SIZE;
+            touched.add(channel);
+        }
+    }
+
+    /**
+     * Adds a dictionary entry and works out which history its records join
+     * @param key product URL, or the title for imported books
+     * @return id of the new entry
+     */
+    private int addBook(String key, String title) {
+        int id = keys.size();
+        int historyId = id;
+        if (!key.equals(title) && !title.isEmpty() && !titleIds.containsKey(title)) {
+            titleIds.put(title, id);
+            Integer imported = bookIds.get(title);
+            if (imported != null && keys.get(imported).equals(title)) {
+                historyId = historyIds.get(imported);
+            }
+        }
+        bookIds.put(key, id);
+        keys.add(key);
+        titles.add(title);
+        historyIds.add(historyId);
+        return id;
+    }
+
+    /**
+     * @return entry for a product URL or title, preferring an imported title over a scraped book's title
+     */
+    private Integer lookup(String key) {
+        Integer id = bookIds.get(key);
+        return id != null ? id : titleIds.get(key);
+    }
+
+    /**
+     * @param key product URL or title
+     * @return every observation of the book, oldest first
+     */
+    public synchronized List<PricePoint> getHistory(String key) {
+        return getHistory(key, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param key product URL or title; imported and scraped observations of a book are one history
+     * @param fromMillis start of the range, inclusive
+     * @param toMillis end of the range, inclusive
+     * @return observations of the book within the range, oldest first
+     */
+    public synchronized List<PricePoint> getHistory(String key, long fromMillis, long toMillis) {
+        Integer id = lookup(key);
+        if (id == null || (id = historyIds.get(id)) >= postingCounts.length) {
+            return Collections.emptyList();
+        }
+        long[] records = postings[id];
+        int count = postingCounts[id];
+        List<PricePoint> history = new ArrayList<>();
+        for (int i = firstAtOrAfter(records, count, fromMillis); i < count; i++) {
+            PricePoint point = readPoint(records[i]);
+            if (point.getScrapedAtMillis() > toMillis) {
+                break;
+            }
+            history.add(point);
+        }
+        return history;
+    }
+
+    /**
+     * Visits every observation recorded within a time range, in scrape order
+     * @param fromMillis start of the range, inclusive
+     * @param toMillis end of the range, inclusive
+     * @param visitor receives each observation
+     */
+    public synchronized void scan(long fromMillis, long toMillis, Consumer<PricePoint> visitor) {
+        int low = 0;
+        int high = runs.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (runs.get(mid).scrapedAtMillis < fromMillis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int r = low; r < runs.size() && runs.get(r).scrapedAtMillis <= toMillis; r++) {
+            Run run = runs.get(r);
+            for (long record = run.firstRecord; record < run.firstRecord + run.recordCount; record++) {
+                visitor.accept(readPoint(record));
+            }
+        }
+    }
+
+    /**
+     * Finds the books whose price changed most between their first and last
+     * observation within a time range
+     * @param fromMillis start of the range, inclusive
+     * @param toMillis end of the range, inclusive
+     * @param limit maximum number of books to return
+     * @param drops true for the largest price drops, false for the largest rises
+     * @return movers, largest change first
+     */
+    public synchronized List<PriceMove> getTopMovers(long fromMillis, long toMillis, int limit, boolean drops) {
+        // Heap keeps the smallest of the current top entries at its head
+        PriorityQueue<PriceMove> top = new PriorityQueue<>(Math.max(1, limit),
+            (a, b) -> drops ? Long.compare(b.getChange(), a.getChange()) : Long.compare(a.getChange(), b.getChange()));
+
+        for (int id = 0; id < postingCounts.length; id++) {
+            long[] records = postings[id];
+            int count = postingCounts[id];
+            int first = firstAtOrAfter(records, count, fromMillis);
+            int last = firstAtOrAfter(records, count, toMillis == Long.MAX_VALUE ? toMillis : toMillis + 1) - 1;
+            if (first >= last) {
+                continue;
+            }
+            long fromPrice = readPrice(records[first]);
+            long toPrice = readPrice(records[last]);
+            if (fromPrice == Book.UNKNOWN_PRICE || toPrice == Book.UNKNOWN_PRICE || fromPrice == toPrice) {
+                continue;
+            }
+            long change = toPrice - fromPrice;
+            if (drops ? change > 0 : change < 0) {
+                continue;
+            }
+            top.add(new PriceMove(keys.get(id), titles.get(id), readTime(records[first]), fromPrice,
+                readTime(records[last]), toPrice));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        List<PriceMove> movers = new ArrayList<>(top);
+        movers.sort(top.comparator().reversed());
+        return movers;
+    }
+
+    /**
+     * @return index of the first record at or after the given time
+     */
+    private int firstAtOrAfter(long[] records, int count, long millis) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (readTime(records[mid]) < millis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public synchronized int getRunCount() {
+        return runs.size();
+    }
+
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return number of distinct book histories
+     */
+    public synchronized int getBookCount() {
+        int books = 0;
+        for (int id = 0; id < historyIds.size(); id++) {
+            if (historyIds.get(id) == id) {
+                books++;
+            }
+        }
+        return books;
+    }
+
+    /**
+     * @return true if a run with exactly this scrape time is stored
+     */
+    public synchronized boolean hasRun(long scrapedAtMillis) {
+        int low = 0;
+        int high = runs.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (runs.get(mid).scrapedAtMillis < scrapedAtMillis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < runs.size() && runs.get(low).scrapedAtMillis == scrapedAtMillis;
+    }
+
+    /**
+     * @return scrape time of the latest run, or -1 if the store is empty
+     */
+    public synchronized long getLatestRunMillis() {
+        return runs.isEmpty() ? -1 : runs.get(runs.size() - 1).scrapedAtMillis;
+    }
+
+    /**
+     * Checkpoints the book index, closes every file and releases the lock
+     */
+    @Override
+    public synchronized void close() {
+        if (openRun != null) {
+            System.err.println("Discarding uncommitted price history run");
+            openRun.discard();
+        }
+        try {
+            if (postingsDirty && !readOnly) {
+                writePostings();
+            }
+            closeChannels(dictionaryChannel);
+        } catch (IOException e) {
+            System.err.println("Error closing price history: " + e.getMessage());
+            throw new RuntimeException("Failed to close price history", e);
+        } finally {
+            if (lock != null) {
+                lock.close();
+            }
+        }
+    }
+
+    private void closeChannels(FileChannel dictionary) throws IOException {
+        for (FileChannel channel : segmentChannels.values()) {
+            channel.close();
+        }
+        segmentChannels.clear();
+        segmentMaps.clear();
+        if (dictionary != null) {
+            dictionary.close();
+        }
+        runsChannel.close();
+    }
+
+    private void writePostings() throws IOException {
+        Path tmp = dir.resolve("postings.idx.tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 64 * 1024))) {
+            out.writeInt(POSTINGS_MAGIC);
+            out.writeLong(recordCount);
+            out.writeInt(keys.size());
+            for (int book = 0; book < keys.size(); book++) {
+                out.writeInt(postingCounts[book]);
+                for (int i = 0; i < postingCounts[book]; i++) {
+                    out.writeLong(postings[book][i]);
+                }
+            }
+        }
+        Files.move(tmp, dir.resolve("postings.idx"), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        postingsDirty = false;
+    }
+
+    private void ensureBooks(int books) {
+        if (postings.length < books) {
+            int capacity = Math.max(books, postings.length * 2);
+            postings = Arrays.copyOf(postings, capacity);
+            postingCounts = Arrays.copyOf(postingCounts, capacity);
+        }
+    }
+
+    private void addPosting(int book, long record) {
+        ensureBooks(book + 1);
+        long[] records = postings[book];
+        if (records == null) {
+            records = postings[book] = new long[4];
+        } else if (postingCounts[book] == records.length) {
+            records = postings[book] = Arrays.copyOf(records, records.length * 2);
+        }
+        records[postingCounts[book]++] = record;
+    }
+
+    private PricePoint readPoint(long record) {
+        ByteBuffer segment = segmentMap(record);
+        int position = (int) ((record % RECORDS_PER_SEGMENT) * RECORD_SIZE);
+        int id = segment.getInt(position);
+        return new PricePoint(keys.get(id), titles.get(id), segment.getLong(position + 8),
+            segment.getLong(position + 16), (segment.getInt(position + 4) & IN_STOCK_FLAG) != 0);
+    }
+
+    private int readBookId(long record) {
+        return segmentMap(record).getInt((int) ((record % RECORDS_PER_SEGMENT) * RECORD_SIZE));
+    }
+
+    private long readTime(long record) {
+        return segmentMap(record).getLong((int) ((record % RECORDS_PER_SEGMENT) * RECORD_SIZE) + 8);
+    }
+
+    private long readPrice(long record) {
+        return segmentMap(record).getLong((int) ((record % RECORDS_PER_SEGMENT) * RECORD_SIZE) + 16);
+    }
+
+    /**
+     * Maps the segment holding a record, remapping if it grew since it was last mapped
+     */
+    private MappedByteBuffer segmentMap(long record) {
+        int segment = (int) (record / RECORDS_PER_SEGMENT);
+        long end = (record % RECORDS_PER_SEGMENT + 1) * RECORD_SIZE;
+        MappedByteBuffer map = segmentMaps.get(segment);
+        if (map == null || map.capacity() < end) {
+            try {
+                FileChannel channel = segmentChannel(segment);
+                map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (IOException e) {
+                System.err.println("Error reading price history: " + e.getMessage());
+                throw new RuntimeException("Failed to read price history", e);
+            }
+            segmentMaps.put(segment, map);
+        }
+        return map;
+    }
+
+    private FileChannel segmentChannel(int segment) throws IOException {
+        FileChannel channel = segmentChannels.get(segment);
+        if (channel == null) {
+            Path file = dir.resolve(String.format("segment-%06d.log", segment));
+            channel = readOnly ? FileChannel.open(file, StandardOpenOption.READ)
+                : FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segmentChannels.put(segment, channel);
+        }
+        return channel;
+    }
+
+    private static ByteBuffer putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (buffer.remaining() < 4 + bytes.length) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + 4 + bytes.length));
+            buffer.flip();
+            buffer = grown.put(buffer);
+        }
+        return buffer.putInt(bytes.length).put(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int utf8Length(String value) {
+        return value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static class Run {
+        final long scrapedAtMillis;
+        final long firstRecord;
+        final int recordCount;
+
+        Run(long scrapedAtMillis, long firstRecord, int recordCount) {
+            this.scrapedAtMillis = scrapedAtMillis;
+            this.firstRecord = firstRecord;
+            this.recordCount = recordCount;
+        }
+    }
+
+    /**
+     * One observed price of one book
+     */
+    public static class PricePoint {
+        private final String key;
+        private final String title;
+        private final long scrapedAtMillis;
+        private final long priceMinor;
+        private final boolean inStock;
+
+        PricePoint(String key, String title, long scrapedAtMillis, long priceMinor, boolean inStock) {
+            this.key = key;
+            this.title = title;
+            this.scrapedAtMillis = scrapedAtMillis;
+            this.priceMinor = priceMinor;
+            this.inStock = inStock;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public long getScrapedAtMillis() {
+            return scrapedAtMillis;
+        }
+
+        /**
+         * @return price in minor currency units, or Book.UNKNOWN_PRICE
+         */
+        public long getPriceMinor() {
+            return priceMinor;
+        }
+
+        public boolean isInStock() {
+            return inStock;
+        }
+    }
+
+    /**
+     * Price change of one book between two observations
+     */
+    public static class PriceMove {
+        private final String key;
+        private final String title;
+        private final long fromMillis;
+        private final long fromPriceMinor;
+        private final long toMillis;
+        private final long toPriceMinor;
+
+        PriceMove(String key, String title, long fromMillis, long fromPriceMinor, long toMillis, long toPriceMinor) {
+            this.key = key;
+            this.title = title;
+            this.fromMillis = fromMillis;
+            this.fromPriceMinor = fromPriceMinor;
+            this.toMillis = toMillis;
+            this.toPriceMinor = toPriceMinor;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public long getFromMillis() {
+            return fromMillis;
+        }
+
+        public long getFromPriceMinor() {
+            return fromPriceMinor;
+        }
+
+        public long getToMillis() {
+            return toMillis;
+        }
+
+        public long getToPriceMinor() {
+            return toPriceMinor;
+        }
+
+        /**
+         * @return price difference in minor units; negative for a drop
+         */
+        public long getChange() {
+            return toPriceMinor - fromPriceMinor;
+        }
+    }
+}
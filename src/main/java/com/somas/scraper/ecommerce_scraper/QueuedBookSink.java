@@ -0,0 +1,105 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Decouples the fetch stage from the write stage. Books are handed to a
+ * dedicated writer thread through a bounded queue; when the writer falls
+ * behind, accept blocks, which applies backpressure to the extractor.
+ */
+public class QueuedBookSink implements BookSink {
+    private static final Object FLUSH = new Object();
+    private static final Object END = new Object();
+
+    private final BookSink downstream;
+    private final BlockingQueue<Object> queue;
+    private final Thread writerThread;
+    private volatile RuntimeException failure;
+    private boolean closed;
+
+    /**
+     * @param downstream sink run on the writer thread
+     * @param capacity maximum number of books buffered between the stages
+     */
+    public QueuedBookSink(BookSink downstream, int capacity) {
+        this.downstream = downstream;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writerThread = new Thread(this::drain, "book-sink-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                Object item = queue.take();
+                if (item == END) {
+                    break;
+                }
+                if (failure != null) {
+                    // Keep draining so producers never block on a dead writer
+                    continue;
+                }
+                try {
+                    if (item == FLUSH) {
+                        downstream.flush();
+                    } else {
+                        downstream.accept((Book) item);
+                    }
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void accept(Book book) {
+        put(book);
+    }
+
+    @Override
+    public void flush() {
+        put(FLUSH);
+    }
+
+    private void put(Object item) {
+        checkFailure();
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while queueing book for writing", e);
+        }
+    }
+
+    /**
+     * Waits for queued books to be written, then closes the downstream sink
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            queue.put(END);
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for book writer", e);
+        } finally {
+            downstream.close();
+        }
+        checkFailure();
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new RuntimeException("Book writer failed: " + failure.getMessage(), failure);
+        }
+    }
+}
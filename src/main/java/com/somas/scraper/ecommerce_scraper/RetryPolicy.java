@@ -0,0 +1,85 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import org.openqa.selenium.WebDriverException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether a failed page load is retried and how long to wait first.
+ * Delays grow exponentially with "full jitter": a random delay between zero
+ * and base * 2^attempt, capped, so retries from concurrent pages spread out
+ * instead of hitting the site in lockstep. A Retry-After header wins if it
+ * asks for a longer delay.
+ */
+public class RetryPolicy {
+    /** Three retries after the first attempt, starting around half a second */
+    public static final RetryPolicy DEFAULT = new RetryPolicy(4, 500, 30_000);
+    /** Fails on the first error, the behaviour before retries existed */
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0);
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    /**
+     * @param maxAttempts total attempts per page, including the first
+     * @param baseDelayMillis upper bound of the first retry delay
+     * @param maxDelayMillis cap on any single delay
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    /**
+     * @param failure error from the last attempt
+     * @param attempt 1-based number of the attempt that failed
+     * @return true if another attempt should be made
+     */
+    public boolean shouldRetry(Exception failure, int attempt) {
+        return attempt < maxAttempts && isRetryable(failure);
+    }
+
+    /**
+     * Missing pages and interrupts are final; throttling, server errors,
+     * timeouts, network errors and browser errors (WebDriverException, which
+     * includes Selenium's TimeoutException) are worth another try. Other
+     * unchecked exceptions are bugs that would fail the same way again.
+     */
+    static boolean isRetryable(Exception failure) {
+        if (failure instanceof PageFetchException) {
+            PageFetchException fetchFailure = (PageFetchException) failure;
+            return fetchFailure.isOverload() || fetchFailure.getStatusCode() == 408;
+        }
+        if (failure instanceof InterruptedIOException || failure instanceof InterruptedException) {
+            return false;
+        }
+        return failure instanceof IOException || failure instanceof WebDriverException;
+    }
+
+    /**
+     * @param failure error from the last attempt
+     * @param attempt 1-based number of the attempt that failed
+     * @return milliseconds to wait before the next attempt
+     */
+    public long delayMillis(Exception failure, int attempt) {
+        long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 20));
+        long delay = ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+        if (failure instanceof PageFetchException) {
+            long retryAfter = ((PageFetchException) failure).getRetryAfterMillis();
+            if (retryAfter > delay) {
+                delay = Math.min(retryAfter, maxDelayMillis);
+            }
+        }
+        return delay;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+}
@@ -0,0 +1,420 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Long-lived archive sink writing books as a series of compressed CSV
+ * segments, e.g. archive/books_2024-05-01_12-00-00_0001.csv.gz.
+ *
+ * A segment is written under a hidden ".part" name and renamed atomically to
+ * its final name once it is complete, so readers listing *.csv.gz only ever
+ * see whole files. A new segment starts when the current one reaches
+ * maxBytes on disk or has been open for maxAge.
+ *
+ * Writes are group-committed: rows are buffered and the segment is flushed
+ * through the compressor and fsync'd every commitEveryRows rows or
+ * commitEveryMillis milliseconds, whichever comes first, instead of on
+ * every page. Commits are driven by accept and flush calls, so a crash
+ * loses at most one group of rows.
+ *
+ * The writer holds a lock on its ".part" file. A part found unlocked when a
+ * sink is opened was left behind by a crash: its committed rows, up to the
+ * last complete line, are re-written as a complete segment under the name
+ * the part would have been published as, and the part is deleted.
+ */
+public class RotatingCsvSink implements BookSink {
+    private static final String PART_SUFFIX = ".part";
+
+    private final Path dir;
+    private final String prefix;
+    private final String timestamp;
+    private final Compression compression;
+    private long maxBytes = 64L * 1024 * 1024;
+    private long maxAgeMillis = Duration.ofHours(1).toMillis();
+    private int commitEveryRows = 1000;
+    private long commitEveryMillis = 1000;
+
+    private final List<Path> completedSegments = new ArrayList<>();
+    private Segment segment;
+    private int sequence;
+    private long rowCount;
+
+    /**
+     * Compression applied to each segment
+     */
+    public enum Compression {
+        NONE(".csv"),
+        GZIP(".csv.gz");
+
+        private final String extension;
+
+        Compression(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        OutputStream wrap(OutputStream out) throws IOException {
+            // Sync flush lets each group commit push complete deflate blocks to disk
+            return this == GZIP ? new GZIPOutputStream(out, 64 * 1024, true) : out;
+        }
+
+        InputStream unwrap(InputStream in) throws IOException {
+            return this == GZIP ? new GZIPInputStream(in, 64 * 1024) : in;
+        }
+    }
+
+    /**
+     * @param dir directory receiving the segments, created if missing
+     * @param prefix segment name prefix, e.g. "books"
+     * @param timestamp Scraped_At value written on every row
+     * @param compression compression applied to each segment
+     */
+    public RotatingCsvSink(Path dir, String prefix, String timestamp, Compression compression) {
+        this.dir = dir;
+        this.prefix = prefix;
+        this.timestamp = timestamp;
+        this.compression = compression;
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            System.err.println("Error creating archive directory: " + e.getMessage());
+            throw new RuntimeException("Failed to create archive directory", e);
+        }
+        try {
+            recoverParts();
+        } catch (IOException e) {
+            // Leftover parts are retried on the next open; they must not stop this archive
+            System.err.println("Error recovering archive segments: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sets when a new segment is started
+     * @param maxBytes segment size on disk that triggers rotation, 0 for no limit
+     * @param maxAge segment age that triggers rotation, or null for no limit
+     * @return this sink
+     */
+    public RotatingCsvSink rotateEvery(long maxBytes, Duration maxAge) {
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAge == null ? 0 : maxAge.toMillis();
+        return this;
+    }
+
+    /**
+     * Sets how often buffered rows are flushed and fsync'd
+     * @param rows rows between commits
+     * @param millis milliseconds between commits
+     * @return this sink
+     */
+    public RotatingCsvSink groupCommit(int rows, long millis) {
+        this.commitEveryRows = Math.max(1, rows);
+        this.commitEveryMillis = millis;
+        return this;
+    }
+
+    @Override
+    public void accept(Book book) {
+        try {
+            if (segment == null) {
+                segment = openSegment();
+            }
+            segment.encoder.writeBook(book);
+            segment.rows++;
+            rowCount++;
+            if (segment.rows - segment.committedRows >= commitEveryRows
+                    || System.currentTimeMillis() - segment.committedAtMillis >= commitEveryMillis) {
+                commit();
+            }
+            rotateIfDue();
+        } catch (IOException e) {
+            System.err.println("Error writing archive segment: " + e.getMessage());
+            throw new RuntimeException("Failed to write archive segment", e);
+        }
+    }
+
+    /**
+     * Commits at page boundaries only once the commit interval has passed
+     */
+    @Override
+    public void flush() {
+        if (segment == null) {
+            return;
+        }
+        try {
+            if (System.currentTimeMillis() - segment.committedAtMillis >= commitEveryMillis) {
+                commit();
+            }
+            rotateIfDue();
+        } catch (IOException e) {
+            System.err.println("Error flushing archive segment: " + e.getMessage());
+            throw new RuntimeException("Failed to flush archive segment", e);
+        }
+    }
+
+    /**
+     * Finishes and publishes the current segment
+     */
+    @Override
+    public void close() {
+        if (segment == null) {
+            return;
+        }
+        try {
+            publish();
+            System.out.println("Successfully wrote " + rowCount + " books to " + completedSegments.size()
+                + " archive segment(s) in: " + dir);
+        } catch (IOException e) {
+            System.err.println("Error closing archive segment: " + e.getMessage());
+            throw new RuntimeException("Failed to close archive segment", e);
+        }
+    }
+
+    /**
+     * Publishes the committed rows of parts orphaned by a crash
+     */
+    private void recoverParts() throws IOException {
+        List<Path> parts = new ArrayList<>();
+        try (DirectoryStream<Path> found = Files.newDirectoryStream(dir,
+                "." + prefix + "_*" + compression.getExtension() + PART_SUFFIX)) {
+            found.forEach(parts::add);
+        }
+        for (Path part : parts) {
+            String name = part.getFileName().toString();
+            Path target = dir.resolve(name.substring(1, name.length() - PART_SUFFIX.length()));
+            try (FileChannel channel = FileChannel.open(part, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                 FileLock lock = tryLock(channel)) {
+                if (lock == null || !Files.exists(part)) {
+                    // Still being written, or published while we looked
+                    continue;
+                }
+                if (Files.exists(target)) {
+                    // Published or recovered before a crash cut the cleanup short
+                    Files.delete(part);
+                    continue;
+                }
+                long length = committedLength(channel);
+                long rows = length < 0 ? 0 : recover(channel, length, target);
+                Files.delete(part);
+                if (rows > 0) {
+                    System.out.println("Recovered " + rows + " rows of an interrupted archive segment into: " + target);
+                } else {
+                    System.out.println("Removed interrupted archive segment without rows: " + part);
+                }
+            }
+        }
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Held by a sink in this JVM
+            return null;
+        }
+    }
+
+    /**
+     * Decompresses as much of a part as is readable
+     * @return length of the uncompressed prefix ending with its last complete line, or -1 if unreadable
+     */
+    private long committedLength(FileChannel channel) throws IOException {
+        channel.position(0);
+        long position = 0;
+        long lastLineEnd = -1;
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = compression.unwrap(Channels.newInputStream(new UnclosableChannel(channel)))) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                for (int i = 0; i < n; i++) {
+                    if (buffer[i] == '\n') {
+                        lastLineEnd = position + i + 1;
+                    }
+                }
+                position += n;
+            }
+        } catch (EOFException | ZipException e) {
+            // The torn tail after the last group commit
+        }
+        return lastLineEnd;
+    }
+
+    /**
+     * Copies the first length uncompressed bytes of a part into a complete segment
+     * @return number of data rows recovered
+     */
+    private long recover(FileChannel channel, long length, Path target) throws IOException {
+        channel.position(0);
+        Path tmp = target.resolveSibling("." + target.getFileName() + ".recover");
+        long lines = 0;
+        try (InputStream in = compression.unwrap(Channels.newInputStream(new UnclosableChannel(channel)));
+             FileOutputStream file = new FileOutputStream(tmp.toFile())) {
+            OutputStream out = compression.wrap(file);
+            byte[] buffer = new byte[64 * 1024];
+            long remaining = length;
+            int n;
+            while (remaining > 0 && (n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) > 0) {
+                for (int i = 0; i < n; i++) {
+                    if (buffer[i] == '\n') {
+                        lines++;
+                    }
+                }
+                out.write(buffer, 0, n);
+                remaining -= n;
+            }
+            if (out instanceof GZIPOutputStream) {
+                ((GZIPOutputStream) out).finish();
+            }
+            out.flush();
+            file.getChannel().force(true);
+        }
+        // The first line is the header
+        if (lines <= 1) {
+            Files.delete(tmp);
+            return 0;
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        return lines - 1;
+    }
+
+    private Segment openSegment() throws IOException {
+        String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss"));
+        Path target;
+        do {
+            target = dir.resolve(String.format("%s_%s_%04d%s", prefix, stamp, ++sequence, compression.getExtension()));
+        } while (Files.exists(target));
+        return new Segment(target);
+    }
+
+    private void commit() throws IOException {
+        segment.encoder.flush();
+        segment.file.getChannel().force(false);
+        ScraperMetrics.get().recordWrite(segment.rows - segment.committedRows,
+            segment.counter.getCount() - segment.committedBytes);
+        segment.committedRows = segment.rows;
+        segment.committedBytes = segment.counter.getCount();
+        segment.committedAtMillis = System.currentTimeMillis();
+    }
+
+    private void rotateIfDue() throws IOException {
+        boolean full = maxBytes > 0 && segment.counter.getCount() >= maxBytes;
+        boolean old = maxAgeMillis > 0 && System.currentTimeMillis() - segment.openedAtMillis >= maxAgeMillis;
+        if (full || old) {
+            publish();
+        }
+    }
+
+    /**
+     * Writes the compressor trailer, fsyncs and renames the segment into place
+     */
+    private void publish() throws IOException {
+        Segment done = segment;
+        segment = null;
+        done.encoder.flush();
+        // Finishing the compressor writes its trailer; closing the encoder would close the file first
+        if (done.compressed instanceof GZIPOutputStream) {
+            ((GZIPOutputStream) done.compressed).finish();
+        }
+        done.compressed.flush();
+        done.file.getChannel().force(true);
+        ScraperMetrics.get().recordWrite(done.rows - done.committedRows, done.counter.getCount() - done.committedBytes);
+        done.encoder.close();
+        Files.move(done.partFile, done.target, StandardCopyOption.ATOMIC_MOVE);
+        completedSegments.add(done.target);
+    }
+
+    /**
+     * @return published segments, oldest first
+     */
+    public List<Path> getCompletedSegments() {
+        return Collections.unmodifiableList(completedSegments);
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * One open segment and its stream stack
+     */
+    private class Segment {
+        final Path target;
+        final Path partFile;
+        final FileOutputStream file;
+        final CountingOutputStream counter;
+        final OutputStream compressed;
+        final CsvRowEncoder encoder;
+        final long openedAtMillis = System.currentTimeMillis();
+        long committedAtMillis = openedAtMillis;
+        long rows;
+        long committedRows;
+        long committedBytes;
+
+        Segment(Path target) throws IOException {
+            this.target = target;
+            this.partFile = target.resolveSibling("." + target.getFileName() + PART_SUFFIX);
+            this.file = new FileOutputStream(partFile.toFile());
+            // Tells a sink opened meanwhile that this part is live, not orphaned; released on close
+            file.getChannel().lock();
+            this.counter = new CountingOutputStream(file);
+            this.compressed = compression.wrap(counter);
+            this.encoder = new CsvRowEncoder(new BufferedWriter(
+                new OutputStreamWriter(compressed, StandardCharsets.UTF_8), 64 * 1024), timestamp);
+            encoder.writeHeader();
+        }
+    }
+
+    /**
+     * Keeps closing a stream over a part from closing the locked channel
+     */
+    private static class UnclosableChannel implements ReadableByteChannel {
+        private final FileChannel channel;
+
+        UnclosableChannel(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return channel.read(dst);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
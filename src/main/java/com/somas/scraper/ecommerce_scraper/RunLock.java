@@ -0,0 +1,77 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Exclusive lock on a file that keeps two scrapes from running at once,
+ * whether they are daemon runs or cron-started batch runs. The operating
+ * system releases the lock if the process dies.
+ */
+public class RunLock implements AutoCloseable {
+    private final FileChannel channel;
+    private final FileLock lock;
+
+    private RunLock(FileChannel channel, FileLock lock) {
+        this.channel = channel;
+        this.lock = lock;
+    }
+
+    /**
+     * Takes the lock without waiting
+     * @param file lock file, created if missing
+     * @return the held lock, or null if another run holds it
+     * @throws IOException if the lock file cannot be opened
+     */
+    public static RunLock tryAcquire(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            FileLock lock = channel.tryLock();
+            if (lock != null) {
+                return new RunLock(channel, lock);
+            }
+        } catch (OverlappingFileLockException e) {
+            // Held by another run in this JVM
+        }
+        channel.close();
+        return null;
+    }
+
+    /**
+     * Takes the lock, waiting while another process holds it
+     * @param file lock file, created if missing
+     * @return the held lock
+     * @throws IOException if the lock file cannot be opened, or this JVM already holds it
+     */
+    public static RunLock acquire(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            FileLock lock = channel.tryLock();
+            if (lock == null) {
+                System.out.println("Waiting for another process to release " + file + "...");
+                lock = channel.lock();
+            }
+            return new RunLock(channel, lock);
+        } catch (OverlappingFileLockException e) {
+            channel.close();
+            throw new IOException(file + " is already held in this process");
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            lock.release();
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error releasing run lock: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-lived scheduler that runs a scrape on a cron schedule inside one
+ * JVM, so the JIT-compiled code, the extraction engine and its browser or
+ * HTTP connections stay warm between runs.
+ *
+ * Runs never overlap: the next fire time is computed only after a run
+ * finishes, so ticks missed during a long run are skipped, and each run
+ * also takes a RunLock so a concurrent batch run started by cron is not
+ * duplicated.
+ */
+public class ScrapeDaemon {
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final CronSchedule schedule;
+    private final Runnable job;
+    private final Path lockFile;
+    private volatile boolean stopped;
+
+    /**
+     * @param schedule when to run
+     * @param job scrape to run; exceptions are logged and do not stop the daemon
+     * @param lockFile lock shared with batch runs
+     */
+    public ScrapeDaemon(CronSchedule schedule, Runnable job, Path lockFile) {
+        this.schedule = schedule;
+        this.job = job;
+        this.lockFile = lockFile;
+    }
+
+    /**
+     * Runs the job on schedule until stop is called or the thread is interrupted
+     */
+    public void run() {
+        System.out.println("Daemon started with schedule \"" + schedule + "\"");
+        int runs = 0;
+        while (!stopped) {
+            ZonedDateTime now = ZonedDateTime.now();
+            ZonedDateTime next = schedule.next(now);
+            System.out.println("Next run at " + next.format(TIME_FORMAT));
+            try {
+                sleepUntil(next);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (stopped) {
+                break;
+            }
+            if (runOnce(runs + 1)) {
+                runs++;
+            }
+        }
+        System.out.println("Daemon stopped after " + runs + " runs");
+    }
+
+    /**
+     * @return true if the job ran, false if another run held the lock
+     */
+    private boolean runOnce(int runNumber) {
+        try (RunLock lock = RunLock.tryAcquire(lockFile)) {
+            if (lock == null) {
+                System.out.println("Skipping scheduled run: another scrape is still running");
+                return false;
+            }
+            long start = System.currentTimeMillis();
+            System.out.println("\n=== Scheduled run " + runNumber + " started at "
+                + ZonedDateTime.now().format(TIME_FORMAT) + " ===");
+            try {
+                job.run();
+            } catch (RuntimeException e) {
+                System.err.println("Scheduled run " + runNumber + " failed: " + e.getMessage());
+                e.printStackTrace();
+            }
+            System.out.println("=== Scheduled run " + runNumber + " finished in "
+                + String.format("%.2f", (System.currentTimeMillis() - start) / 1000.0) + " seconds ===");
+            return true;
+        } catch (IOException e) {
+            System.err.println("Could not open run lock " + lockFile + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void sleepUntil(ZonedDateTime time) throws InterruptedException {
+        long millis;
+        // Sleep in slices so stop() takes effect promptly and clock changes are picked up
+        while (!stopped && (millis = Duration.between(ZonedDateTime.now(), time).toMillis()) > 0) {
+            TimeUnit.MILLISECONDS.sleep(Math.min(millis, 1000));
+        }
+    }
+
+    /**
+     * Stops the daemon after the current run, if any, finishes
+     */
+    public void stop() {
+        stopped = true;
+    }
+}
@@ -0,0 +1,19 @@
+package com.somas.scraper.ecommerce_scraper;
+
+/**
+ * Scrapes that can be started from the batch command line or the daemon
+ */
+public enum ScrapeMode {
+    /** Every page, one at a time */
+    ALL,
+    /** Every page, several in flight */
+    CONCURRENT,
+    /** A page range given with --pages */
+    PAGES,
+    /** Only the changes since the last snapshot */
+    CHANGES,
+    /** Every page plus each product's detail page */
+    DETAILS,
+    /** A checkpointed job given with --job-id, resumed if it exists */
+    JOB
+}
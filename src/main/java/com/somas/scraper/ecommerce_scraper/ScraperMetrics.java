@@ -0,0 +1,157 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide metrics for the scraper: per-stage latency histograms, write
+ * volume histograms and failure counters. Instrumented code records into
+ * ScraperMetrics.get(); the values are exposed through MetricsServer and the
+ * end-of-run report.
+ */
+public final class ScraperMetrics {
+    private static final ScraperMetrics GLOBAL = new ScraperMetrics();
+
+    private final Histogram pageFetchSeconds = new Histogram("scraper_page_fetch_seconds",
+        "Time to download a page or navigate the browser to it", Histogram.LATENCY_SECONDS);
+    private final Histogram waitForSelectorSeconds = new Histogram("scraper_wait_for_selector_seconds",
+        "Time spent waiting for product elements to appear in the browser", Histogram.LATENCY_SECONDS);
+    private final Histogram parseSeconds = new Histogram("scraper_parse_seconds",
+        "Time to extract books from a loaded page", Histogram.LATENCY_SECONDS);
+    private final Histogram rowsWritten = new Histogram("scraper_rows_written",
+        "Rows written per output flush", Histogram.ROW_COUNTS);
+    private final Histogram bytesWritten = new Histogram("scraper_bytes_written",
+        "Bytes written per output flush", Histogram.BYTE_SIZES);
+
+    private final LongAdder pagesExtracted = new LongAdder();
+    private final LongAdder failedPages = new LongAdder();
+    private final LongAdder failedElements = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder totalRowsWritten = new LongAdder();
+    private final LongAdder totalBytesWritten = new LongAdder();
+
+    private ScraperMetrics() {
+    }
+
+    public static ScraperMetrics get() {
+        return GLOBAL;
+    }
+
+    public Histogram getPageFetchSeconds() {
+        return pageFetchSeconds;
+    }
+
+    public Histogram getWaitForSelectorSeconds() {
+        return waitForSelectorSeconds;
+    }
+
+    public Histogram getParseSeconds() {
+        return parseSeconds;
+    }
+
+    public void recordPageExtracted() {
+        pagesExtracted.increment();
+    }
+
+    public void recordFailedPage() {
+        failedPages.increment();
+    }
+
+    /**
+     * @return pages that could not be extracted since the process started
+     */
+    public long getFailedPages() {
+        return failedPages.sum();
+    }
+
+    public void recordFailedElement() {
+        failedElements.increment();
+    }
+
+    public void recordRetry() {
+        retries.increment();
+    }
+
+    /**
+     * Records one flushed batch of output
+     * @param rows rows written since the previous flush
+     * @param bytes bytes written since the previous flush
+     */
+    public void recordWrite(long rows, long bytes) {
+        rowsWritten.record(rows);
+        bytesWritten.record(bytes);
+        totalRowsWritten.add(rows);
+        totalBytesWritten.add(bytes);
+    }
+
+    /**
+     * @return all metrics in Prometheus text exposition format
+     */
+    public String toPrometheusText() {
+        StringBuilder out = new StringBuilder(4096);
+        pageFetchSeconds.appendPrometheus(out);
+        waitForSelectorSeconds.appendPrometheus(out);
+        parseSeconds.appendPrometheus(out);
+        rowsWritten.appendPrometheus(out);
+        bytesWritten.appendPrometheus(out);
+        appendCounter(out, "scraper_pages_extracted_total", "Pages extracted successfully", pagesExtracted.sum());
+        appendCounter(out, "scraper_failed_pages_total", "Pages that could not be extracted", failedPages.sum());
+        appendCounter(out, "scraper_failed_elements_total", "Product elements that could not be parsed", failedElements.sum());
+        appendCounter(out, "scraper_retries_total", "Page fetches retried after a failure", retries.sum());
+        appendCounter(out, "scraper_rows_written_total", "Rows written to outputs", totalRowsWritten.sum());
+        appendCounter(out, "scraper_bytes_written_total", "Bytes written to outputs", totalBytesWritten.sum());
+        return out.toString();
+    }
+
+    private static void appendCounter(StringBuilder out, String name, String help, long value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    /**
+     * @return all metrics as a single JSON object
+     */
+    public String toJson() {
+        StringBuilder out = new StringBuilder(1024);
+        out.append("{\"histograms\":{");
+        Histogram[] histograms = {pageFetchSeconds, waitForSelectorSeconds, parseSeconds, rowsWritten, bytesWritten};
+        for (int i = 0; i < histograms.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append('"').append(histograms[i].getName()).append("\":");
+            histograms[i].appendJson(out);
+        }
+        out.append("},\"counters\":{")
+            .append("\"pages_extracted\":").append(pagesExtracted.sum())
+            .append(",\"failed_pages\":").append(failedPages.sum())
+            .append(",\"failed_elements\":").append(failedElements.sum())
+            .append(",\"retries\":").append(retries.sum())
+            .append(",\"rows_written\":").append(totalRowsWritten.sum())
+            .append(",\"bytes_written\":").append(totalBytesWritten.sum())
+            .append("}}");
+        return out.toString();
+    }
+
+    /**
+     * Prints a human-readable summary showing where the run spent its time
+     */
+    public void printReport() {
+        System.out.println("\n=== Stage Metrics ===");
+        printStage("Page fetch", pageFetchSeconds);
+        printStage("Wait for selector", waitForSelectorSeconds);
+        printStage("Parse", parseSeconds);
+        System.out.println("Pages extracted: " + pagesExtracted.sum() + ", failed pages: " + failedPages.sum()
+            + ", failed elements: " + failedElements.sum() + ", retries: " + retries.sum());
+        System.out.println("Rows written: " + totalRowsWritten.sum() + ", bytes written: " + totalBytesWritten.sum());
+    }
+
+    private static void printStage(String label, Histogram histogram) {
+        if (histogram.getCount() == 0) {
+            return;
+        }
+        System.out.println(String.format("%-18s count=%d total=%.2fs p50<=%.3fs p99<=%.3fs",
+            label + ":", histogram.getCount(), histogram.getSum(),
+            histogram.getQuantile(0.5), histogram.getQuantile(0.99)));
+    }
+}
@@ -0,0 +1,103 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Aggregate statistics over a set of books, computed in a single pass over
+ * the pre-parsed price and availability fields. An Accumulator computes the
+ * same figures from a stream of books without keeping them.
+ */
+public class ScrapingStatistics {
+    private final long totalBooks;
+    private final long inStockCount;
+    private final long priceTotalMinor;
+
+    private ScrapingStatistics(long totalBooks, long inStockCount, long priceTotalMinor) {
+        this.totalBooks = totalBooks;
+        this.inStockCount = inStockCount;
+        this.priceTotalMinor = priceTotalMinor;
+    }
+
+    /**
+     * Aggregates the given books
+     * @param books books to summarise
+     * @return the statistics
+     */
+    public static ScrapingStatistics of(Iterable<Book> books) {
+        long total = 0;
+        long inStock = 0;
+        long priceTotal = 0;
+        for (Book book : books) {
+            total++;
+            if (book.isInStock()) {
+                inStock++;
+            }
+            // Unparseable prices count as zero
+            if (book.getPriceMinor() != Book.UNKNOWN_PRICE) {
+                priceTotal += book.getPriceMinor();
+            }
+        }
+        return new ScrapingStatistics(total, inStock, priceTotal);
+    }
+
+    public long getTotalBooks() {
+        return totalBooks;
+    }
+
+    public long getInStockCount() {
+        return inStockCount;
+    }
+
+    public long getOutOfStockCount() {
+        return totalBooks - inStockCount;
+    }
+
+    /**
+     * @return mean price in major currency units, 0 if there are no books
+     */
+    public double getAveragePrice() {
+        return totalBooks == 0 ? 0.0 : priceTotalMinor / 100.0 / totalBooks;
+    }
+
+    /**
+     * Sink that counts books as they stream past, keeping only the first few as samples
+     */
+    public static class Accumulator implements BookSink {
+        private final int sampleSize;
+        private final List<Book> samples = new ArrayList<>();
+        private long total;
+        private long inStock;
+        private long priceTotal;
+
+        /**
+         * @param sampleSize number of leading books kept for display
+         */
+        public Accumulator(int sampleSize) {
+            this.sampleSize = sampleSize;
+        }
+
+        @Override
+        public synchronized void accept(Book book) {
+            total++;
+            if (book.isInStock()) {
+                inStock++;
+            }
+            // Unparseable prices count as zero
+            if (book.getPriceMinor() != Book.UNKNOWN_PRICE) {
+                priceTotal += book.getPriceMinor();
+            }
+            if (samples.size() < sampleSize) {
+                samples.add(book);
+            }
+        }
+
+        public synchronized ScrapingStatistics getStatistics() {
+            return new ScrapingStatistics(total, inStock, priceTotal);
+        }
+
+        public synchronized List<Book> getSamples() {
+            return new ArrayList<>(samples);
+        }
+    }
+}
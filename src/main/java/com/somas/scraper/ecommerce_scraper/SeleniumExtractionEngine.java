@@ -0,0 +1,292 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import org.jsoup.Jsoup;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Extraction engine backed by headless Chrome. Only needed for pages
+ * that require JavaScript rendering. Page loads lease a browser from a
+ * WebDriverPool, so the engine can be shared by concurrent page tasks.
+ * Chrome is not launched until the first page is extracted, so creating
+ * the engine for a run that never uses it costs nothing.
+ *
+ * Products, fields, the next link and the pager of the built-in layout are
+ * read in the browser with the selectors and attributes of the site profile,
+ * and field patterns are applied by the profile. Pages of other site
+ * profiles are rendered the same way, then the page source is parsed with
+ * the profile's compiled Jsoup selectors, which may use Jsoup-only syntax.
+ */
+public class SeleniumExtractionEngine implements ExtractionEngine {
+    private static final int DEFAULT_MAX_PAGES_PER_DRIVER = 200;
+
+    /**
+     * Reads every product plus the pager in one call, using the selectors
+     * passed in: arguments[0] is the product selector, arguments[1] the
+     * product fields and arguments[3] the pager field as [selector, attribute]
+     * pairs, arguments[2] the next-link selector. Each book is the list of
+     * raw field values, null where an element is missing; patterns are
+     * applied in Java by the profile. innerText matches the trimmed visible
+     * text WebElement.getText returns, and href/src read the resolved URL.
+     */
+    private static final String BULK_EXTRACT_SCRIPT =
+        "function read(root, field) {\n"
+        + "  if (!field[0]) return null;\n"
+        + "  var el = root.querySelector(field[0]);\n"
+        + "  if (!el) return null;\n"
+        + "  if (!field[1]) return el.innerText.trim();\n"
+        + "  return field[1] === 'href' || field[1] === 'src' ? el[field[1]] : el.getAttribute(field[1]);\n"
+        + "}\n"
+        + "var products = document.querySelectorAll(arguments[0]);\n"
+        + "var books = [];\n"
+        + "for (var i = 0; i < products.length; i++) {\n"
+        + "  var book = [];\n"
+        + "  for (var f = 0; f < arguments[1].length; f++) {\n"
+        + "    book.push(read(products[i], arguments[1][f]));\n"
+        + "  }\n"
+        + "  books.push(book);\n"
+        + "}\n"
+        + "return {books: books, hasNext: document.querySelector(arguments[2]) !== null,\n"
+        + "        pager: read(document, arguments[3])};";
+
+    private final WebDriverPool pool;
+    private volatile boolean bulkExtraction = true;
+    private final Map<SiteProfile, BookPageParser> profileParsers = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an engine with up to one lean browser per core. Browsers are
+     * only started on demand, so a sequential crawl still runs a single Chrome.
+     */
+    public SeleniumExtractionEngine() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_PAGES_PER_DRIVER, BrowserProfile.LEAN);
+    }
+
+    /**
+     * @param poolSize number of browsers that may run at once
+     * @param maxPagesPerDriver pages served before a browser is restarted, 0 to never recycle
+     */
+    public SeleniumExtractionEngine(int poolSize, int maxPagesPerDriver) {
+        this(poolSize, maxPagesPerDriver, BrowserProfile.LEAN);
+    }
+
+    /**
+     * @param poolSize number of browsers that may run at once
+     * @param maxPagesPerDriver pages served before a browser is restarted, 0 to never recycle
+     * @param profile how each browser is configured
+     */
+    public SeleniumExtractionEngine(int poolSize, int maxPagesPerDriver, BrowserProfile profile) {
+        this.pool = new WebDriverPool(poolSize, maxPagesPerDriver, profile::createDriver);
+    }
+
+    /**
+     * Chooses between one executeScript call per page (the default) and the
+     * element-by-element WebDriver lookups, which cost about 80 round trips
+     * to chromedriver per page but work without JavaScript
+     * @param bulkExtraction true to read each page with a single script call
+     */
+    public void setBulkExtraction(boolean bulkExtraction) {
+        this.bulkExtraction = bulkExtraction;
+    }
+
+    @Override
+    public PageResult extractPage(String pageUrl) throws IOException {
+        return extractPage(pageUrl, SiteProfile.BOOKS_TO_SCRAPE);
+    }
+
+    @Override
+    public PageResult extractPage(String pageUrl, SiteProfile profile) throws IOException {
+        WebDriverPool.PooledDriver pooled;
+        try {
+            pooled = pool.borrow();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a WebDriver");
+        }
+
+        boolean healthy = false;
+        try {
+            ScraperMetrics metrics = ScraperMetrics.get();
+            WebDriver driver = pooled.getDriver();
+            long start = System.nanoTime();
+            driver.get(pageUrl);
+            metrics.getPageFetchSeconds().recordNanos(System.nanoTime() - start);
+
+            // Wait for books to load; with the lean profile driver.get only waits for the DOM
+            start = System.nanoTime();
+            try {
+                pooled.getWait().until(ExpectedConditions.presenceOfElementLocated(By.cssSelector(profile.getProductSelector())));
+            } catch (TimeoutException e) {
+                // The browser is fine; report a retryable timeout instead of an unchecked Selenium error
+                healthy = true;
+                throw new PageFetchException(pageUrl, e);
+            }
+            metrics.getWaitForSelectorSeconds().recordNanos(System.nanoTime() - start);
+
+            start = System.nanoTime();
+            PageResult result;
+            if (!profile.isBuiltIn()) {
+                result = profileParsers.computeIfAbsent(profile, BookPageParser::new)
+                    .parse(Jsoup.parse(driver.getPageSource(), driver.getCurrentUrl()));
+            } else {
+                result = bulkExtraction ? extractPageInOneCall(driver, profile) : null;
+            }
+            if (result == null) {
+                List<Book> books = extractBooksFromCurrentPage(driver, profile);
+                result = new PageResult(books, hasNextPage(driver, profile), getTotalPages(driver, profile));
+            }
+            metrics.getParseSeconds().recordNanos(System.nanoTime() - start);
+            healthy = true;
+            return result;
+        } finally {
+            pool.release(pooled, healthy);
+        }
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    /**
+     * Extracts books and pagination with a single executeScript round trip
+     * @return extracted page, or null if the script could not run
+     */
+    @SuppressWarnings("unchecked")
+    private PageResult extractPageInOneCall(WebDriver driver, SiteProfile profile) {
+        List<List<String>> fields = new ArrayList<>();
+        for (SiteProfile.Field field : profile.getProductFields()) {
+            fields.add(scriptField(field));
+        }
+        Map<String, Object> page;
+        try {
+            page = (Map<String, Object>) ((JavascriptExecutor) driver).executeScript(BULK_EXTRACT_SCRIPT,
+                profile.getProductSelector(), fields, profile.getNextSelector(), scriptField(profile.getPagerField()));
+        } catch (RuntimeException e) {
+            System.err.println("Bulk extraction failed, reading elements one by one: " + e.getMessage());
+            return null;
+        }
+        if (page == null) {
+            return null;
+        }
+
+        List<Object> rows = (List<Object>) page.get("books");
+        List<Book> books = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            Book book = profile.toBook((List<String>) row);
+            if (book == null) {
+                System.err.println("Error extracting book data: missing field in " + profile.getProductSelector());
+                ScraperMetrics.get().recordFailedElement();
+                continue;
+            }
+            books.add(book);
+        }
+        boolean hasNextPage = Boolean.TRUE.equals(page.get("hasNext"));
+        return new PageResult(books, hasNextPage, profile.parseTotalPages((String) page.get("pager")));
+    }
+
+    /**
+     * @return [selector, attribute] of a field, as the bulk script reads it
+     */
+    private static List<String> scriptField(SiteProfile.Field field) {
+        return Arrays.asList(field.getSelector(), field.getAttribute());
+    }
+
+    /**
+     * Extracts books from the current page
+     * @return List of books on current page
+     */
+    private List<Book> extractBooksFromCurrentPage(WebDriver driver, SiteProfile profile) {
+        List<Book> books = new ArrayList<>();
+
+        try {
+            List<WebElement> bookElements = driver.findElements(By.cssSelector(profile.getProductSelector()));
+
+            for (WebElement bookElement : bookElements) {
+                try {
+                    List<String> raw = new ArrayList<>();
+                    for (SiteProfile.Field field : profile.getProductFields()) {
+                        raw.add(readField(bookElement, field));
+                    }
+                    Book book = profile.toBook(raw);
+                    if (book == null) {
+                        System.err.println("Error extracting book data: missing field in "
+                            + profile.getProductSelector());
+                        ScraperMetrics.get().recordFailedElement();
+                        continue;
+                    }
+                    books.add(book);
+
+                } catch (Exception e) {
+                    System.err.println("Error extracting book data: " + e.getMessage());
+                    ScraperMetrics.get().recordFailedElement();
+                }
+            }
+
+        } catch (Exception e) {
+            System.err.println("Error finding book elements: " + e.getMessage());
+        }
+
+        return books;
+    }
+
+    /**
+     * Reads a field's raw value below an element or the whole page; getAttribute
+     * returns href and src as resolved URLs
+     * @return raw value, or null if the field is not configured or its element is missing
+     */
+    private static String readField(SearchContext root, SiteProfile.Field field) {
+        if (field.getSelector() == null) {
+            return null;
+        }
+        List<WebElement> elements = root.findElements(By.cssSelector(field.getSelector()));
+        if (elements.isEmpty()) {
+            return null;
+        }
+        WebElement element = elements.get(0);
+        return field.getAttribute() == null ? element.getText().trim() : element.getAttribute(field.getAttribute());
+    }
+
+    /**
+     * Checks if there's a next page available
+     * @return true if next page exists, false otherwise
+     */
+    private boolean hasNextPage(WebDriver driver, SiteProfile profile) {
+        try {
+            List<WebElement> nextButtons = driver.findElements(By.cssSelector(profile.getNextSelector()));
+            return !nextButtons.isEmpty();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads the page count from the pager on the current page
+     * @return page count, or PageResult.UNKNOWN_PAGE_COUNT if absent
+     */
+    private int getTotalPages(WebDriver driver, SiteProfile profile) {
+        return profile.parseTotalPages(readField(driver, profile.getPagerField()));
+    }
+
+    /**
+     * Shuts down every browser in the pool
+     */
+    @Override
+    public void close() {
+        pool.close();
+        if (pool.getStartedCount() > 0) {
+            System.out.println("WebDriver pool closed successfully");
+        }
+    }
+}
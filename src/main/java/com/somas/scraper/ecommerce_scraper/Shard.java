@@ -0,0 +1,97 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Properties;
+
+/**
+ * A unit of work in a sharded crawl: a contiguous range of catalogue pages
+ * of one site. Shard IDs sort in catalogue and page order, which is the
+ * order outputs are merged in.
+ */
+public class Shard {
+    /** Marker for a shard that runs until the catalogue's last page */
+    public static final int UNTIL_LAST_PAGE = -1;
+
+    private final String id;
+    private final String baseUrl;
+    private final int firstPage;
+    private final int lastPage;
+    private final String scrapedAt;
+
+    /**
+     * @param id unique, sortable shard ID
+     * @param baseUrl catalogue root
+     * @param firstPage first page of the range, 1-based
+     * @param lastPage last page of the range, or UNTIL_LAST_PAGE
+     * @param scrapedAt Scraped_At value shared by every shard of the crawl
+     */
+    public Shard(String id, String baseUrl, int firstPage, int lastPage, String scrapedAt) {
+        this.id = id;
+        this.baseUrl = baseUrl;
+        this.firstPage = firstPage;
+        this.lastPage = lastPage;
+        this.scrapedAt = scrapedAt;
+    }
+
+    /**
+     * Builds the ID of a shard so that IDs sort by catalogue, then by page
+     * @param catalogue index of the catalogue in the crawl
+     * @param firstPage first page of the shard
+     * @return shard ID such as "000-00011"
+     */
+    public static String idOf(int catalogue, int firstPage) {
+        return String.format("%03d-%05d", catalogue, firstPage);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public int getFirstPage() {
+        return firstPage;
+    }
+
+    public int getLastPage() {
+        return lastPage;
+    }
+
+    public String getScrapedAt() {
+        return scrapedAt;
+    }
+
+    void store(Writer writer) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("id", id);
+        properties.setProperty("baseUrl", baseUrl);
+        properties.setProperty("firstPage", Integer.toString(firstPage));
+        properties.setProperty("lastPage", Integer.toString(lastPage));
+        properties.setProperty("scrapedAt", scrapedAt);
+        properties.store(writer, null);
+    }
+
+    static Shard load(Reader reader) throws IOException {
+        Properties properties = new Properties();
+        properties.load(reader);
+        try {
+            return new Shard(properties.getProperty("id"),
+                properties.getProperty("baseUrl"),
+                Integer.parseInt(properties.getProperty("firstPage")),
+                Integer.parseInt(properties.getProperty("lastPage")),
+                properties.getProperty("scrapedAt"));
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new IOException("Invalid shard definition", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Shard{" + id + ", " + baseUrl + " pages " + firstPage + "-"
+            + (lastPage == UNTIL_LAST_PAGE ? "end" : Integer.toString(lastPage)) + '}';
+    }
+}
@@ -0,0 +1,131 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Command-line entry point for sharded crawls across several processes or
+ * nodes sharing a queue directory:
+ * <pre>
+ * plan   &lt;queueDir&gt; &lt;pagesPerShard&gt; &lt;baseUrl&gt;...   queue shards for one or more catalogues
+ * worker &lt;queueDir&gt; [workerId]                     claim and extract shards until all are done
+ * status &lt;queueDir&gt;                                show the state of every shard
+ * merge  &lt;queueDir&gt; &lt;outputFile&gt;                   combine the shard outputs into one CSV
+ * </pre>
+ * Start as many workers as needed; a worker that dies stops renewing its
+ * leases and its shards are reclaimed by the others after LEASE_DURATION.
+ * A shard that keeps failing is given up after CrawlWorker.SHARD_RETRIES
+ * and reported by status; merge refuses to run until it is retried.
+ */
+public class ShardedCrawlMain {
+    private static final Duration LEASE_DURATION = Duration.ofSeconds(60);
+    private static final Duration LEASE_RENEW_INTERVAL = Duration.ofSeconds(20);
+    private static final Duration CLAIM_POLL_INTERVAL = Duration.ofSeconds(5);
+    private static final double REQUESTS_PER_SECOND = 2.0;
+    private static final int REQUEST_BURST = 4;
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            printUsage();
+            System.exit(2);
+        }
+
+        try {
+            FileWorkQueue queue = new FileWorkQueue(Paths.get(args[1]), LEASE_DURATION);
+            switch (args[0]) {
+                case "plan":
+                    plan(queue, args);
+                    break;
+                case "worker":
+                    work(queue, args.length > 2 ? args[2] : defaultWorkerId());
+                    break;
+                case "status":
+                    printStatus(queue);
+                    break;
+                case "merge":
+                    if (args.length < 3) {
+                        printUsage();
+                        System.exit(2);
+                    }
+                    new CrawlCoordinator(queue).merge(Paths.get(args[2]));
+                    break;
+                default:
+                    printUsage();
+                    System.exit(2);
+            }
+        } catch (Exception e) {
+            System.err.println("Sharded crawl failed: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static void plan(FileWorkQueue queue, String[] args) throws Exception {
+        if (args.length < 4) {
+            printUsage();
+            System.exit(2);
+        }
+        int pagesPerShard = Integer.parseInt(args[2]);
+        List<String> baseUrls = Arrays.asList(args).subList(3, args.length);
+        try (JsoupExtractionEngine engine = new JsoupExtractionEngine()) {
+            int shards = new CrawlCoordinator(queue).plan(engine, baseUrls, pagesPerShard);
+            System.out.println("Queued " + shards + " shards");
+        }
+    }
+
+    private static void work(FileWorkQueue queue, String workerId) throws Exception {
+        try (JsoupExtractionEngine engine = new JsoupExtractionEngine()) {
+            HostRateLimiter rateLimiter = new HostRateLimiter(REQUESTS_PER_SECOND, REQUEST_BURST);
+            new CrawlWorker(queue, engine, rateLimiter, workerId, LEASE_RENEW_INTERVAL, CLAIM_POLL_INTERVAL).run();
+        }
+        ScraperMetrics.get().printReport();
+    }
+
+    private static void printStatus(FileWorkQueue queue) throws Exception {
+        int done = 0;
+        int leased = 0;
+        int failed = 0;
+        List<Shard> shards = queue.getShards();
+        for (Shard shard : shards) {
+            String holder = queue.getLeaseHolder(shard);
+            int attempts = queue.getFailedAttempts(shard);
+            String state;
+            if (queue.isDone(shard)) {
+                state = "done";
+                done++;
+            } else if (queue.isFailed(shard)) {
+                state = "failed after " + attempts + " attempts";
+                failed++;
+            } else if (holder != null) {
+                state = "leased by " + holder;
+                leased++;
+            } else {
+                state = "pending";
+            }
+            if (attempts > 0 && !queue.isFailed(shard)) {
+                state += " (" + attempts + " failed attempts)";
+            }
+            System.out.println(shard + ": " + state);
+        }
+        System.out.println(shards.size() + " shards: " + done + " done, " + leased + " leased, " + failed + " failed, "
+            + (shards.size() - done - leased - failed) + " pending");
+    }
+
+    /**
+     * @return "host:pid" as reported by the runtime, unique per process across nodes
+     */
+    private static String defaultWorkerId() {
+        return ManagementFactory.getRuntimeMXBean().getName().replace('@', '-').replace(' ', '_');
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage:");
+        System.out.println("  plan   <queueDir> <pagesPerShard> <baseUrl>...");
+        System.out.println("  worker <queueDir> [workerId]");
+        System.out.println("  status <queueDir>");
+        System.out.println("  merge  <queueDir> <outputFile>");
+    }
+}
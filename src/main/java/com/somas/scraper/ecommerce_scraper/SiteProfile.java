@@ -0,0 +1,360 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.QueryParser;
+import org.jsoup.select.Selector;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Declarative description of one storefront: where its catalogue pages
+ * live, how to find products and their fields, and how hard it may be
+ * crawled. Profiles are loaded from .properties files (see
+ * sites/books-toscrape.properties) and compiled once: selectors become
+ * reusable Jsoup Evaluators and field patterns become compiled regexes,
+ * so parsing a page never re-parses configuration.
+ *
+ * Field values are the element's text, or an attribute when
+ * field.NAME.attr is set (href and src are resolved to absolute URLs).
+ * An optional field.NAME.pattern keeps group 1 of the first match, or the
+ * whole match if the pattern has no group.
+ */
+public class SiteProfile {
+    private static final String PAGE_PLACEHOLDER = "{page}";
+
+    /** books.toscrape.com, the layout every engine was written against */
+    public static final SiteProfile BOOKS_TO_SCRAPE = booksToScrape(BookExtractor.DEFAULT_BASE_URL);
+
+    private final String name;
+    private final String baseUrl;
+    private final String firstPagePath;
+    private final String pagePath;
+    private final String productSelector;
+    private final Evaluator product;
+    private final Field title;
+    private final Field link;
+    private final Field price;
+    private final Field availability;
+    private final Field image;
+    private final String nextSelector;
+    private final Evaluator next;
+    private final Field pager;
+    private final int maxConcurrency;
+    private final double requestsPerSecond;
+    private final int burst;
+    private final boolean builtIn;
+
+    private SiteProfile(Properties config, boolean builtIn) {
+        this.name = required(config, "name");
+        String base = required(config, "base.url");
+        this.baseUrl = base.endsWith("/") ? base : base + "/";
+        this.firstPagePath = config.getProperty("page.first", "");
+        this.pagePath = required(config, "page.url");
+        if (!pagePath.contains(PAGE_PLACEHOLDER)) {
+            throw new IllegalArgumentException("page.url must contain " + PAGE_PLACEHOLDER + ": " + pagePath);
+        }
+        this.productSelector = required(config, "select.product");
+        this.product = compile("select.product", productSelector);
+        this.title = new Field(config, "title", true);
+        this.link = new Field(config, "link", false);
+        this.price = new Field(config, "price", true);
+        this.availability = new Field(config, "availability", true);
+        this.image = new Field(config, "image", false);
+        this.nextSelector = required(config, "select.next");
+        this.next = compile("select.next", nextSelector);
+        this.pager = new Field(config, "pager", false);
+        this.maxConcurrency = Integer.parseInt(config.getProperty("budget.concurrency", "4").trim());
+        this.requestsPerSecond = Double.parseDouble(config.getProperty("budget.requests.per.second", "1.0").trim());
+        this.burst = Integer.parseInt(config.getProperty("budget.burst", "1").trim());
+        if (maxConcurrency < 1 || requestsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Invalid crawl budget for site " + name);
+        }
+        this.builtIn = builtIn;
+    }
+
+    /**
+     * Loads and compiles a profile
+     * @param reader properties source
+     * @return compiled profile
+     * @throws IOException if the source cannot be read
+     * @throws IllegalArgumentException if a key is missing or a selector or pattern is invalid
+     */
+    public static SiteProfile load(Reader reader) throws IOException {
+        Properties config = new Properties();
+        config.load(reader);
+        return new SiteProfile(config, false);
+    }
+
+    /**
+     * Loads and compiles a UTF-8 profile file
+     * @param file .properties file
+     * @return compiled profile
+     * @throws IOException if the file cannot be read
+     */
+    public static SiteProfile load(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return load(reader);
+        }
+    }
+
+    /**
+     * @param baseUrl catalogue root, e.g. a mirror or a local synthetic catalogue
+     * @return the books.toscrape.com layout served from the given root
+     */
+    public static SiteProfile booksToScrape(String baseUrl) {
+        Properties config = new Properties();
+        config.setProperty("name", "books-toscrape");
+        config.setProperty("base.url", baseUrl);
+        config.setProperty("page.url", "catalogue/page-{page}.html");
+        config.setProperty("select.product", "article.product_pod");
+        config.setProperty("select.title", "h3 a");
+        config.setProperty("field.title.attr", "title");
+        config.setProperty("select.link", "h3 a");
+        config.setProperty("field.link.attr", "href");
+        config.setProperty("select.price", "p.price_color");
+        config.setProperty("select.availability", "p.instock.availability");
+        config.setProperty("select.image", "div.image_container img");
+        config.setProperty("field.image.attr", "src");
+        config.setProperty("select.next", "li.next a");
+        config.setProperty("select.pager", "li.current");
+        config.setProperty("field.pager.pattern", "of\\s+(\\d+)");
+        return new SiteProfile(config, true);
+    }
+
+    /**
+     * @param pageNumber 1-based page number
+     * @return absolute URL of the catalogue page
+     */
+    public String getPageUrl(int pageNumber) {
+        return baseUrl + (pageNumber == 1 ? firstPagePath : pagePath.replace(PAGE_PLACEHOLDER, String.valueOf(pageNumber)));
+    }
+
+    /**
+     * Reads one book from a product element
+     * @param productElement element matched by select.product
+     * @return the book, or null if the title, price or availability is missing
+     */
+    Book parseProduct(Element productElement) {
+        return toBook(title.extract(productElement), link.extract(productElement), price.extract(productElement),
+            availability.extract(productElement), image.extract(productElement));
+    }
+
+    /**
+     * Builds a book from raw field values read elsewhere, e.g. in a browser,
+     * applying each field's pattern as parseProduct does
+     * @param raw values of the getProductFields fields, in that order; null where the element is missing
+     * @return the book, or null if the title, price or availability is missing
+     */
+    Book toBook(List<String> raw) {
+        return toBook(title.reduce(raw.get(0)), link.reduce(raw.get(1)), price.reduce(raw.get(2)),
+            availability.reduce(raw.get(3)), image.reduce(raw.get(4)));
+    }
+
+    private static Book toBook(String titleText, String linkUrl, String priceText, String availabilityText,
+                               String imageUrl) {
+        if (titleText == null || priceText == null || availabilityText == null) {
+            return null;
+        }
+        Book book = new Book(titleText, priceText, availabilityText.trim(), linkUrl);
+        book.setImageUrl(imageUrl);
+        return book;
+    }
+
+    /**
+     * @return title, link, price, availability and image fields, the order toBook expects
+     */
+    List<Field> getProductFields() {
+        return Arrays.asList(title, link, price, availability, image);
+    }
+
+    Field getPagerField() {
+        return pager;
+    }
+
+    Evaluator getProductEvaluator() {
+        return product;
+    }
+
+    Evaluator getNextEvaluator() {
+        return next;
+    }
+
+    /**
+     * @return CSS selector of the next-page link
+     */
+    String getNextSelector() {
+        return nextSelector;
+    }
+
+    /**
+     * @param root page document
+     * @return page count from the pager, or PageResult.UNKNOWN_PAGE_COUNT if absent
+     */
+    int extractTotalPages(Element root) {
+        return toPageCount(pager.extract(root));
+    }
+
+    /**
+     * @param rawPager pager value read elsewhere, before its pattern is applied; may be null
+     * @return page count, or PageResult.UNKNOWN_PAGE_COUNT if absent
+     */
+    int parseTotalPages(String rawPager) {
+        return toPageCount(pager.reduce(rawPager));
+    }
+
+    private static int toPageCount(String count) {
+        if (count == null) {
+            return PageResult.UNKNOWN_PAGE_COUNT;
+        }
+        try {
+            return Integer.parseInt(count.trim());
+        } catch (NumberFormatException e) {
+            return PageResult.UNKNOWN_PAGE_COUNT;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * @return CSS selector of a product, for engines that wait for it to appear
+     */
+    public String getProductSelector() {
+        return productSelector;
+    }
+
+    /**
+     * @return maximum catalogue pages in flight for this site
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * @return true for the built-in books.toscrape.com layout, which engines may read with specialised code
+     */
+    public boolean isBuiltIn() {
+        return builtIn;
+    }
+
+    private static String required(Properties config, String key) {
+        String value = config.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("Site profile is missing " + key);
+        }
+        return value.trim();
+    }
+
+    private static Evaluator compile(String key, String css) {
+        try {
+            return QueryParser.parse(css);
+        } catch (Selector.SelectorParseException e) {
+            throw new IllegalArgumentException("Invalid selector for " + key + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * One configured field: compiled selector, optional attribute and optional pattern
+     */
+    static class Field {
+        private final String css;
+        private final Evaluator selector;
+        private final String attribute;
+        private final Pattern pattern;
+
+        Field(Properties config, String name, boolean required) {
+            String css = required ? required(config, "select." + name) : config.getProperty("select." + name, "").trim();
+            this.css = css.isEmpty() ? null : css;
+            this.selector = css.isEmpty() ? null : compile("select." + name, css);
+            String attr = config.getProperty("field." + name + ".attr", "").trim();
+            this.attribute = attr.isEmpty() ? null : attr;
+            String regex = config.getProperty("field." + name + ".pattern", "").trim();
+            try {
+                this.pattern = regex.isEmpty() ? null : Pattern.compile(regex);
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("Invalid pattern for field." + name + ".pattern: " + e.getMessage());
+            }
+        }
+
+        /**
+         * @return field value, or null if the element or pattern match is missing
+         */
+        String extract(Element root) {
+            if (selector == null) {
+                return null;
+            }
+            Element element = root.selectFirst(selector);
+            if (element == null) {
+                return null;
+            }
+            String value;
+            if (attribute == null) {
+                value = element.text();
+            } else if (isUrlAttribute()) {
+                value = element.absUrl(attribute);
+            } else {
+                value = element.attr(attribute);
+            }
+            return reduce(value);
+        }
+
+        /**
+         * Applies the pattern to a raw value
+         * @return group 1 or the whole match, the value itself without a pattern, or null if absent
+         */
+        String reduce(String value) {
+            if (value == null || pattern == null) {
+                return value;
+            }
+            Matcher matcher = pattern.matcher(value);
+            if (!matcher.find()) {
+                return null;
+            }
+            return matcher.groupCount() > 0 ? matcher.group(1) : matcher.group();
+        }
+
+        /**
+         * @return CSS selector, or null if the field is not configured
+         */
+        String getSelector() {
+            return css;
+        }
+
+        /**
+         * @return attribute read instead of the text, or null for the text
+         */
+        String getAttribute() {
+            return attribute;
+        }
+
+        /**
+         * @return true if the attribute holds a URL that is resolved to an absolute one
+         */
+        boolean isUrlAttribute() {
+            return "href".equals(attribute) || "src".equals(attribute);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import com.opencsv.CSVReader;
+import com.opencsv.CSVWriter;
+import com.opencsv.exceptions.CsvValidationException;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory index of a catalogue snapshot keyed by stable book identity.
+ * The product URL is used as the key; snapshots written without one
+ * (e.g. plain BookCSVWriter output) fall back to the title. Snapshots are
+ * always stored as UTF-8 so currency symbols survive the round trip.
+ */
+public class SnapshotIndex {
+    static final String[] SNAPSHOT_HEADER = {"Product_URL", "Title", "Price", "Availability", "Page"};
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * Loads a snapshot CSV. Both the delta snapshot layout and the regular
+     * Title,Price,Availability,Scraped_At export are accepted.
+     * @param filename snapshot file
+     * @return the loaded index, empty if the file does not exist
+     */
+    public static SnapshotIndex load(String filename) {
+        SnapshotIndex index = new SnapshotIndex();
+        if (!Files.exists(Paths.get(filename))) {
+            return index;
+        }
+
+        try (CSVReader reader = new CSVReader(new BufferedReader(new FileReader(filename, StandardCharsets.UTF_8)))) {
+            String[] header = reader.readNext();
+            if (header == null) {
+                return index;
+            }
+            List<String> columns = Arrays.asList(header);
+            int urlColumn = columns.indexOf("Product_URL");
+            int titleColumn = columns.indexOf("Title");
+            int priceColumn = columns.indexOf("Price");
+            int availabilityColumn = columns.indexOf("Availability");
+            int pageColumn = columns.indexOf("Page");
+
+            String[] row;
+            while ((row = reader.readNext()) != null) {
+                String url = column(row, urlColumn);
+                String title = column(row, titleColumn);
+                String pageValue = column(row, pageColumn);
+                int page = pageValue.isEmpty() ? 0 : Integer.parseInt(pageValue);
+                index.put(new Entry(url.isEmpty() ? title : url, title,
+                    column(row, priceColumn), column(row, availabilityColumn), page));
+            }
+        } catch (IOException | CsvValidationException | NumberFormatException e) {
+            System.err.println("Error reading snapshot file: " + e.getMessage());
+            throw new RuntimeException("Failed to read snapshot file", e);
+        }
+
+        System.out.println("Loaded " + index.size() + " books from snapshot: " + filename);
+        return index;
+    }
+
+    private static String column(String[] row, int column) {
+        return column >= 0 && column < row.length ? row[column] : "";
+    }
+
+    /**
+     * Writes the snapshot atomically so a crash never leaves a truncated file behind
+     * @param filename snapshot file
+     */
+    public void save(String filename) {
+        Path target = Paths.get(filename).toAbsolutePath();
+        try {
+            Path tmp = Files.createTempFile(target.getParent(), "snapshot", ".tmp");
+            try (CSVWriter csvWriter = new CSVWriter(new BufferedWriter(new FileWriter(tmp.toFile(), StandardCharsets.UTF_8)))) {
+                csvWriter.writeNext(SNAPSHOT_HEADER);
+                for (Entry entry : entries.values()) {
+                    csvWriter.writeNext(new String[] {
+                        entry.getKey(), entry.getTitle(), entry.getPrice(),
+                        entry.getAvailability(), Integer.toString(entry.getPage())
+                    });
+                }
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Error writing snapshot file: " + e.getMessage());
+            throw new RuntimeException("Failed to write snapshot file", e);
+        }
+    }
+
+    /**
+     * Identity used to match a book across runs
+     * @param book extracted book
+     * @return product URL, or the title if the URL is unknown
+     */
+    public static String keyOf(Book book) {
+        String url = book.getProductUrl();
+        return url == null || url.isEmpty() ? book.getTitle() : url;
+    }
+
+    public void put(Entry entry) {
+        entries.put(entry.getKey(), entry);
+    }
+
+    public Entry get(String key) {
+        return entries.get(key);
+    }
+
+    public Collection<Entry> entries() {
+        return entries.values();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * One book as recorded in a snapshot
+     */
+    public static class Entry {
+        private final String key;
+        private final String title;
+        private final String price;
+        private final String availability;
+        private final int page;
+
+        public Entry(String key, String title, String price, String availability, int page) {
+            this.key = key;
+            this.title = title;
+            this.price = price;
+            this.availability = availability;
+            this.page = page;
+        }
+
+        public static Entry of(Book book, int page) {
+            return new Entry(keyOf(book), book.getTitle(), book.getPrice(), book.getAvailability(), page);
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getPrice() {
+            return price;
+        }
+
+        public String getAvailability() {
+            return availability;
+        }
+
+        public int getPage() {
+            return page;
+        }
+    }
+}
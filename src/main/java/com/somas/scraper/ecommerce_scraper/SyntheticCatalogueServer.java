@@ -0,0 +1,406 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Embedded HTTP server serving a generated catalogue shaped like
+ * books.toscrape.com, including product detail pages and cover images, for offline
+ * end-to-end and load testing. Page count, books per page, response
+ * latency, error rate and page size are configurable.
+ *
+ * Pages and covers carry ETag and Last-Modified validators and conditional
+ * requests are answered with 304 Not Modified, so the page cache can be
+ * exercised offline; publishRevision makes every page change.
+ */
+public class SyntheticCatalogueServer implements AutoCloseable {
+    private static final Pattern PAGE_PATH = Pattern.compile("/catalogue/page-(\\d+)\\.html");
+    private static final Pattern DETAIL_PATH = Pattern.compile("/catalogue/synthetic-book-(\\d+)_\\d+/index\\.html");
+    private static final Pattern IMAGE_PATH = Pattern.compile("/media/cache/\\d+/(\\d+)\\.jpg");
+    // Books whose ids differ by a multiple of this share a cover, like reprints on a real site
+    private static final int DISTINCT_COVERS = 25;
+    private static final String[] CATEGORIES = {"Poetry", "Fiction", "History", "Science", "Travel", "Mystery"};
+
+    private final int pages;
+    private final int booksPerPage;
+    private final long latencyMillis;
+    private final double errorRate;
+    private final int pageSizeBytes;
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    private final AtomicLong notModifiedCount = new AtomicLong();
+    private volatile int revision;
+    private volatile Instant lastModified = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * @param pages number of catalogue pages
+     * @param booksPerPage products listed on each page
+     * @param latencyMillis delay added before every response
+     * @param errorRate fraction of requests answered with HTTP 503, 0.0 to 1.0
+     * @param pageSizeBytes minimum page size; pages are padded up to it, 0 for no padding
+     */
+    public SyntheticCatalogueServer(int pages, int booksPerPage, long latencyMillis,
+                                    double errorRate, int pageSizeBytes) {
+        this.pages = pages;
+        this.booksPerPage = booksPerPage;
+        this.latencyMillis = latencyMillis;
+        this.errorRate = errorRate;
+        this.pageSizeBytes = pageSizeBytes;
+    }
+
+    /**
+     * Starts the server on the loopback interface
+     * @param port port to bind, 0 for any free port
+     * @return catalogue base URL, e.g. "http://127.0.0.1:43121/"
+     * @throws IOException if the port cannot be bound
+     */
+    public String start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        // Handlers sleep to simulate latency, so serve many requests in parallel
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        return getBaseUrl();
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            requestCount.incrementAndGet();
+            if (latencyMillis > 0) {
+                TimeUnit.MILLISECONDS.sleep(latencyMillis);
+            }
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                errorCount.incrementAndGet();
+                send(exchange, 503, "Service temporarily unavailable");
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            Matcher detail = DETAIL_PATH.matcher(path);
+            if (detail.matches()) {
+                int id = Integer.parseInt(detail.group(1));
+                if (id < 1 || id > pages * booksPerPage) {
+                    send(exchange, 404, "Not found");
+                } else {
+                    sendPage(exchange, renderDetailPage(id));
+                }
+                return;
+            }
+
+            Matcher image = IMAGE_PATH.matcher(path);
+            if (image.matches()) {
+                int id = Integer.parseInt(image.group(1));
+                if (id < 1 || id > pages * booksPerPage) {
+                    send(exchange, 404, "Not found");
+                } else {
+                    sendImage(exchange, id % DISTINCT_COVERS);
+                }
+                return;
+            }
+
+            int page = pageNumber(path);
+            if (page < 1 || page > pages) {
+                send(exchange, 404, "Not found");
+                return;
+            }
+            sendPage(exchange, renderPage(page));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private int pageNumber(String path) {
+        if (path.equals("/") || path.equals("/index.html")) {
+            return 1;
+        }
+        Matcher matcher = PAGE_PATH.matcher(path);
+        return matcher.matches() ? Integer.parseInt(matcher.group(1)) : -1;
+    }
+
+    private void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Serves a page with a content-derived ETag and the revision's
+     * Last-Modified, or 304 if the client's copy is still current
+     */
+    private void sendPage(HttpExchange exchange, String body) throws IOException {
+        String etag = "\"" + Integer.toHexString(body.hashCode()) + "\"";
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.getResponseHeaders().set("Last-Modified", formatHttpDate(lastModified));
+        if (isNotModified(exchange, etag)) {
+            sendNotModified(exchange);
+            return;
+        }
+        send(exchange, 200, body);
+    }
+
+    /**
+     * If-None-Match takes precedence; If-Modified-Since is only consulted without it
+     */
+    private boolean isNotModified(HttpExchange exchange, String etag) {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+        if (ifModifiedSince == null) {
+            return false;
+        }
+        try {
+            Instant since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return !lastModified.isAfter(since);
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private void sendNotModified(HttpExchange exchange) throws IOException {
+        notModifiedCount.incrementAndGet();
+        exchange.sendResponseHeaders(304, -1);
+    }
+
+    private static String formatHttpDate(Instant instant) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(instant.atOffset(ZoneOffset.UTC));
+    }
+
+    /**
+     * Serves a cover with a content-derived ETag; HEAD requests get the headers only
+     */
+    private void sendImage(HttpExchange exchange, int cover) throws IOException {
+        byte[] bytes = renderCover(cover);
+        String etag = "\"cover-" + cover + "\"";
+        exchange.getResponseHeaders().set("Content-Type", "image/jpeg");
+        exchange.getResponseHeaders().set("ETag", etag);
+        if (isNotModified(exchange, etag)) {
+            sendNotModified(exchange);
+            return;
+        }
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Generates between 4 and 20 KB of bytes that are a pure function of the cover number
+     */
+    static byte[] renderCover(int cover) {
+        byte[] bytes = new byte[4096 + cover * 16384 / DISTINCT_COVERS];
+        long state = 0x9E3779B97F4A7C15L * (cover + 1);
+        for (int i = 0; i < bytes.length; i++) {
+            state ^= state << 13;
+            state ^= state >>> 7;
+            state ^= state << 17;
+            bytes[i] = (byte) state;
+        }
+        return bytes;
+    }
+
+    /**
+     * Renders one catalogue page. Content is a pure function of the page
+     * number, so repeated runs see the same catalogue.
+     * @param page 1-based page number
+     * @return page HTML
+     */
+    String renderPage(int page) {
+        // Page 1 is served from the site root, later pages from /catalogue/
+        String productPrefix = page == 1 ? "catalogue/" : "";
+        StringBuilder html = new StringBuilder(Math.max(pageSizeBytes, 16 * 1024));
+        html.append("<!DOCTYPE html>\n<html lang=\"en-us\">\n<head>\n")
+            .append("<meta charset=\"utf-8\" />\n<title>All products | Synthetic Books</title>\n")
+            .append("</head>\n<body id=\"default\" class=\"default\">\n")
+            .append("<!-- revision ").append(revision).append(" -->\n")
+            .append("<div class=\"container-fluid page\"><div class=\"page_inner\">\n<section>\n<ol class=\"row\">\n");
+
+        for (int i = 0; i < booksPerPage; i++) {
+            int id = (page - 1) * booksPerPage + i + 1;
+            String slug = "synthetic-book-" + id + "_" + id;
+            String title = "Synthetic Book " + id;
+            long priceMinor = priceMinor(id);
+            boolean inStock = stockCount(id) > 0;
+
+            html.append("<li class=\"col-xs-6 col-sm-4 col-md-3 col-lg-3\">\n")
+                .append("<article class=\"product_pod\">\n")
+                .append("<div class=\"image_container\"><a href=\"").append(productPrefix).append(slug)
+                .append("/index.html\"><img src=\"").append(page == 1 ? "" : "../")
+                .append("media/cache/").append(id % 100).append("/").append(id).append(".jpg\" alt=\"")
+                .append(title).append("\" class=\"thumbnail\"></a></div>\n")
+                .append("<p class=\"star-rating Three\"></p>\n")
+                .append("<h3><a href=\"").append(productPrefix).append(slug).append("/index.html\" title=\"")
+                .append(title).append("\">").append(title).append("</a></h3>\n")
+                .append("<div class=\"product_price\">\n")
+                .append("<p class=\"price_color\">").append(formatPrice(priceMinor)).append("</p>\n")
+                .append("<p class=\"instock availability\">\n    <i class=\"icon-ok\"></i>\n    ")
+                .append(inStock ? "In stock" : "Out of stock").append("\n</p>\n")
+                .append("</div>\n</article>\n</li>\n");
+        }
+
+        html.append("</ol>\n<div><ul class=\"pager\">\n");
+        if (page > 1) {
+            html.append("<li class=\"previous\"><a href=\"page-").append(page - 1).append(".html\">previous</a></li>\n");
+        }
+        html.append("<li class=\"current\">\n    Page ").append(page).append(" of ").append(pages).append("\n</li>\n");
+        if (page < pages) {
+            html.append("<li class=\"next\"><a href=\"").append(page == 1 ? "catalogue/" : "")
+                .append("page-").append(page + 1).append(".html\">next</a></li>\n");
+        }
+        html.append("</ul></div>\n</section>\n</div></div>\n");
+
+        if (html.length() < pageSizeBytes) {
+            html.append("<!-- ");
+            while (html.length() < pageSizeBytes - 4) {
+                html.append("padding ");
+            }
+            html.append(" -->\n");
+        }
+        html.append("</body>\n</html>\n");
+        return html.toString();
+    }
+
+    /**
+     * Renders the product detail page of one book, with the breadcrumb,
+     * description and product information table used on books.toscrape.com
+     * @param id 1-based book id
+     * @return page HTML
+     */
+    String renderDetailPage(int id) {
+        String title = "Synthetic Book " + id;
+        String category = CATEGORIES[id % CATEGORIES.length];
+        String price = formatPrice(priceMinor(id));
+        int stock = stockCount(id);
+        String availability = stock > 0 ? "In stock (" + stock + " available)" : "Out of stock (0 available)";
+
+        StringBuilder html = new StringBuilder(Math.max(pageSizeBytes, 8 * 1024));
+        html.append("<!DOCTYPE html>\n<html lang=\"en-us\">\n<head>\n")
+            .append("<meta charset=\"utf-8\" />\n<title>").append(title).append(" | Synthetic Books</title>\n")
+            .append("</head>\n<body id=\"default\" class=\"default\">\n")
+            .append("<!-- revision ").append(revision).append(" -->\n")
+            .append("<div class=\"container-fluid page\"><div class=\"page_inner\">\n")
+            .append("<ul class=\"breadcrumb\">\n<li><a href=\"../../index.html\">Home</a></li>\n")
+            .append("<li><a href=\"../category/books_1/index.html\">Books</a></li>\n")
+            .append("<li><a href=\"../category/books/").append(category.toLowerCase()).append("_")
+            .append(id % CATEGORIES.length + 2).append("/index.html\">").append(category).append("</a></li>\n")
+            .append("<li class=\"active\">").append(title).append("</li>\n</ul>\n")
+            .append("<article class=\"product_page\">\n<div class=\"row\">\n<div class=\"col-sm-6 product_main\">\n")
+            .append("<h1>").append(title).append("</h1>\n")
+            .append("<p class=\"price_color\">").append(price).append("</p>\n")
+            .append("<p class=\"instock availability\">\n    <i class=\"icon-ok\"></i>\n    ")
+            .append(availability).append("\n</p>\n</div>\n</div>\n")
+            .append("<div id=\"product_description\" class=\"sub-header\"><h2>Product Description</h2></div>\n")
+            .append("<p>Generated description of ").append(title).append(", a ").append(category.toLowerCase())
+            .append(" title in the synthetic catalogue.</p>\n")
+            .append("<div class=\"sub-header\"><h2>Product Information</h2></div>\n")
+            .append("<table class=\"table table-striped\">\n")
+            .append("<tr><th>UPC</th><td>").append(String.format("%016x", id * 0x9E3779B97F4A7C15L)).append("</td></tr>\n")
+            .append("<tr><th>Product Type</th><td>Books</td></tr>\n")
+            .append("<tr><th>Price (excl. tax)</th><td>").append(price).append("</td></tr>\n")
+            .append("<tr><th>Price (incl. tax)</th><td>").append(price).append("</td></tr>\n")
+            .append("<tr><th>Tax</th><td>£0.00</td></tr>\n")
+            .append("<tr><th>Availability</th><td>").append(availability).append("</td></tr>\n")
+            .append("<tr><th>Number of reviews</th><td>0</td></tr>\n")
+            .append("</table>\n</article>\n</div></div>\n</body>\n</html>\n");
+        return html.toString();
+    }
+
+    private static long priceMinor(int id) {
+        return 1000 + (id * 7919L) % 5000;
+    }
+
+    /**
+     * Every 11th book is out of stock; the rest have between 1 and 22 copies
+     */
+    private static int stockCount(int id) {
+        return id % 11 == 0 ? 0 : 1 + id % 22;
+    }
+
+    private static String formatPrice(long priceMinor) {
+        return "£" + priceMinor / 100 + "." + String.format("%02d", priceMinor % 100);
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    /**
+     * @return requests answered with 304 Not Modified
+     */
+    public long getNotModifiedCount() {
+        return notModifiedCount.get();
+    }
+
+    /**
+     * Changes every page, as a site update would: pages get new ETags and a
+     * later Last-Modified, so cached copies no longer revalidate
+     */
+    public void publishRevision() {
+        revision++;
+        Instant next = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        // Keep Last-Modified strictly increasing even within the same second
+        lastModified = next.isAfter(lastModified) ? next : lastModified.plusSeconds(1);
+    }
+
+    public int getPages() {
+        return pages;
+    }
+
+    public int getBooksPerPage() {
+        return booksPerPage;
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
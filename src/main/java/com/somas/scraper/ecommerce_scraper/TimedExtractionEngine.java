@@ -0,0 +1,72 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Decorator that records how long each page takes to extract, including failures
+ */
+public class TimedExtractionEngine implements ExtractionEngine {
+    private final ExtractionEngine delegate;
+    private long[] latenciesNanos = new long[256];
+    private int count;
+
+    public TimedExtractionEngine(ExtractionEngine delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public PageResult extractPage(String pageUrl) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return delegate.extractPage(pageUrl);
+        } finally {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public PageResult extractPage(String pageUrl, SiteProfile profile) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return delegate.extractPage(pageUrl, profile);
+        } finally {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    private synchronized void record(long nanos) {
+        if (count == latenciesNanos.length) {
+            latenciesNanos = Arrays.copyOf(latenciesNanos, count * 2);
+        }
+        latenciesNanos[count++] = nanos;
+    }
+
+    /**
+     * @param percentile value between 0 and 100
+     * @return page latency at the percentile in milliseconds, 0 if nothing was recorded
+     */
+    public synchronized double getLatencyPercentileMillis(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(latenciesNanos, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(index, count - 1))] / 1_000_000.0;
+    }
+
+    public synchronized int getPageCount() {
+        return count;
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return delegate.isThreadSafe();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -0,0 +1,153 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Fixed-size pool of WebDriver instances shared by concurrent page tasks.
+ * Drivers are started lazily, health-checked when leased and recycled after
+ * a configurable number of pages to bound browser memory growth.
+ */
+public class WebDriverPool implements AutoCloseable {
+    private static final Duration WAIT_TIMEOUT = Duration.ofSeconds(10);
+
+    private final int maxPagesPerDriver;
+    private final Supplier<WebDriver> driverFactory;
+    private final Semaphore permits;
+    private final ConcurrentLinkedQueue<PooledDriver> idleDrivers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger startedCount = new AtomicInteger();
+    private volatile boolean closed;
+
+    /**
+     * @param size maximum number of browsers running at once
+     * @param maxPagesPerDriver pages served before a driver is restarted, 0 to never recycle
+     * @param driverFactory creates a new browser session
+     */
+    public WebDriverPool(int size, int maxPagesPerDriver, Supplier<WebDriver> driverFactory) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1");
+        }
+        this.maxPagesPerDriver = maxPagesPerDriver;
+        this.driverFactory = driverFactory;
+        this.permits = new Semaphore(size, true);
+    }
+
+    /**
+     * Leases a healthy driver, blocking until one is free
+     * @return leased driver; must be handed back through release
+     * @throws InterruptedException if interrupted while waiting for a free driver
+     */
+    public PooledDriver borrow() throws InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("WebDriver pool is closed");
+        }
+        permits.acquire();
+        try {
+            PooledDriver pooled;
+            while ((pooled = idleDrivers.poll()) != null) {
+                if (pooled.isHealthy()) {
+                    return pooled;
+                }
+                System.err.println("Discarding unhealthy WebDriver after " + pooled.getPagesServed() + " pages");
+                pooled.quit();
+            }
+            PooledDriver started = new PooledDriver(driverFactory.get());
+            startedCount.incrementAndGet();
+            return started;
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a leased driver to the pool
+     * @param pooled driver obtained from borrow
+     * @param healthy false if the page task failed in a way that may have broken the session
+     */
+    public void release(PooledDriver pooled, boolean healthy) {
+        try {
+            pooled.pagesServed++;
+            boolean exhausted = maxPagesPerDriver > 0 && pooled.pagesServed >= maxPagesPerDriver;
+            if (closed || !healthy || exhausted) {
+                pooled.quit();
+            } else {
+                idleDrivers.offer(pooled);
+                // close() may have drained the queue between the check and the offer;
+                // whichever of the two removes the driver quits it
+                if (closed && idleDrivers.remove(pooled)) {
+                    pooled.quit();
+                }
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * @return number of browsers started so far, including recycled ones
+     */
+    public int getStartedCount() {
+        return startedCount.get();
+    }
+
+    /**
+     * Quits all idle drivers; drivers still leased are quit when released
+     */
+    @Override
+    public void close() {
+        closed = true;
+        PooledDriver pooled;
+        while ((pooled = idleDrivers.poll()) != null) {
+            pooled.quit();
+        }
+    }
+
+    /**
+     * A driver leased from the pool together with its wait helper
+     */
+    public static class PooledDriver {
+        private final WebDriver driver;
+        private final WebDriverWait wait;
+        private int pagesServed;
+
+        private PooledDriver(WebDriver driver) {
+            this.driver = driver;
+            this.wait = new WebDriverWait(driver, WAIT_TIMEOUT);
+        }
+
+        public WebDriver getDriver() {
+            return driver;
+        }
+
+        public WebDriverWait getWait() {
+            return wait;
+        }
+
+        public int getPagesServed() {
+            return pagesServed;
+        }
+
+        private boolean isHealthy() {
+            try {
+                driver.getWindowHandle();
+                return true;
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        private void quit() {
+            try {
+                driver.quit();
+            } catch (Exception e) {
+                System.err.println("Error closing WebDriver: " + e.getMessage());
+            }
+        }
+    }
+}
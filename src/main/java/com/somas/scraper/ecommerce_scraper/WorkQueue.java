@@ -0,0 +1,105 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Shared queue of crawl shards with lease semantics. A worker claims a
+ * shard for a limited time, renews the lease while it works and completes
+ * the shard when its output is in place. Leases that are not renewed expire
+ * and the shard becomes claimable again, so a crashed worker's shards are
+ * picked up by the others. A shard that keeps failing is retried after a
+ * growing delay and eventually given up, so it cannot keep the crawl from
+ * finishing.
+ */
+public interface WorkQueue {
+
+    /**
+     * Adds a shard to the queue, unless a shard with the same ID exists
+     * @param shard shard to add
+     * @throws IOException if the queue cannot be written
+     */
+    void add(Shard shard) throws IOException;
+
+    /**
+     * Claims a shard that is neither done nor under a live lease
+     * @param workerId identifier of the claiming worker
+     * @return claimed shard, or null if none is claimable right now
+     * @throws IOException if the queue cannot be read or written
+     */
+    Shard claim(String workerId) throws IOException;
+
+    /**
+     * Extends the worker's lease on a shard
+     * @return false if the lease expired and was taken over
+     * @throws IOException if the queue cannot be written
+     */
+    boolean renew(Shard shard, String workerId) throws IOException;
+
+    /**
+     * Marks a shard done
+     * @return false if the worker no longer held the lease
+     * @throws IOException if the queue cannot be written
+     */
+    boolean complete(Shard shard, String workerId) throws IOException;
+
+    /**
+     * Gives up a lease so another worker can retry the shard immediately
+     * @throws IOException if the queue cannot be written
+     */
+    void release(Shard shard, String workerId) throws IOException;
+
+    /**
+     * Records a failed attempt and gives up the lease. The shard can be
+     * claimed again once the delay has passed, or never if it is given up.
+     * @param retryDelayMillis time before the shard may be claimed again
+     * @param giveUp true to mark the shard failed for good
+     * @return false if the worker no longer held the lease
+     * @throws IOException if the queue cannot be written
+     */
+    boolean fail(Shard shard, String workerId, long retryDelayMillis, boolean giveUp) throws IOException;
+
+    /**
+     * @return number of failed attempts recorded for the shard
+     * @throws IOException if the queue cannot be read
+     */
+    int getFailedAttempts(Shard shard) throws IOException;
+
+    /**
+     * @return true if the shard was given up after failing
+     * @throws IOException if the queue cannot be read
+     */
+    boolean isFailed(Shard shard) throws IOException;
+
+    /**
+     * @return every shard in ID order
+     * @throws IOException if the queue cannot be read
+     */
+    List<Shard> getShards() throws IOException;
+
+    /**
+     * @return true if the shard was completed
+     * @throws IOException if the queue cannot be read
+     */
+    boolean isDone(Shard shard) throws IOException;
+
+    /**
+     * @param shard shard whose output to locate
+     * @return location every worker publishes the shard's CSV output to
+     */
+    Path getOutputFile(Shard shard);
+
+    /**
+     * @return true once every shard is done or given up
+     * @throws IOException if the queue cannot be read
+     */
+    default boolean isFinished() throws IOException {
+        for (Shard shard : getShards()) {
+            if (!isDone(shard) && !isFailed(shard)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,151 @@
+package com.somas.scraper.ecommerce_scraper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Exercises PageCache and HttpPageFetcher against the synthetic catalogue,
+ * which answers conditional requests with 304 Not Modified
+ */
+class PageCacheTest {
+    private static final long MAX_BYTES = 10 * 1024 * 1024;
+
+    @TempDir
+    Path cacheDir;
+
+    private SyntheticCatalogueServer server;
+    private String pageUrl;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = new SyntheticCatalogueServer(3, 5, 0, 0.0, 0);
+        pageUrl = server.start(0) + "catalogue/page-2.html";
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+    }
+
+    @Test
+    void unchangedPageIsRevalidatedWith304() throws Exception {
+        HttpPageFetcher fetcher = new HttpPageFetcher(new PageCache(cacheDir, MAX_BYTES, Duration.ZERO));
+
+        HttpPageFetcher.FetchResult first = fetcher.fetch(pageUrl);
+        HttpPageFetcher.FetchResult second = fetcher.fetch(pageUrl);
+
+        assertFalse(first.isUnchanged());
+        assertTrue(second.isUnchanged());
+        assertEquals(first.getBody(), second.getBody());
+        assertEquals(2, server.getRequestCount());
+        assertEquals(1, server.getNotModifiedCount());
+    }
+
+    @Test
+    void unchangedPageGivesFreshBooks() throws Exception {
+        JsoupExtractionEngine engine = new JsoupExtractionEngine(new PageCache(cacheDir, MAX_BYTES, Duration.ZERO));
+
+        Book first = engine.extractPage(pageUrl).getBooks().get(0);
+        first.setUpc("enriched by an earlier run");
+        Book second = engine.extractPage(pageUrl).getBooks().get(0);
+
+        assertEquals(1, server.getNotModifiedCount());
+        assertNotSame(first, second);
+        assertEquals(first.getTitle(), second.getTitle());
+        assertNull(second.getUpc());
+    }
+
+    @Test
+    void unchangedPageIsParsedWithTheRequestedProfile() throws Exception {
+        JsoupExtractionEngine engine = new JsoupExtractionEngine(new PageCache(cacheDir, MAX_BYTES, Duration.ZERO));
+        SiteProfile firstWords = SiteProfile.load(new StringReader("name=first-words\n"
+            + "base.url=" + pageUrl + "\npage.url=catalogue/page-{page}.html\n"
+            + "select.product=article.product_pod\nselect.title=h3 a\nfield.title.attr=title\n"
+            + "field.title.pattern=^(\\\\S+)\nselect.price=p.price_color\n"
+            + "select.availability=p.instock.availability\nselect.next=li.next a\n"));
+
+        String title = engine.extractPage(pageUrl).getBooks().get(0).getTitle();
+        String firstWord = engine.extractPage(pageUrl, firstWords).getBooks().get(0).getTitle();
+
+        assertEquals(1, server.getNotModifiedCount());
+        assertEquals(title.split("\\s+")[0], firstWord);
+    }
+
+    @Test
+    void changedPageIsDownloadedAgain() throws Exception {
+        HttpPageFetcher fetcher = new HttpPageFetcher(new PageCache(cacheDir, MAX_BYTES, Duration.ZERO));
+
+        String before = fetcher.fetch(pageUrl).getBody();
+        server.publishRevision();
+        HttpPageFetcher.FetchResult after = fetcher.fetch(pageUrl);
+
+        assertFalse(after.isUnchanged());
+        assertFalse(before.equals(after.getBody()));
+        assertEquals(0, server.getNotModifiedCount());
+    }
+
+    @Test
+    void lastModifiedAloneRevalidates() throws Exception {
+        PageCache cache = new PageCache(cacheDir, MAX_BYTES, Duration.ZERO);
+        HttpPageFetcher fetcher = new HttpPageFetcher(cache);
+        String body = fetcher.fetch(pageUrl).getBody();
+        // Keep only the Last-Modified validator, as some servers send no ETag
+        cache.put(pageUrl, body, null, cache.get(pageUrl).getLastModified());
+
+        assertTrue(fetcher.fetch(pageUrl).isUnchanged());
+        assertEquals(1, server.getNotModifiedCount());
+    }
+
+    @Test
+    void freshEntryIsServedWithoutRequest() throws Exception {
+        HttpPageFetcher fetcher = new HttpPageFetcher(new PageCache(cacheDir, MAX_BYTES, Duration.ofHours(1)));
+
+        fetcher.fetch(pageUrl);
+        HttpPageFetcher.FetchResult cached = fetcher.fetch(pageUrl);
+
+        assertTrue(cached.isUnchanged());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    void staleEntryIsRevalidated() throws Exception {
+        HttpPageFetcher fetcher = new HttpPageFetcher(new PageCache(cacheDir, MAX_BYTES, Duration.ofMillis(50)));
+
+        fetcher.fetch(pageUrl);
+        Thread.sleep(100);
+        fetcher.fetch(pageUrl);
+
+        assertEquals(2, server.getRequestCount());
+        assertEquals(1, server.getNotModifiedCount());
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvictedByBytes() {
+        PageCache cache = new PageCache(cacheDir, 250, Duration.ZERO);
+        cache.put("http://example.test/a", "a".repeat(100), "\"a\"", null);
+        cache.put("http://example.test/b", "b".repeat(100), "\"b\"", null);
+        cache.get("http://example.test/a");
+        cache.put("http://example.test/c", "c".repeat(100), "\"c\"", null);
+
+        assertNotNull(cache.get("http://example.test/a"));
+        assertNull(cache.get("http://example.test/b"));
+        assertNotNull(cache.get("http://example.test/c"));
+        assertEquals(200, cache.getTotalBytes());
+
+        PageCache reopened = new PageCache(cacheDir, 250, Duration.ZERO);
+        assertEquals(2, reopened.size());
+        assertNull(reopened.get("http://example.test/b"));
+    }
+}